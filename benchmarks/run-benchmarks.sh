@@ -0,0 +1,14 @@
+#!/bin/sh
+# Runs the JMH benchmarks headlessly with the GC profiler (allocation rate per operation)
+# and stores the results as JSON in benchmarks/results/, named by date and git revision.
+# Additional JMH options are passed through, e.g.:
+#   benchmarks/run-benchmarks.sh CipherBenchmark -p size=1024,1048576 -p mix=ASCII
+set -e
+cd "$(dirname "$0")/.."
+
+mvn -B -q package -DskipTests
+mkdir -p benchmarks/results
+RESULT="benchmarks/results/$(date +%Y%m%d-%H%M%S)-$(git rev-parse --short HEAD 2>/dev/null || echo local).json"
+
+java -Djava.awt.headless=true -jar benchmarks/target/benchmarks.jar -prof gc -rf json -rff "$RESULT" "$@"
+echo "Results written to $RESULT"
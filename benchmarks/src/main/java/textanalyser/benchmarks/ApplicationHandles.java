@@ -0,0 +1,51 @@
+package textanalyser.benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Method handles to the benchmarked methods of the Text Analyser Application.
+ * The application classes live in the default package, which can not be imported from a named package
+ * (and JMH does not allow benchmarks in the default package), so they are looked up reflectively once.
+ * The handles are static final constants, so the JIT compiler inlines the calls like direct calls.
+ */
+final class ApplicationHandles {
+
+    static final MethodHandle FREQUENCY_ANALYSIS =
+            find("Cryptography", "frequencyAnalysis", MethodType.methodType(Object.class, String.class));
+    static final MethodHandle FREQUENCY_HISTOGRAM =
+            find("Cryptography", "frequencyHistogram", MethodType.methodType(Object.class, CharSequence.class));
+    static final MethodHandle PARALLEL_FREQUENCY_HISTOGRAM =
+            find("Cryptography", "parallelFrequencyHistogram", MethodType.methodType(Object.class, CharSequence.class));
+    static final MethodHandle SHIFT_CIPHER =
+            find("Cryptography", "shiftCipher", MethodType.methodType(String.class, int.class, String.class));
+    static final MethodHandle POLYALPHABETIC_CIPHER =
+            find("Cryptography", "polyalphabeticCipher", MethodType.methodType(String.class, String.class, String.class));
+    static final MethodHandle OPEN_FILE =
+            find("TextAnalyserIO", "openFile", MethodType.methodType(String.class, File.class));
+    static final MethodHandle ANALYSE_FILE =
+            find("TextAnalyserIO", "analyseFile", MethodType.methodType(Object.class, File.class));
+
+    private ApplicationHandles() {
+    }
+
+    /**
+     * Looks up a public static method by name and adapts its (not nameable) return type to the given type.
+     */
+    private static MethodHandle find(final String className, final String methodName, final MethodType type) {
+        try {
+            Class<?> owner = Class.forName(className);
+            for (java.lang.reflect.Method method : owner.getMethods()) {
+                if (method.getName().equals(methodName)
+                        && java.util.Arrays.equals(method.getParameterTypes(), type.parameterArray())) {
+                    return MethodHandles.publicLookup().unreflect(method).asType(type);
+                }
+            }
+            throw new NoSuchMethodException(className + "." + methodName + type);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
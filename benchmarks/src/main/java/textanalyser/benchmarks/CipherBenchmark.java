@@ -0,0 +1,58 @@
+package textanalyser.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the shift cipher and the polyalphabetic cipher of Cryptography.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class CipherBenchmark {
+
+    /**
+     * Keyword of the polyalphabetic cipher, only used by that benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class KeyState {
+        @Param({"1", "8", "64"})
+        public int keyLength;
+
+        public String keyword;
+
+        @Setup
+        public void setup() {
+            SplittableRandom random = new SplittableRandom(7);
+            StringBuilder builder = new StringBuilder(keyLength);
+            for (int i = 0; i < keyLength; i++) {
+                builder.append((char) ('A' + random.nextInt(26)));
+            }
+            keyword = builder.toString();
+        }
+    }
+
+    @Benchmark
+    public String shiftCipher(final TextState state) throws Throwable {
+        return (String) ApplicationHandles.SHIFT_CIPHER.invokeExact(3, state.text);
+    }
+
+    @Benchmark
+    public String polyalphabeticCipher(final TextState state, final KeyState key) throws Throwable {
+        return (String) ApplicationHandles.POLYALPHABETIC_CIPHER.invokeExact(key.keyword, state.text);
+    }
+}
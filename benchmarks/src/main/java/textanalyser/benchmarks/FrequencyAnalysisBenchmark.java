@@ -0,0 +1,37 @@
+package textanalyser.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the frequency-analysis of Cryptography.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class FrequencyAnalysisBenchmark {
+
+    @Benchmark
+    public Object frequencyAnalysis(final TextState state) throws Throwable {
+        return ApplicationHandles.FREQUENCY_ANALYSIS.invokeExact(state.text);
+    }
+
+    @Benchmark
+    public Object frequencyHistogram(final TextState state) throws Throwable {
+        return ApplicationHandles.FREQUENCY_HISTOGRAM.invokeExact((CharSequence) state.text);
+    }
+
+    @Benchmark
+    public Object parallelFrequencyHistogram(final TextState state) throws Throwable {
+        return ApplicationHandles.PARALLEL_FREQUENCY_HISTOGRAM.invokeExact((CharSequence) state.text);
+    }
+}
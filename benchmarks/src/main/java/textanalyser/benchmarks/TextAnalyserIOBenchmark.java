@@ -0,0 +1,68 @@
+package textanalyser.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for reading and analysing text files with TextAnalyserIO.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g"})
+public class TextAnalyserIOBenchmark {
+
+    /**
+     * A temporary UTF-8 encoded txt file with a generated text.
+     */
+    @State(Scope.Benchmark)
+    public static class FileState {
+        @Param({"1024", "1048576", "67108864", "1073741824"})
+        public int size;
+
+        @Param({"ASCII", "LATIN1", "UNICODE"})
+        public TextState.Mix mix;
+
+        public File file;
+
+        @Setup
+        public void setup() throws IOException {
+            Path path = Files.createTempFile("text-analyser-benchmark", ".txt");
+            Files.write(path, TextState.generate(size, mix, 42).getBytes(StandardCharsets.UTF_8));
+            file = path.toFile();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Benchmark
+    public String openFile(final FileState state) throws Throwable {
+        return (String) ApplicationHandles.OPEN_FILE.invokeExact(state.file);
+    }
+
+    @Benchmark
+    public Object analyseFile(final FileState state) throws Throwable {
+        return ApplicationHandles.ANALYSE_FILE.invokeExact(state.file);
+    }
+}
@@ -0,0 +1,59 @@
+package textanalyser.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark state providing a generated input text of a given size and character mix.
+ */
+@State(Scope.Benchmark)
+public class TextState {
+
+    /**
+     * Character mixes of the generated texts.
+     */
+    public enum Mix {
+        /** English-like text: ASCII letters, digits, whitespace and punctuation */
+        ASCII("ETAOINSHRDLUCMFWYPGBVKXJQZetaoinshrdlucmfwypgbvkxjqz0123456789     \n.,;!?"),
+        /** German/French-like text: ASCII plus Latin-1 letters */
+        LATIN1("ETAOINSHRDLUetaoinshrdlucmfwypgbvk     \n.,äöüÄÖÜßéèêàçëï"),
+        /** Heavy Unicode: Greek, Cyrillic, CJK and emoji (surrogate pairs) besides ASCII */
+        UNICODE("etaoin  \n.αβγδεζηθλμπσωАБВГДЖЗИЛПабвгджзилп漢字文化日本語中国한국어😀😎🚀✓€");
+
+        private final int[] codePoints;
+
+        Mix(final String alphabet) {
+            this.codePoints = alphabet.codePoints().toArray();
+        }
+    }
+
+    @Param({"1024", "1048576", "67108864", "1073741824"})
+    public int size;
+
+    @Param({"ASCII", "LATIN1", "UNICODE"})
+    public Mix mix;
+
+    public String text;
+
+    @Setup
+    public void setup() {
+        text = generate(size, mix, 42);
+    }
+
+    /**
+     * Generates a reproducible random text of (about) the given number of chars.
+     */
+    static String generate(final int size, final Mix mix, final long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder builder = new StringBuilder(size + 1);
+        while (builder.length() < size) {
+            builder.appendCodePoint(mix.codePoints[random.nextInt(mix.codePoints.length)]);
+        }
+        builder.setLength(size);
+        return builder.toString();
+    }
+}
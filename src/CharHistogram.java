@@ -0,0 +1,382 @@
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Class provides a primitive character histogram for the frequency-analysis of the Text Analyser Application.
+ * Counts for the Latin-1 range are held in a flat long array, all other characters are counted
+ * in pages of 256 entries, which are only allocated once a character of that page occurs.
+ * Counting a character never allocates and instances can be merged (e.g. after counting parts of a text).
+ */
+public class CharHistogram {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;                        // 256 characters per page
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int PAGE_COUNT = (Character.MAX_VALUE + 1) >>> PAGE_BITS;
+
+    private static final int WORD_KERNEL_THRESHOLD = 1 << 12;           // shorter buffers are counted byte by byte
+    static final int MAX_SUB_HISTOGRAM_BYTES = Integer.MAX_VALUE >>> 1;   // the int counts of a sub-histogram can't overflow
+
+    private final long[] latin1;            // dense counts for the Latin-1 range (U+0000 - U+00FF)
+    private final long[][] pages;           // sparse counts for the rest of the BMP, allocated on demand
+    private long total;                     // sum of all counts
+
+
+    /**
+     * Constructor. Creates an empty histogram.
+     */
+    public CharHistogram() {
+        this.latin1 = new long[PAGE_SIZE];
+        this.pages = new long[PAGE_COUNT][];
+        this.pages[0] = latin1;
+    }
+
+    /**
+     * Method counts a single character.
+     *
+     * @param c The character to be counted.
+     */
+    public void add(final char c) {
+        if (c < PAGE_SIZE) {
+            latin1[c]++;
+        } else {
+            page(c)[c & PAGE_MASK]++;
+        }
+        total++;
+    }
+
+    /**
+     * Method adds an amount to the count of a character.
+     *
+     * @param c The character to be counted.
+     * @param count The amount to add, may be negative to remove occurrences.
+     */
+    public void add(final char c, final long count) {
+        page(c)[c & PAGE_MASK] += count;
+        total += count;
+    }
+
+    /**
+     * Method counts all characters of a text.
+     *
+     * @param text The text to be counted.
+     */
+    public void addAll(final CharSequence text) {
+        addAll(text, 0, text.length());
+    }
+
+    /**
+     * Method counts the characters of a text within a given range.
+     *
+     * @param text The text to be counted.
+     * @param from Index of the first character (inclusive).
+     * @param to Index of the last character (exclusive).
+     */
+    public void addAll(final CharSequence text, final int from, final int to) {
+        final long[] dense = latin1;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < PAGE_SIZE) {
+                dense[c]++;
+            } else {
+                page(c)[c & PAGE_MASK]++;
+            }
+        }
+        total += to - from;
+    }
+
+    /**
+     * Method removes the characters of a text within a given range from the counts,
+     * e.g. after they have been deleted from a counted text.
+     *
+     * @param text The text to be removed.
+     * @param from Index of the first character (inclusive).
+     * @param to Index of the last character (exclusive).
+     */
+    public void removeAll(final CharSequence text, final int from, final int to) {
+        final long[] dense = latin1;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < PAGE_SIZE) {
+                dense[c]--;
+            } else {
+                page(c)[c & PAGE_MASK]--;
+            }
+        }
+        total -= to - from;
+    }
+
+    /**
+     * Method counts the characters of an array within a given range.
+     *
+     * @param chars The characters to be counted.
+     * @param from Index of the first character (inclusive).
+     * @param to Index of the last character (exclusive).
+     */
+    public void addAll(final char[] chars, final int from, final int to) {
+        final long[] dense = latin1;
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            if (c < PAGE_SIZE) {
+                dense[c]++;
+            } else {
+                page(c)[c & PAGE_MASK]++;
+            }
+        }
+        total += to - from;
+    }
+
+    /**
+     * Method counts the remaining bytes of a buffer as Latin-1 (ISO-8859-1) characters.
+     * The position of the buffer is moved to its limit.
+     *
+     * @param latin1Bytes The bytes to be counted, each byte represents one character.
+     */
+    public void addLatin1(final ByteBuffer latin1Bytes) {
+        final long[] dense = latin1;
+        int position = latin1Bytes.position();
+        int limit = latin1Bytes.limit();
+        if (WordKernels.ENABLED && limit - position >= WORD_KERNEL_THRESHOLD) {
+            // whole words into sub-histograms, see WordKernels
+            int[] counts = new int[WordKernels.SUB_HISTOGRAM_SIZE];
+            while (limit - position >= WordKernels.WORD_BYTES) {
+                int end = position + Math.min(limit - position, MAX_SUB_HISTOGRAM_BYTES);
+                position = WordKernels.countBytes(latin1Bytes, position, end, counts, false);
+                addCounts(counts);
+            }
+            latin1Bytes.position(position);
+        }
+        int remaining = latin1Bytes.remaining();
+        while (latin1Bytes.hasRemaining()) {
+            dense[latin1Bytes.get() & 0xFF]++;
+        }
+        total += remaining;
+    }
+
+    /**
+     * Method adds the counts of the Latin-1 sub-histograms of WordKernels.countBytes() and resets them to zero.
+     *
+     * @param counts The sub-histograms of 256 entries, one after another.
+     */
+    void addCounts(final int[] counts) {
+        final long[] dense = latin1;
+        for (int i = 0; i < counts.length; i++) {
+            int count = counts[i];
+            if (count != 0) {
+                dense[i & PAGE_MASK] += count;
+                total += count;
+                counts[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Method adds all counts of another histogram to this histogram.
+     *
+     * @param other The histogram to be merged into this one.
+     */
+    public void merge(final CharHistogram other) {
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            long[] source = other.pages[p];
+            if (source == null) {
+                continue;
+            }
+            long[] target = pages[p];
+            if (target == null) {
+                target = pages[p] = new long[PAGE_SIZE];
+            }
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                target[i] += source[i];
+            }
+        }
+        total += other.total;
+    }
+
+    /**
+     * Method resets all counts to zero. Allocated pages are kept for reuse.
+     */
+    public void clear() {
+        for (long[] page : pages) {
+            if (page != null) {
+                Arrays.fill(page, 0L);
+            }
+        }
+        total = 0;
+    }
+
+    /**
+     * @param c The character to look up.
+     *
+     * @return The number of occurrences of the character.
+     */
+    public long get(final char c) {
+        long[] page = pages[c >>> PAGE_BITS];
+        return page == null ? 0 : page[c & PAGE_MASK];
+    }
+
+    /**
+     * @return The number of all counted characters.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The number of distinct characters with a count other than zero.
+     */
+    public int getDistinct() {
+        int distinct = 0;
+        for (long[] page : pages) {
+            if (page != null) {
+                for (long count : page) {
+                    if (count != 0) {
+                        distinct++;
+                    }
+                }
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * @return The approximate number of bytes allocated by this histogram.
+     */
+    public long getAllocatedBytes() {
+        long bytes = 16L + 8L * PAGE_COUNT;
+        for (long[] page : pages) {
+            if (page != null) {
+                bytes += 16L + 8L * PAGE_SIZE;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Method passes every character with a count other than zero to the given consumer,
+     * in ascending order of the characters.
+     *
+     * @param consumer The consumer receiving character and count.
+     */
+    public void forEach(final CountConsumer consumer) {
+        for (int p = 0; p < PAGE_COUNT; p++) {
+            long[] page = pages[p];
+            if (page == null) {
+                continue;
+            }
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                if (page[i] != 0) {
+                    consumer.accept((char) (p << PAGE_BITS | i), page[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method provides a read-only Map view of this histogram (key->letter, value->frequency).
+     * The view is backed by the histogram, so later counts are visible through it.
+     *
+     * @return Map view of the histogram.
+     */
+    public Map<Character, Integer> asMap() {
+        return new MapView();
+    }
+
+    /**
+     * Method returns the page of a character and allocates it, if needed.
+     */
+    private long[] page(final char c) {
+        int index = c >>> PAGE_BITS;
+        long[] page = pages[index];
+        if (page == null) {
+            page = pages[index] = new long[PAGE_SIZE];
+        }
+        return page;
+    }
+
+    /**
+     * Functional interface for iterating over the counts of a histogram without boxing.
+     */
+    @FunctionalInterface
+    public interface CountConsumer {
+        void accept(char c, long count);
+    }
+
+    /**
+     * Inner class provides the Map view of the histogram.
+     */
+    private class MapView extends AbstractMap<Character, Integer> {
+        @Override
+        public Integer get(Object key) {
+            if (!(key instanceof Character)) {
+                return null;
+            }
+            long count = CharHistogram.this.get((Character) key);
+            return count == 0 ? null : (int) count;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Character && CharHistogram.this.get((Character) key) != 0;
+        }
+
+        @Override
+        public int size() {
+            return getDistinct();
+        }
+
+        @Override
+        public Set<Entry<Character, Integer>> entrySet() {
+            return new AbstractSet<Entry<Character, Integer>>() {
+                @Override
+                public Iterator<Entry<Character, Integer>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return getDistinct();
+                }
+            };
+        }
+    }
+
+    /**
+     * Inner class iterates over all characters with a count other than zero.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<Character, Integer>> {
+        private int next = advance(0);
+
+        private int advance(int from) {
+            for (int c = from; c <= Character.MAX_VALUE; c++) {
+                long[] page = pages[c >>> PAGE_BITS];
+                if (page == null) {
+                    c |= PAGE_MASK;     // skip the whole page
+                } else if (page[c & PAGE_MASK] != 0) {
+                    return c;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public Map.Entry<Character, Integer> next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            char c = (char) next;
+            next = advance(next + 1);
+            return new AbstractMap.SimpleImmutableEntry<>(c, (int) CharHistogram.this.get(c));
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Class provides an immutable text of the Text Analyser Application, which is stored once in compact byte form:
+ * Latin-1 (one byte per char), if all its chars fit, otherwise UTF-8. So a mostly ASCII text with a few
+ * other characters (e.g. typographic quotes) still takes about one byte per char, where a String takes two.
+ *
+ * The bytes are read through zero-copy views (see getBytes()), e.g. shown line by line as PagedDocument,
+ * kept by the ResultCache or written to a file.
+ */
+public final class CompactText {
+
+    private final byte[] bytes;
+    private final int size;             // bytes used of the array
+    private final int length;           // chars
+    private final boolean latin1;       // one byte per char, otherwise UTF-8
+
+
+    /**
+     * Constructor. Takes over the bytes, see Builder.
+     */
+    private CompactText(final byte[] bytes, final int size, final int length, final boolean latin1) {
+        this.bytes = bytes;
+        this.size = size;
+        this.length = length;
+        this.latin1 = latin1;
+    }
+
+    /**
+     * Static method restores a text from its bytes, e.g. from a spill file of the ResultCache.
+     *
+     * @param bytes The bytes, which are taken over.
+     * @param length The number of chars.
+     * @param latin1 True for Latin-1 bytes, false for UTF-8.
+     *
+     * @return The compact text.
+     */
+    static CompactText wrap(final byte[] bytes, final int length, final boolean latin1) {
+        return new CompactText(bytes, bytes.length, length, latin1);
+    }
+
+    /**
+     * @return The charset of the bytes, ISO-8859-1 or UTF-8.
+     */
+    public Charset getCharset() {
+        return latin1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * @return True if the text is stored with one byte per char.
+     */
+    public boolean isLatin1() {
+        return latin1;
+    }
+
+    /**
+     * @return A read-only view of the bytes, without copying them.
+     */
+    public ByteBuffer getBytes() {
+        return ByteBuffer.wrap(bytes, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return The number of bytes of the text.
+     */
+    public int getByteSize() {
+        return size;
+    }
+
+    /**
+     * @return The bytes allocated by the text.
+     */
+    public long getAllocatedBytes() {
+        return 48L + bytes.length;
+    }
+
+    /**
+     * @return The number of chars of the text.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Method writes the text to a file in UTF-8. The bytes of a UTF-8 or ASCII text are written as they are.
+     *
+     * @param file The file.
+     *
+     * @throws IOException If the file can not be written.
+     */
+    public void write(final Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            if (!latin1 || isAscii()) {
+                out.write(bytes, 0, size);
+                return;
+            }
+            // chars beyond ASCII take two bytes in UTF-8
+            byte[] buffer = new byte[1 << 16];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (count + 2 > buffer.length) {
+                    out.write(buffer, 0, count);
+                    count = 0;
+                }
+                int c = bytes[i] & 0xFF;
+                if (c < 0x80) {
+                    buffer[count++] = (byte) c;
+                } else {
+                    buffer[count++] = (byte) (0xC0 | c >>> 6);
+                    buffer[count++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            out.write(buffer, 0, count);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, size, getCharset());
+    }
+
+    private boolean isAscii() {
+        for (int i = 0; i < size; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Inner class for building a compact text from chunks of chars, e.g. of a TextNormalizer.
+     * The text is stored as Latin-1, until a char beyond Latin-1 is appended, then the bytes are converted to UTF-8.
+     * A surrogate pair may be split between two chunks, an unpaired surrogate can't be stored in UTF-8 and is rejected.
+     */
+    public static class Builder {
+        private byte[] bytes;
+        private int size;
+        private int length;
+        private boolean latin1 = true;
+        private char highSurrogate;     // the first char of a pair, whose second char has not been appended yet
+
+        /**
+         * Constructor.
+         *
+         * @param capacity The expected number of chars.
+         */
+        public Builder(final int capacity) {
+            this.bytes = new byte[Math.max(16, capacity)];
+        }
+
+        /**
+         * Method appends the chars of an array.
+         *
+         * @param chars The chars.
+         * @param from Index of the first char (inclusive).
+         * @param to Index of the last char (exclusive).
+         *
+         * @return This builder.
+         *
+         * @throws IllegalArgumentException If a surrogate is unpaired.
+         */
+        public Builder append(final char[] chars, final int from, final int to) throws IllegalArgumentException {
+            int i = from;
+            if (latin1) {
+                ensureCapacity(to - from);
+                for (; i < to && chars[i] <= 0xFF; i++) {
+                    bytes[size++] = (byte) chars[i];
+                }
+                length += i - from;
+                if (i == to) {
+                    return this;
+                }
+                toUtf8();
+            }
+            for (; i < to; i++) {
+                appendUtf8(chars[i]);
+            }
+            return this;
+        }
+
+        /**
+         * @return The compact text, the builder must not be used anymore.
+         *
+         * @throws IllegalArgumentException If the text ends with an unpaired surrogate.
+         */
+        public CompactText build() throws IllegalArgumentException {
+            if (highSurrogate != 0) {
+                throw unpairedSurrogate();
+            }
+            // a large unused capacity (e.g. of removed whitespace) is released
+            byte[] result = size < bytes.length - (bytes.length >>> 4) ? Arrays.copyOf(bytes, size) : bytes;
+            return new CompactText(result, size, length, latin1);
+        }
+
+        private void appendUtf8(final char c) {
+            ensureCapacity(4);
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    bytes[size++] = (byte) (0xF0 | codePoint >>> 18);
+                    bytes[size++] = (byte) (0x80 | codePoint >>> 12 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | codePoint >>> 6 & 0x3F);
+                    bytes[size++] = (byte) (0x80 | codePoint & 0x3F);
+                    length += 2;
+                    return;
+                }
+                throw unpairedSurrogate();
+            }
+            if (c < 0x80) {
+                bytes[size++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[size++] = (byte) (0xC0 | c >>> 6);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+                return;
+            } else if (Character.isLowSurrogate(c)) {
+                throw unpairedSurrogate();
+            } else {
+                bytes[size++] = (byte) (0xE0 | c >>> 12);
+                bytes[size++] = (byte) (0x80 | c >>> 6 & 0x3F);
+                bytes[size++] = (byte) (0x80 | c & 0x3F);
+            }
+            length++;
+        }
+
+        private IllegalArgumentException unpairedSurrogate() {
+            return new IllegalArgumentException("Non valid text, it contains an unpaired surrogate at char " + length);
+        }
+
+        /**
+         * Method converts the Latin-1 bytes so far to UTF-8, chars beyond ASCII take two bytes.
+         */
+        private void toUtf8() {
+            int extra = 0;
+            for (int i = 0; i < size; i++) {
+                extra += bytes[i] >>> 31;
+            }
+            byte[] utf8 = new byte[Math.max(bytes.length, size + extra) + extra];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                int c = bytes[i] & 0xFF;
+                if (c < 0x80) {
+                    utf8[count++] = (byte) c;
+                } else {
+                    utf8[count++] = (byte) (0xC0 | c >>> 6);
+                    utf8[count++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            bytes = utf8;
+            size = count;
+            latin1 = false;
+        }
+
+        private void ensureCapacity(final int count) {
+            if (size + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + count, bytes.length + (bytes.length >>> 1)));
+            }
+        }
+    }
+}
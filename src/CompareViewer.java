@@ -0,0 +1,191 @@
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Text;
+
+import java.util.AbstractList;
+
+/**
+ * Class provides a side-by-side viewer of a TextComparison for the Text Analyser Application.
+ * Like DocumentViewer, the ListView only creates cells for the visible rows: the lines of a row are read
+ * and their changed characters are found, when its cell is shown. So neither the texts nor the rows
+ * are held in the heap or in the scene graph, even when large documents are compared.
+ */
+public class CompareViewer extends ListView<Integer> {
+
+    private static final int MAX_SHOWN_CHARS = 400;     // chars of a line rendered, the cell shows less anyway
+    private static final Color CHANGED_COLOR = Color.CRIMSON;
+    private static final Color NUMBER_COLOR = Color.GRAY;
+    private static final String CHANGED_ROW_STYLE = "-fx-background-color: #FFF3D9;";
+
+    private final RowList rows = new RowList();
+    private TextComparison comparison;
+
+
+    /**
+     * Constructor. Creates an empty viewer.
+     */
+    public CompareViewer() {
+        setItems(rows);
+        // a fixed height spares measuring the cells of all rows
+        setFixedCellSize(18);
+        setStyle("-fx-font-family: monospace;");
+        setCellFactory((ListView<Integer> view) -> new RowCell());
+    }
+
+    /**
+     * Method shows the rows of a comparison.
+     *
+     * @param comparison The finished comparison, or null to show nothing.
+     */
+    public void setComparison(final TextComparison comparison) {
+        this.comparison = comparison;
+        rows.update(comparison == null ? 0 : comparison.getRowCount());
+        scrollTo(0);
+    }
+
+    /**
+     * @return The shown comparison, or null.
+     */
+    public TextComparison getComparison() {
+        return comparison;
+    }
+
+    /**
+     * Inner class for a row, which shows the lines of both texts side by side with their changed characters.
+     * Each side is clipped, so long lines don't overlap the other side.
+     */
+    private class RowCell extends ListCell<Integer> {
+        private final HBox leftBox = createSide();
+        private final HBox rightBox = createSide();
+        private final HBox rowBox = new HBox(10, leftBox, rightBox);
+
+        @Override
+        protected void updateItem(final Integer row, final boolean empty) {
+            super.updateItem(row, empty);
+            setText(null);
+            if (empty || row == null || comparison == null) {
+                setGraphic(null);
+                setStyle("");
+                return;
+            }
+            String left = comparison.getLeft(row);
+            String right = comparison.getRight(row);
+            fillSide(leftBox, comparison.getLeftLine(row), left, right);
+            fillSide(rightBox, comparison.getRightLine(row), right, left);
+            setStyle(left == null || !left.equals(right) ? CHANGED_ROW_STYLE : "");
+            setGraphic(rowBox);
+        }
+
+        /**
+         * Method creates the box of one side, half as wide as the viewer.
+         */
+        private HBox createSide() {
+            HBox box = new HBox();
+            box.setMinWidth(0);
+            box.prefWidthProperty().bind(CompareViewer.this.widthProperty().subtract(40).divide(2));
+            box.maxWidthProperty().bind(box.prefWidthProperty());
+            Rectangle clip = new Rectangle();
+            clip.widthProperty().bind(box.widthProperty());
+            clip.heightProperty().bind(box.heightProperty());
+            box.setClip(clip);
+            return box;
+        }
+
+        /**
+         * Method fills one side with the line number and the line, its changed characters are highlighted.
+         *
+         * @param box The box of the side.
+         * @param index The index of the line, or -1.
+         * @param line The line, or null if the side has no line in this row.
+         * @param other The line of the other side, or null.
+         */
+        private void fillSide(final HBox box, final int index, final String line, final String other) {
+            box.getChildren().clear();
+            if (line == null) {
+                return;
+            }
+            Text number = new Text(String.format("%7d  ", index + 1));
+            number.setFill(NUMBER_COLOR);
+            box.getChildren().add(number);
+
+            int shown = Math.min(line.length(), MAX_SHOWN_CHARS);
+            int[] ranges = TextComparison.changedRanges(line, other);
+            int position = 0;
+            for (int i = 0; i < ranges.length && position < shown; i += 2) {
+                int start = Math.min(ranges[i], shown);
+                int end = Math.min(ranges[i + 1], shown);
+                if (start > position) {
+                    box.getChildren().add(new Text(line.substring(position, start)));
+                }
+                Text changed = new Text(line.substring(start, end));
+                changed.setFill(CHANGED_COLOR);
+                changed.setUnderline(true);
+                box.getChildren().add(changed);
+                position = end;
+            }
+            if (position < shown) {
+                box.getChildren().add(new Text(line.substring(position, shown)));
+            }
+        }
+    }
+
+    /**
+     * Inner class for the rows of the comparison as list items, the items are the indices of the rows.
+     */
+    private class RowList extends ObservableListBase<Integer> {
+        private int size;
+
+        /**
+         * Method replaces all rows.
+         */
+        void update(final int newSize) {
+            beginChange();
+            if (size > 0) {
+                nextRemove(0, new RemovedRows(size));
+            }
+            if (newSize > 0) {
+                nextAdd(0, newSize);
+            }
+            size = newSize;
+            endChange();
+        }
+
+        @Override
+        public Integer get(final int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+            }
+            return index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Inner class for the removed rows of a change.
+         */
+        private class RemovedRows extends AbstractList<Integer> {
+            private final int count;
+
+            RemovedRows(final int count) {
+                this.count = count;
+            }
+
+            @Override
+            public Integer get(final int index) {
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Provides cryptanalytic functions, like breaking the shift cipher and the polyalphabetic cipher,
+ * for the Text Analyser Application.
+ */
+public class Cryptanalysis {
+
+    private static final int MAX_KASISKI_DISTANCE = 1 << 14;   // larger distances of repeated trigrams are ignored
+    private static final double KEY_LENGTH_TOLERANCE = 0.9;    // key lengths within 90% of the best IoC are considered
+
+    private static final Metrics.Stage POLYALPHABETIC_METRICS = Metrics.stage("crackPolyalphabetic", "chars");
+
+    /**
+     * Relative frequencies of the letters A to Z in English texts.
+     */
+    public static final double[] ENGLISH_LETTER_FREQUENCIES = {
+            0.08167, 0.01492, 0.02782, 0.04253, 0.12702, 0.02228, 0.02015, 0.06094, 0.06966,
+            0.00153, 0.00772, 0.04025, 0.02406, 0.06749, 0.07507, 0.01929, 0.00095, 0.05987,
+            0.06327, 0.09056, 0.02758, 0.00978, 0.02360, 0.00150, 0.01974, 0.00074
+    };
+
+
+    /**
+     * Static method sums up the frequencies of the latin letters of a histogram, ignoring the case.
+     *
+     * @param histogram The result of a frequency-analysis.
+     *
+     * @return Frequency of each letter A to Z.
+     */
+    public static long[] letterCounts(final CharHistogram histogram) {
+        long[] counts = new long[26];
+        for (int i = 0; i < 26; i++) {
+            counts[i] = histogram.get((char) ('A' + i)) + histogram.get((char) ('a' + i));
+        }
+        return counts;
+    }
+
+    /**
+     * Static method calculates the chi-squared statistic between the letter counts of a cipher text,
+     * decrypted with a shift, and a reference language profile. The counts are only rotated, not decrypted.
+     * The lower the result, the better the decryption fits the language.
+     *
+     * @param counts Frequency of each letter A to Z in the cipher text.
+     * @param profile Relative frequency of each letter A to Z in the language.
+     * @param shift The shift used for the encryption.
+     *
+     * @return The chi-squared statistic.
+     */
+    public static double chiSquared(final long[] counts, final double[] profile, final int shift) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double chiSquared = 0;
+        for (int i = 0; i < 26; i++) {
+            double expected = total * profile[i];
+            double difference = counts[(i + shift) % 26] - expected;   // plane letter i was encrypted to i + shift
+            chiSquared += difference * difference / expected;
+        }
+        return chiSquared;
+    }
+
+    /**
+     * Static method breaks a shift cipher (caesar's cipher) by scoring all 26 shifts
+     * against a reference language profile. Only the histogram of the cipher text is needed,
+     * so the costs don't depend on the length of the text.
+     *
+     * @param histogram The result of the frequency-analysis of the cipher text.
+     * @param profile Relative frequency of each letter A to Z in the language of the plane text.
+     *
+     * @return All shifts, ranked from the most to the least probable.
+     */
+    public static List<ShiftCandidate> crackShiftCipher(final CharHistogram histogram, final double[] profile) {
+        return crackShiftCipher(letterCounts(histogram), profile);
+    }
+
+    /**
+     * Static method breaks a shift cipher (caesar's cipher). See crackShiftCipher(CharHistogram, double[]).
+     *
+     * @param counts Frequency of each letter A to Z in the cipher text.
+     * @param profile Relative frequency of each letter A to Z in the language of the plane text.
+     *
+     * @return All shifts, ranked from the most to the least probable.
+     */
+    public static List<ShiftCandidate> crackShiftCipher(final long[] counts, final double[] profile) {
+        List<ShiftCandidate> candidates = new ArrayList<>(26);
+        for (int shift = 0; shift < 26; shift++) {
+            candidates.add(new ShiftCandidate(shift, chiSquared(counts, profile, shift)));
+        }
+        Collections.sort(candidates);
+        return candidates;
+    }
+
+    /**
+     * Static method breaks a polyalphabetic substitution cipher (Vigenère cipher).
+     * The key length is estimated by the index of coincidence (IoC) of the columns of each candidate length,
+     * which are evaluated in parallel, and the distances of repeated trigrams (Kasiski examination).
+     * Each column of a key length is a shift cipher and is solved with its letter counts,
+     * which are gathered in one pass over the letters for each length.
+     *
+     * @param text The cipher text.
+     * @param profile Relative frequency of each letter A to Z in the language of the plane text.
+     * @param maxKeyLength The longest key length to be examined.
+     *
+     * @return The keywords of the probable key lengths, ranked from the most to the least probable.
+     */
+    public static List<KeywordCandidate> crackPolyalphabeticCipher(final CharSequence text, final double[] profile,
+                                                                   final int maxKeyLength) {
+        Metrics.Timer timer = POLYALPHABETIC_METRICS.start();
+        // only latin letters are encrypted, so only they are examined (as 0 - 25)
+        byte[] letters = new byte[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                letters[length++] = (byte) (c - 'A');
+            } else if (c >= 'a' && c <= 'z') {
+                letters[length++] = (byte) (c - 'a');
+            }
+        }
+        final int letterCount = length;
+        final int maxLength = Math.max(1, Math.min(maxKeyLength, letterCount / 2));
+        final long[] kasiski = kasiskiExamination(letters, letterCount, maxLength);
+
+        List<KeywordCandidate> candidates = IntStream.rangeClosed(1, maxLength)
+                .parallel()
+                .mapToObj(keyLength -> solveKeyLength(letters, letterCount, keyLength, profile, kasiski[keyLength]))
+                .collect(Collectors.toList());
+
+        // multiples of the key length have a similar IoC, so prefer the length best supported by repeated trigrams
+        // (every distance divisible by a multiple is divisible by the key length, too) and then the shortest
+        double bestIoC = candidates.stream().mapToDouble(KeywordCandidate::getIndexOfCoincidence).max().orElse(0);
+        final double threshold = bestIoC * KEY_LENGTH_TOLERANCE;
+        candidates.sort(Comparator
+                .comparing((KeywordCandidate candidate) -> candidate.getIndexOfCoincidence() < threshold)
+                .thenComparing(Comparator.comparingLong(KeywordCandidate::getKasiskiCount).reversed())
+                .thenComparingInt(candidate -> candidate.getKeyword().length()));
+
+        // a keyword repeating a shorter keyword (e.g. LEMONLEMON) is the same key, keep its first occurrence only
+        Map<String, KeywordCandidate> distinct = new LinkedHashMap<>();
+        for (KeywordCandidate candidate : candidates) {
+            String keyword = primitiveRoot(candidate.getKeyword());
+            distinct.putIfAbsent(keyword, new KeywordCandidate(keyword,
+                    candidate.getIndexOfCoincidence(), candidate.getKasiskiCount()));
+        }
+        timer.stop(text.length());
+        return new ArrayList<>(distinct.values());
+    }
+
+    /**
+     * Static method finds the shortest word, which the given word is a repetition of.
+     */
+    private static String primitiveRoot(final String word) {
+        for (int period = 1; period < word.length(); period++) {
+            if (word.length() % period == 0
+                    && word.regionMatches(period, word, 0, word.length() - period)) {
+                return word.substring(0, period);
+            }
+        }
+        return word;
+    }
+
+    /**
+     * Static method counts for each key length, how many distances of repeated trigrams are divisible by it.
+     */
+    private static long[] kasiskiExamination(final byte[] letters, final int length, final int maxKeyLength) {
+        int[] lastPosition = new int[26 * 26 * 26];
+        Arrays.fill(lastPosition, -1);
+        long[] distances = new long[MAX_KASISKI_DISTANCE];
+        for (int i = 0; i + 2 < length; i++) {
+            int trigram = (letters[i] * 26 + letters[i + 1]) * 26 + letters[i + 2];
+            int distance = i - lastPosition[trigram];
+            if (lastPosition[trigram] >= 0 && distance < MAX_KASISKI_DISTANCE) {
+                distances[distance]++;
+            }
+            lastPosition[trigram] = i;
+        }
+        long[] counts = new long[maxKeyLength + 1];
+        for (int keyLength = 1; keyLength <= maxKeyLength; keyLength++) {
+            for (int distance = keyLength; distance < MAX_KASISKI_DISTANCE; distance += keyLength) {
+                counts[keyLength] += distances[distance];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Static method gathers the letter counts of each column for a key length in one pass,
+     * calculates their average index of coincidence and solves each column as shift cipher.
+     */
+    private static KeywordCandidate solveKeyLength(final byte[] letters, final int length, final int keyLength,
+                                                   final double[] profile, final long kasiskiCount) {
+        long[][] columns = new long[keyLength][26];
+        int column = 0;
+        for (int i = 0; i < length; i++) {
+            columns[column][letters[i]]++;
+            if (++column == keyLength) {
+                column = 0;
+            }
+        }
+        double indexOfCoincidence = 0;
+        StringBuilder keyword = new StringBuilder(keyLength);
+        for (long[] counts : columns) {
+            long total = 0;
+            long coincidences = 0;
+            for (long count : counts) {
+                total += count;
+                coincidences += count * (count - 1);
+            }
+            indexOfCoincidence += total > 1 ? (double) coincidences / (total * (total - 1)) : 0;
+            keyword.append((char) ('A' + crackShiftCipher(counts, profile).get(0).getShift()));
+        }
+        return new KeywordCandidate(keyword.toString(), indexOfCoincidence / keyLength, kasiskiCount);
+    }
+
+    /**
+     * Class represents a possible key of a shift cipher with its chi-squared score.
+     */
+    public static class ShiftCandidate implements Comparable<ShiftCandidate> {
+        private final int shift;
+        private final double chiSquared;
+
+        public ShiftCandidate(int shift, double chiSquared) {
+            this.shift = shift;
+            this.chiSquared = chiSquared;
+        }
+
+        public int getShift() {
+            return shift;
+        }
+
+        public double getChiSquared() {
+            return chiSquared;
+        }
+
+        @Override
+        public int compareTo(ShiftCandidate other) {
+            return Double.compare(chiSquared, other.chiSquared);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("A -> %c  (χ² %.1f)", (char) ('A' + shift), chiSquared);
+        }
+    }
+
+    /**
+     * Class represents a possible keyword of a polyalphabetic cipher with the statistics of its length.
+     */
+    public static class KeywordCandidate {
+        private final String keyword;
+        private final double indexOfCoincidence;
+        private final long kasiskiCount;
+
+        public KeywordCandidate(String keyword, double indexOfCoincidence, long kasiskiCount) {
+            this.keyword = keyword;
+            this.indexOfCoincidence = indexOfCoincidence;
+            this.kasiskiCount = kasiskiCount;
+        }
+
+        public String getKeyword() {
+            return keyword;
+        }
+
+        public double getIndexOfCoincidence() {
+            return indexOfCoincidence;
+        }
+
+        public long getKasiskiCount() {
+            return kasiskiCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s  (IoC %.3f)", keyword, indexOfCoincidence);
+        }
+    }
+}
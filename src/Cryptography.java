@@ -1,5 +1,6 @@
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Provides cryptographically functions, like frequency-analysis and shift cipher
@@ -7,6 +8,11 @@ import java.util.Map;
  */
 public class Cryptography {
 
+    private static final int PARALLEL_THRESHOLD = 1 << 20;     // texts below 1M chars are analysed sequentially
+    private static final int MIN_RANGE_SIZE = 1 << 16;         // smallest range counted by a single fork/join task
+
+    static final Metrics.Stage FREQUENCY_METRICS = Metrics.stage("frequencyAnalysis", "chars");
+    static final Metrics.Stage NGRAM_METRICS = Metrics.stage("ngramAnalysis", "chars");
 
     /**
      * Static method for frequency-analysis of an given text.
@@ -14,26 +20,171 @@ public class Cryptography {
      *
      * @param text String to be analysed
      *
-     * @return HashMap<Character, Integer> (key->letter, value->frequency)
+     * @return Map<Character, Integer> (key->letter, value->frequency), a read-only view of the CharHistogram
      */
     public static Map<Character, Integer> frequencyAnalysis(final String text) {
-        Map<Character, Integer> result = new HashMap<>();
-        char[] charArray = text.toCharArray();
-        for (char c : charArray) {
-            if (result.containsKey(c)) {
-                int frequency = result.get(c);
-                result.replace(c, ++frequency);
-            } else {
-                result.put(c, 1);
-            }
+        return frequencyHistogram(text).asMap();
+    }
+
+    /**
+     * Static method for frequency-analysis of an given text.
+     * Counts directly into a primitive histogram, without boxing or copying the text.
+     *
+     * @param text Text to be analysed
+     *
+     * @return CharHistogram containing the frequency of each character.
+     */
+    public static CharHistogram frequencyHistogram(final CharSequence text) {
+        CharHistogram result = new CharHistogram();
+        result.addAll(text);
+        return result;
+    }
+
+    /**
+     * Static method for parallel frequency-analysis of an given text.
+     * The text is split into ranges, which are counted into local histograms on the common ForkJoinPool
+     * and merged afterwards. Texts shorter than the parallel threshold are analysed sequentially.
+     *
+     * @param text Text to be analysed
+     *
+     * @return CharHistogram containing the frequency of each character.
+     */
+    public static CharHistogram parallelFrequencyHistogram(final CharSequence text) {
+        return parallelFrequencyHistogram(text, 0, text.length());
+    }
+
+    /**
+     * Static method for parallel frequency-analysis of a range of an given text.
+     * See parallelFrequencyHistogram(CharSequence).
+     *
+     * @param text Text to be analysed
+     * @param from Index of the first character (inclusive).
+     * @param to Index of the last character (exclusive).
+     *
+     * @return CharHistogram containing the frequency of each character in the range.
+     */
+    public static CharHistogram parallelFrequencyHistogram(final CharSequence text, final int from, final int to) {
+        Metrics.Timer timer = FREQUENCY_METRICS.start();
+        CharHistogram result;
+        if (to - from < PARALLEL_THRESHOLD) {
+            result = new CharHistogram();
+            result.addAll(text, from, to);
+        } else {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            int rangeSize = Math.max(MIN_RANGE_SIZE, (to - from) / (pool.getParallelism() * 4));
+            result = pool.invoke(new HistogramTask(text, from, to, rangeSize));
         }
+        timer.stop(to - from);
         return result;
     }
 
     /**
-     * Static method for shift cipher (caesar's cipher) decryption of a given plane text.
-     * The method works by adding an (cyclic) offset to the ascii code point. Non alphabetic characters
-     * and non latin alphabet characters will be ignored.
+     * Static method for parallel n-gram frequency-analysis of a range of an given text.
+     * Like parallelFrequencyHistogram(), the range is split into sub ranges, which are counted on the common
+     * ForkJoinPool and merged afterwards. Each sub range counts the n-grams starting in it.
+     *
+     * @param text Text to be analysed
+     * @param from Index of the first character (inclusive).
+     * @param to Index of the last character (exclusive), n-grams starting in the range may end behind it.
+     * @param n The length of the n-grams.
+     * @param lettersOnly True to count only latin letters (ignoring the case), false to count all characters.
+     *
+     * @return NGramHistogram containing the frequency of each n-gram starting in the range.
+     */
+    public static NGramHistogram parallelNGramHistogram(final CharSequence text, final int from, final int to,
+                                                        final int n, final boolean lettersOnly) {
+        Metrics.Timer timer = NGRAM_METRICS.start();
+        NGramHistogram result;
+        if (to - from < PARALLEL_THRESHOLD) {
+            result = new NGramHistogram(n, lettersOnly);
+            result.addAll(text, from, to, text.length());
+        } else {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            int rangeSize = Math.max(MIN_RANGE_SIZE, (to - from) / (pool.getParallelism() * 4));
+            result = pool.invoke(new NGramTask(text, from, to, rangeSize, n, lettersOnly));
+        }
+        timer.stop(to - from);
+        return result;
+    }
+
+    /**
+     * Inner class for counting a range of a text on a ForkJoinPool.
+     * Ranges larger than the range size are split in halves, each half is counted into its own histogram.
+     */
+    private static class HistogramTask extends RecursiveTask<CharHistogram> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final int from;
+        private final int to;
+        private final int rangeSize;
+
+        HistogramTask(final CharSequence text, final int from, final int to, final int rangeSize) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected CharHistogram compute() {
+            if (to - from <= rangeSize) {
+                CharHistogram histogram = new CharHistogram();
+                histogram.addAll(text, from, to);
+                return histogram;
+            }
+            int middle = (from + to) >>> 1;
+            HistogramTask left = new HistogramTask(text, from, middle, rangeSize);
+            left.fork();
+            CharHistogram result = new HistogramTask(text, middle, to, rangeSize).compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    /**
+     * Inner class for counting the n-grams of a range of a text on a ForkJoinPool. See HistogramTask.
+     */
+    private static class NGramTask extends RecursiveTask<NGramHistogram> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final int from;
+        private final int to;
+        private final int rangeSize;
+        private final int n;
+        private final boolean lettersOnly;
+
+        NGramTask(final CharSequence text, final int from, final int to, final int rangeSize,
+                  final int n, final boolean lettersOnly) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+            this.n = n;
+            this.lettersOnly = lettersOnly;
+        }
+
+        @Override
+        protected NGramHistogram compute() {
+            if (to - from <= rangeSize) {
+                NGramHistogram histogram = new NGramHistogram(n, lettersOnly);
+                histogram.addAll(text, from, to, text.length());
+                return histogram;
+            }
+            int middle = (from + to) >>> 1;
+            NGramTask left = new NGramTask(text, from, middle, rangeSize, n, lettersOnly);
+            left.fork();
+            NGramHistogram result = new NGramTask(text, middle, to, rangeSize, n, lettersOnly).compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    /**
+     * Static method for shift cipher (caesar's cipher) encryption of a given plane text.
+     * The method works by translating each letter with a precomputed table for the shift (see StreamCipher).
+     * Non alphabetic characters and non latin alphabet characters will be ignored.
      *
      * @param shift The amount, each letter will be shifted to the right in the alphabet.
      *              e.g. shift 3 will replace A -> D
@@ -41,30 +192,18 @@ public class Cryptography {
      * @return The encrypted cipher text.
      */
     public static String shiftCipher(final int shift, final String planeText) {
-        StringBuilder cipherText = new StringBuilder();
-        planeText.chars()
-                .map(i -> {
-                    if (i >= 65 && i <= 90) { // A to Z
-                        i += shift;
-                        if (i > 90) {
-                            return i % 91 + 65;  // cyclic shift
-                        } else {
-                            return i;
-                        }
-                    } else if (i >= 97 && i <= 122) { // a to z
-                        i += shift;
-                        if (i > 122) {
-                            return i % 123 + 97;  // cyclic shift
-                        } else {
-                            return i;
-                        }
-                    } else {
-                        return i;
-                    }
-                })
-                .forEach(cipherText::appendCodePoint);
-
-        return cipherText.toString();
+        return transform(StreamCipher.shift(shift), planeText);
+    }
+
+    /**
+     * Static method for shift cipher (caesar's cipher) decryption of a given cipher text.
+     *
+     * @param shift The amount, each letter has been shifted to the right in the alphabet.
+     * @param cipherText The text which will be decrypted.
+     * @return The decrypted plane text.
+     */
+    public static String shiftDecipher(final int shift, final String cipherText) {
+        return transform(StreamCipher.shift(shift).inverse(), cipherText);
     }
 
     /**
@@ -78,41 +217,53 @@ public class Cryptography {
      * @return The encrypted cipher text.
      */
     public static String polyalphabeticCipher(final String keyword, final String planeText) throws IllegalArgumentException {
-        if (keyword == null || keyword.length() == 0) {
-            throw new IllegalArgumentException("Non valid keyword");
-        }
-        // calculate offset of each keyword letter to ASCII code point A (65)
-        int[]offsets = new int[keyword.length()];
-        for(int i = 0; i < keyword.length(); i++) {
-            offsets[i] = keyword.codePointAt(i) - 65;
-        }
+        return transform(StreamCipher.polyalphabetic(keyword), planeText);
+    }
 
-        StringBuilder cipherText = new StringBuilder();
-        int i = 0;  // planeText index
-        int j = 0;  // offsets index
-        while (i < planeText.length()) {
-            int codePoint = planeText.codePointAt(i);
-
-            if (codePoint >= 65 && codePoint <= 90) { // A to Z
-                codePoint += offsets[j];
-                if (codePoint > 90) {
-                    codePoint = codePoint % 91 + 65;  // cyclic shift
-                }
-                j++;
-            } else if (codePoint >= 97 && codePoint <= 122) { // a to z
-                codePoint += offsets[j];
-                if (codePoint > 122) {
-                    codePoint = codePoint % 123 + 97;  // cyclic shift
-                }
-                j++;
-            }
-            cipherText.appendCodePoint(codePoint);
-            i++;
-            if (j >= offsets.length) {
-                j = 0;
-            }
-        }
-        return cipherText.toString();
+    /**
+     * Static method for polyalphabetic substitution cipher (Vigenère cipher) decryption of
+     * a given cipher text.
+     *
+     * @param keyword The keyword used for the encryption. Has to be uppercase and it is only allowed
+     *                to contain letters of the latin alphabet (ASCII A - Z).
+     * @param cipherText The text which will be decrypted.
+     * @return The decrypted plane text.
+     */
+    public static String polyalphabeticDecipher(final String keyword, final String cipherText) throws IllegalArgumentException {
+        return transform(StreamCipher.polyalphabetic(keyword).inverse(), cipherText);
+    }
+
+    /**
+     * Static method for monoalphabetic substitution cipher encryption of a given plane text.
+     * Non alphabetic characters and non latin alphabet characters in the plane text will be ignored.
+     *
+     * @param alphabet The cipher alphabet, a permutation of the uppercase letters of the latin alphabet
+     *                 (ASCII A - Z). The letters A - Z are replaced by the letters of the alphabet in turn.
+     * @param planeText The text which will be encrypted.
+     * @return The encrypted cipher text.
+     */
+    public static String substitutionCipher(final String alphabet, final String planeText) throws IllegalArgumentException {
+        return transform(StreamCipher.substitution(alphabet), planeText);
+    }
+
+    /**
+     * Static method for monoalphabetic substitution cipher decryption of a given cipher text.
+     *
+     * @param alphabet The cipher alphabet used for the encryption, see substitutionCipher().
+     * @param cipherText The text which will be decrypted.
+     * @return The decrypted plane text.
+     */
+    public static String substitutionDecipher(final String alphabet, final String cipherText) throws IllegalArgumentException {
+        return transform(StreamCipher.substitution(alphabet).inverse(), cipherText);
+    }
+
+    /**
+     * Static method applies a cipher kernel to a copy of the text.
+     */
+    private static String transform(final StreamCipher cipher, final String text) {
+        char[] chars = text.toCharArray();
+        cipher.encrypt(chars, 0, chars.length);
+        return new String(chars);
     }
 
     /**
@@ -125,7 +276,9 @@ public class Cryptography {
                 "Shift Cipher:\n" +
                         "(Also known as Caesar's cipher) The shift cipher is one of the simplest and most widely known encryption techniques. It is a type of substitution cipher in which each letter in the plaintext is replaced by a letter some fixed number of positions down the alphabet.\n\n" +
                 "Polialphabetic Cipher:\n" +
-                        "(Also known as Vigenère cipher) A method of encrypting alphabetic text by using a series of interwoven Caesar ciphers, based on the letters of a keyword. It is a form of polyalphabetic substitution.";
+                        "(Also known as Vigenère cipher) A method of encrypting alphabetic text by using a series of interwoven Caesar ciphers, based on the letters of a keyword. It is a form of polyalphabetic substitution.\n\n" +
+                "Substitution Cipher:\n" +
+                        "(Monoalphabetic substitution) Each letter is replaced by the letter at its position in a cipher alphabet, which is any permutation of the 26 letters, e.g. QWERTYUIOPASDFGHJKLZXCVBNM replaces A by Q and B by W. It is broken by hill climbing on the quadgram statistics of the language.";
 
         return info;
     }
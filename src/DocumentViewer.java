@@ -0,0 +1,149 @@
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableListBase;
+import javafx.concurrent.Task;
+import javafx.scene.control.ListView;
+
+import java.util.AbstractList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class provides a read-only viewer of a PagedDocument for the Text Analyser Application.
+ * The ListView only creates cells for the visible lines, and each line is decoded from the document
+ * when its cell is shown. So neither the text nor all its lines are held in the heap.
+ * The line index of the document is built in the background, the lines already indexed can be scrolled meanwhile.
+ */
+public class DocumentViewer extends ListView<String> {
+
+    private static final long INDEX_STEP = 1 << 24;     // bytes indexed between the updates of the line count
+
+    // one indexing thread for all viewers, the analysis executor of the controller stays free
+    private static final ThreadPoolExecutor INDEXER = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), (Runnable runnable) -> {
+                Thread thread = new Thread(runnable, "TextAnalyser-Indexer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static {
+        Metrics.registerGauge("indexer.queueDepth", () -> INDEXER.getQueue().size());
+    }
+
+    private final LineList lines = new LineList();
+    private PagedDocument document;
+    private Task<Integer> indexTask;
+
+
+    /**
+     * Constructor. Creates an empty viewer.
+     */
+    public DocumentViewer() {
+        setItems(lines);
+        // a fixed height spares measuring the cells of all lines
+        setFixedCellSize(18);
+        setStyle("-fx-font-family: monospace;");
+    }
+
+    /**
+     * Method shows a document and starts indexing its lines in the background.
+     * The previously shown document is not closed.
+     *
+     * @param document The document, or null to show nothing.
+     */
+    public void setDocument(final PagedDocument document) {
+        if (indexTask != null) {
+            indexTask.cancel();
+        }
+        this.document = document;
+        lines.update(0);
+        scrollTo(0);
+        if (document == null) {
+            return;
+        }
+
+        indexTask = new Task<Integer>() {
+            @Override
+            protected Integer call() {
+                boolean indexed = document.isIndexed();
+                while (!indexed && !isCancelled()) {
+                    indexed = document.indexLines(INDEX_STEP);
+                    updateValue(document.getLineCount());
+                    updateProgress(document.getIndexedBytes(), document.getSize());
+                }
+                return document.getLineCount();
+            }
+        };
+        // the values are coalesced, the list grows at most once per pulse
+        final Task<Integer> task = indexTask;
+        task.valueProperty().addListener((ObservableValue<? extends Integer> ov, Integer oldVal, Integer newVal) -> {
+            if (newVal != null && this.document == document && task == indexTask) {
+                lines.update(newVal);
+            }
+        });
+        lines.update(document.getLineCount());
+        INDEXER.submit(task);
+    }
+
+    /**
+     * @return The shown document, or null.
+     */
+    public PagedDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * Inner class for the lines of the document as list items, which are decoded on access.
+     */
+    private class LineList extends ObservableListBase<String> {
+        private int size;
+
+        /**
+         * Method announces the lines indexed since the last update, or removes all lines.
+         */
+        void update(final int newSize) {
+            if (newSize == size) {
+                return;
+            }
+            beginChange();
+            if (newSize > size) {
+                nextAdd(size, newSize);
+            } else {
+                nextRemove(0, new RemovedLines(size));
+            }
+            size = newSize;
+            endChange();
+        }
+
+        @Override
+        public String get(final int index) {
+            return document.getLine(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Inner class for the removed lines of a change, they are not decoded again.
+         */
+        private class RemovedLines extends AbstractList<String> {
+            private final int count;
+
+            RemovedLines(final int count) {
+                this.count = count;
+            }
+
+            @Override
+            public String get(final int index) {
+                return "";
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        }
+    }
+}
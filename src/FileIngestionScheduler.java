@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class schedules the processing of many files for the Text Analyser Application in two stages.
+ * Probing and reading the files is I/O-bound and runs on virtual threads, if the JDK provides them
+ * (Java 21 or newer), otherwise on a pool of platform threads. The CPU-bound processing of the content
+ * runs on a bounded pool of platform threads with a bounded queue.
+ *
+ * There is backpressure between the stages: a file is only read when its size fits into the cap
+ * of in-flight bytes, and the bytes stay reserved until its result has been processed and consumed.
+ * A reading thread also waits while the queue of the processing pool is full.
+ * So the disk is kept busy by many concurrent reads, while the used heap stays bounded.
+ */
+public class FileIngestionScheduler implements AutoCloseable {
+
+    private static final int FALLBACK_IO_THREADS = 32;     // reading threads, if there are no virtual threads
+    private static final int QUEUE_SLOTS_PER_WORKER = 2;    // waiting contents per processing thread
+
+    private final ExecutorService ioExecutor;
+    private final ThreadPoolExecutor cpuExecutor;
+    private final boolean virtualThreads;
+    private final long maxInFlightBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();     // no monitor, it would pin virtual threads
+    private final Condition bytesReleased = lock.newCondition();
+    private long inFlightBytes;
+
+
+    /**
+     * Constructor.
+     *
+     * @param cpuWorkers Number of threads processing the contents.
+     * @param maxInFlightBytes Cap of the bytes read, but not yet processed and consumed.
+     *                         Larger files are not read, see submit().
+     */
+    public FileIngestionScheduler(final int cpuWorkers, final long maxInFlightBytes) {
+        if (cpuWorkers < 1 || maxInFlightBytes < 1) {
+            throw new IllegalArgumentException("Workers and in-flight bytes have to be at least 1");
+        }
+        this.maxInFlightBytes = maxInFlightBytes;
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+        this.virtualThreads = virtualExecutor != null;
+        this.ioExecutor = virtualThreads ? virtualExecutor
+                : Executors.newFixedThreadPool(FALLBACK_IO_THREADS, daemonThreads("TextAnalyser-IO-"));
+        // a full queue blocks the submitting reader, instead of rejecting the content
+        this.cpuExecutor = new ThreadPoolExecutor(cpuWorkers, cpuWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cpuWorkers * QUEUE_SLOTS_PER_WORKER), daemonThreads("TextAnalyser-CPU-"),
+                (Runnable runnable, ThreadPoolExecutor executor) -> {
+                    try {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Scheduler is closed");
+                        }
+                        executor.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(e);
+                    }
+                });
+    }
+
+    /**
+     * Method schedules a file. On an I/O thread the file is probed and read, the content is processed
+     * on a CPU thread and the result is passed to the consumer on the I/O thread again (e.g. for writing it).
+     * Files without text are skipped, their future completes with null.
+     * Files larger than the cap of in-flight bytes are not read, the processor gets null as content
+     * and has to stream the file itself. They are processed one at a time.
+     *
+     * @param file The file to be processed.
+     * @param processor Processes the content of the file.
+     * @param consumer Consumes the result of the processor, may be null.
+     *
+     * @return Future of the result of the processor.
+     */
+    public <T> CompletableFuture<T> submit(final Path file, final Processor<T> processor, final Consumer<T> consumer) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ioExecutor.execute(() -> {
+            try {
+                future.complete(ingest(file, processor, consumer));
+            } catch (ExecutionException e) {
+                future.completeExceptionally(e.getCause());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return True if the files are read on virtual threads.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return The number of contents waiting for a processing thread.
+     */
+    public int getQueueDepth() {
+        return cpuExecutor.getQueue().size();
+    }
+
+    /**
+     * @return The number of bytes read, but not yet processed and consumed.
+     */
+    public long getInFlightBytes() {
+        lock.lock();
+        try {
+            return inFlightBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method stops accepting files and waits, until the already submitted files have been processed.
+     */
+    @Override
+    public void close() {
+        ioExecutor.shutdown();
+        try {
+            ioExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            ioExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        cpuExecutor.shutdown();
+    }
+
+    private <T> T ingest(final Path file, final Processor<T> processor, final Consumer<T> consumer) throws Exception {
+        if (!TextAnalyserIO.fileContainsText(file.toFile())) {
+            return null;
+        }
+        long size = Files.size(file);
+        long reserved = Math.min(size, maxInFlightBytes);    // a larger file reserves the whole cap
+        acquire(reserved);
+        try {
+            byte[] content = size <= maxInFlightBytes && size < Integer.MAX_VALUE - 8 ? Files.readAllBytes(file) : null;
+            Future<T> result = cpuExecutor.submit(() -> processor.process(file, content));
+            T value = result.get();
+            if (consumer != null) {
+                consumer.accept(file, value);
+            }
+            return value;
+        } finally {
+            release(reserved);
+        }
+    }
+
+    private void acquire(final long bytes) throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlightBytes + bytes > maxInFlightBytes) {
+                bytesReleased.await();
+            }
+            inFlightBytes += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(final long bytes) {
+        lock.lock();
+        try {
+            inFlightBytes -= bytes;
+            bytesReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Static method creates an executor starting a virtual thread per task, if the JDK provides it.
+     * It is looked up reflectively, so the application still runs on older JDKs.
+     *
+     * @return The executor or null.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;    // older JDK, or virtual threads are a disabled preview feature
+        }
+    }
+
+    private static ThreadFactory daemonThreads(final String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return (Runnable runnable) -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Functional interface for the CPU-bound processing of a file.
+     */
+    @FunctionalInterface
+    public interface Processor<T> {
+        /**
+         * @param file The processed file.
+         * @param content The content of the file, or null if it is too large to be read at once.
+         *
+         * @return The result.
+         *
+         * @throws Exception If the file can not be processed.
+         */
+        T process(Path file, byte[] content) throws Exception;
+    }
+
+    /**
+     * Functional interface for consuming the result of a file on the I/O thread.
+     */
+    @FunctionalInterface
+    public interface Consumer<T> {
+        void accept(Path file, T result) throws IOException;
+    }
+}
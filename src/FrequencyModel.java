@@ -1,4 +1,4 @@
-import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleStringProperty;
 
 /**
@@ -6,12 +6,20 @@ import javafx.beans.property.SimpleStringProperty;
  */
 public class FrequencyModel {
     private final SimpleStringProperty letter;
-    private final SimpleIntegerProperty frequency;
+    private final SimpleLongProperty frequency;
 
 
     public FrequencyModel(Character c, Integer frequency) {
-        this.letter = new SimpleStringProperty(c.toString());
-        this.frequency = new SimpleIntegerProperty(frequency);
+        this(c.charValue(), frequency.longValue());
+    }
+
+    public FrequencyModel(char c, long frequency) {
+        this(String.valueOf(c), frequency);
+    }
+
+    public FrequencyModel(String nGram, long frequency) {
+        this.letter = new SimpleStringProperty(nGram);
+        this.frequency = new SimpleLongProperty(frequency);
     }
 
     public String getLetter() {
@@ -26,15 +34,15 @@ public class FrequencyModel {
         this.letter.set(letter);
     }
 
-    public int getFrequency() {
+    public long getFrequency() {
         return frequency.get();
     }
 
-    public SimpleIntegerProperty frequencyProperty() {
+    public SimpleLongProperty frequencyProperty() {
         return frequency;
     }
 
-    public void setFrequency(int frequency) {
+    public void setFrequency(long frequency) {
         this.frequency.set(frequency);
     }
 }
@@ -0,0 +1,141 @@
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class provides the data model of the frequency-analysis table for the Text Analyser Application.
+ * There is one pooled FrequencyModel per character, which is reused for every analysis:
+ * frequencies of characters already shown are updated in place, only new characters are inserted
+ * and only characters which no longer occur are removed. So the TableView only updates the changed cells
+ * instead of rebuilding all rows, and no models are allocated for characters seen before.
+ * Alternatively the table shows the most frequent n-grams of an n-gram analysis.
+ */
+public class FrequencyTableModel {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final Comparator<FrequencyModel> BY_LETTER = Comparator.comparing(FrequencyModel::getLetter);
+
+    private final ObservableList<FrequencyModel> items;     // the rows of the table
+    private final FrequencyModel[][] pool;                  // model of each character, pages allocated on demand
+    private boolean nGramRows;                              // the rows show n-grams instead of pooled characters
+
+
+    /**
+     * Constructor. Creates an empty model.
+     */
+    public FrequencyTableModel() {
+        this.items = FXCollections.observableArrayList();
+        this.pool = new FrequencyModel[(Character.MAX_VALUE + 1) >>> PAGE_BITS][];
+    }
+
+    /**
+     * @return The rows of the table, to be set as items of the TableView.
+     */
+    public ObservableList<FrequencyModel> getItems() {
+        return items;
+    }
+
+    /**
+     * Method updates the rows to the result of a frequency-analysis and sorts them.
+     * The list is changed at most three times (one removal, one insertion and one permutation),
+     * which are all shown with the next pulse of the table.
+     *
+     * @param histogram The result of a frequency-analysis.
+     * @param comparator The sort order of the table, or null if unsorted.
+     *                   Rows of equal rank are kept in the order of the characters.
+     */
+    public void update(final CharHistogram histogram, final Comparator<FrequencyModel> comparator) {
+        if (nGramRows) {
+            clear();
+        }
+        // update the shown rows in place and collect the vanished ones
+        Set<FrequencyModel> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (FrequencyModel model : items) {
+            long frequency = histogram.get(model.getLetter().charAt(0));
+            if (frequency == 0) {
+                removed.add(model);
+            }
+            if (model.getFrequency() != frequency) {
+                model.setFrequency(frequency);
+            }
+        }
+        if (!removed.isEmpty()) {
+            items.removeAll(removed);
+        }
+
+        // the rows of all other occurring characters are new, shown rows have a frequency other than zero
+        List<FrequencyModel> added = new ArrayList<>();
+        histogram.forEach((char c, long frequency) -> {
+            FrequencyModel model = model(c);
+            if (model.getFrequency() == 0) {
+                model.setFrequency(frequency);
+                added.add(model);
+            }
+        });
+        if (!added.isEmpty()) {
+            items.addAll(added);
+        }
+
+        // ties are broken by the character, so the order of equal rows does not change between updates
+        FXCollections.sort(items, comparator == null ? BY_LETTER : comparator.thenComparing(BY_LETTER));
+    }
+
+    /**
+     * Method replaces the rows by the most frequent n-grams of an n-gram analysis and sorts them.
+     * Only the few top n-grams are shown, so their models are not pooled.
+     *
+     * @param nGrams The n-grams with their frequencies, see NGramHistogram.top(int).
+     * @param comparator The sort order of the table, or null to keep the order of the n-grams.
+     */
+    public void update(final List<NGramHistogram.NGramCount> nGrams, final Comparator<FrequencyModel> comparator) {
+        if (!nGramRows) {
+            clear();
+        }
+        List<FrequencyModel> rows = new ArrayList<>(nGrams.size());
+        for (NGramHistogram.NGramCount nGram : nGrams) {
+            rows.add(new FrequencyModel(nGram.getNGram(), nGram.getCount()));
+        }
+        if (comparator != null) {
+            rows.sort(comparator.thenComparing(BY_LETTER));
+        }
+        items.setAll(rows);
+        nGramRows = true;
+    }
+
+    /**
+     * Method removes all rows. The models are kept for reuse.
+     */
+    public void clear() {
+        if (!nGramRows) {
+            for (FrequencyModel model : items) {
+                model.setFrequency(0);
+            }
+        }
+        items.clear();
+        nGramRows = false;
+    }
+
+    /**
+     * Method returns the pooled model of a character and creates it, if needed.
+     */
+    private FrequencyModel model(final char c) {
+        FrequencyModel[] page = pool[c >>> PAGE_BITS];
+        if (page == null) {
+            page = pool[c >>> PAGE_BITS] = new FrequencyModel[PAGE_SIZE];
+        }
+        FrequencyModel model = page[c & PAGE_MASK];
+        if (model == null) {
+            model = page[c & PAGE_MASK] = new FrequencyModel(c, 0);
+        }
+        return model;
+    }
+}
@@ -0,0 +1,543 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Class provides the reference frequency profile of a language for the Text Analyser Application:
+ * the relative frequencies of the letters A to Z and the log probabilities of the bigrams and quadgrams
+ * of latin letters. Profiles are built offline from corpora with the analysis engine (see the command "profile"
+ * of TextAnalyserCli) and are stored in a compact binary file, which is memory-mapped when it is loaded.
+ * The n-gram tables are read in place from the mapping, so loading a profile costs neither time nor heap.
+ *
+ * File format (little endian, 1.8 MB with n-grams, otherwise 272 bytes):
+ *      0       magic "TAPF", version (int)
+ *      8       number of the counted letters, bigrams and quadgrams (long)
+ *      32      length of the name (int), the name (ASCII a-z, 0-9, '_' and '-', up to 28 bytes)
+ *      64      relative frequencies of the letters A - Z (26 doubles)
+ *      272     log10 probabilities of the bigrams AA - ZZ (676 floats)
+ *      2976    log10 probabilities of the quadgrams AAAA - ZZZZ (456976 floats)
+ * The n-grams are indexed like the keys of a NGramHistogram of latin letters.
+ *
+ * A directory of profiles may also contain word lists "language.words" (see WordDictionary),
+ * which rank the keys of a broken cipher by the words of their decryptions.
+ *
+ * The loaded profiles are kept in a registry, which always contains a profile of the English letters
+ * (see Cryptanalysis.ENGLISH_LETTER_FREQUENCIES), unless it is replaced by a loaded English profile.
+ * The profiles are loaded at startup from the directory of the system property "textanalyser.profiles",
+ * or from the directory "profiles", if it exists.
+ */
+public final class LanguageProfile {
+
+    public static final String EXTENSION = ".profile";
+    public static final String DIRECTORY_PROPERTY = "textanalyser.profiles";
+    public static final String DEFAULT_DIRECTORY = "profiles";
+    public static final String DEFAULT_LANGUAGE = "english";
+
+    private static final int MAGIC = 0x46504154;    // "TAPF"
+    private static final int VERSION = 1;
+    private static final int MAX_NAME_BYTES = 28;
+    private static final int LETTERS_OFFSET = 64;
+    private static final int BIGRAMS = 26 * 26;
+    private static final int BIGRAMS_OFFSET = LETTERS_OFFSET + 26 * Double.BYTES;
+    private static final int QUADGRAMS = 26 * 26 * 26 * 26;
+    private static final int QUADGRAMS_OFFSET = BIGRAMS_OFFSET + BIGRAMS * Float.BYTES;
+    private static final int SIZE = QUADGRAMS_OFFSET + QUADGRAMS * Float.BYTES;
+    private static final double UNSEEN_COUNT = 0.01;    // count of an n-gram missing in the corpus
+
+    // the built-in English profile first, loaded profiles replace profiles of the same name
+    private static final List<LanguageProfile> PROFILES = new CopyOnWriteArrayList<>();
+
+    static {
+        PROFILES.add(build(DEFAULT_LANGUAGE, Cryptanalysis.ENGLISH_LETTER_FREQUENCIES));
+    }
+
+    private final ByteBuffer data;      // the mapped file, or the encoded profile in the heap
+    private final String name;
+    private final double[] letters;     // copied, they are read in the inner loops of the cryptanalysis
+    private final long letterTotal;
+    private final long bigramTotal;
+    private final long quadgramTotal;
+    private final FloatBuffer bigrams;  // views of the data, or null
+    private final FloatBuffer quadgrams;
+
+
+    /**
+     * Constructor. Reads the header of an encoded profile.
+     *
+     * @throws IllegalArgumentException If the data is not a valid profile.
+     */
+    private LanguageProfile(final ByteBuffer data) throws IllegalArgumentException {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.limit() < BIGRAMS_OFFSET || data.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a language profile");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported version of the language profile: " + data.getInt(4));
+        }
+        this.letterTotal = data.getLong(8);
+        this.bigramTotal = data.getLong(16);
+        this.quadgramTotal = data.getLong(24);
+        int nameLength = data.getInt(32);
+        if (nameLength < 1 || nameLength > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Non valid name of the language profile");
+        }
+        byte[] nameBytes = new byte[nameLength];
+        data.duplicate().position(36).get(nameBytes);
+        this.name = new String(nameBytes, StandardCharsets.US_ASCII);
+        if (!name.matches("[a-z0-9_-]+")) {
+            throw new IllegalArgumentException("Non valid name of the language profile");
+        }
+        this.letters = new double[26];
+        for (int i = 0; i < 26; i++) {
+            letters[i] = data.getDouble(LETTERS_OFFSET + i * Double.BYTES);
+        }
+        this.bigrams = bigramTotal > 0 ? floats(BIGRAMS_OFFSET, BIGRAMS) : null;
+        this.quadgrams = quadgramTotal > 0 ? floats(QUADGRAMS_OFFSET, QUADGRAMS) : null;
+    }
+
+    /**
+     * Method creates a view of a table of the data, without copying it.
+     */
+    private FloatBuffer floats(final int offset, final int count) {
+        if (data.limit() < offset + count * Float.BYTES) {
+            throw new IllegalArgumentException("Truncated language profile");
+        }
+        ByteBuffer table = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        table.position(offset).limit(offset + count * Float.BYTES);
+        return table.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    /**
+     * Static method builds a profile from the analysis of a corpus.
+     * The letter frequencies are smoothed, so no letter has the frequency 0.
+     *
+     * @param name The name of the language, e.g. "english".
+     * @param letters The frequency-analysis of the corpus.
+     * @param bigrams The bigrams of latin letters of the corpus, or null.
+     * @param quadgrams The quadgrams of latin letters of the corpus, or null.
+     *
+     * @return The profile, see save().
+     */
+    public static LanguageProfile build(final String name, final CharHistogram letters,
+                                        final NGramHistogram bigrams, final NGramHistogram quadgrams) {
+        if (bigrams != null && (bigrams.getN() != 2 || !bigrams.isLettersOnly())
+                || quadgrams != null && (quadgrams.getN() != 4 || !quadgrams.isLettersOnly())) {
+            throw new IllegalArgumentException("Bigrams and quadgrams of latin letters are needed");
+        }
+        long[] counts = Cryptanalysis.letterCounts(letters);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("The corpus doesn't contain latin letters");
+        }
+        double[] frequencies = new double[26];
+        for (int i = 0; i < 26; i++) {
+            frequencies[i] = (counts[i] + 0.5) / (total + 13.0);
+        }
+        long bigramTotal = bigrams != null ? bigrams.getTotal() : 0;
+        long quadgramTotal = quadgrams != null ? quadgrams.getTotal() : 0;
+        ByteBuffer data = encode(name, frequencies, total, bigramTotal, quadgramTotal,
+                bigramTotal > 0 || quadgramTotal > 0 ? SIZE : BIGRAMS_OFFSET);
+        if (bigramTotal > 0) {
+            writeLogProbabilities(data, BIGRAMS_OFFSET, BIGRAMS, bigrams);
+        }
+        if (quadgramTotal > 0) {
+            writeLogProbabilities(data, QUADGRAMS_OFFSET, QUADGRAMS, quadgrams);
+        }
+        return new LanguageProfile(data);
+    }
+
+    /**
+     * Static method builds a profile of the letter frequencies of a language, without n-grams.
+     *
+     * @param name The name of the language.
+     * @param frequencies The relative frequency of each letter A to Z.
+     *
+     * @return The profile.
+     */
+    public static LanguageProfile build(final String name, final double[] frequencies) {
+        if (frequencies.length != 26) {
+            throw new IllegalArgumentException("26 letter frequencies are needed");
+        }
+        return new LanguageProfile(encode(name, frequencies, 0, 0, 0, BIGRAMS_OFFSET));
+    }
+
+    private static ByteBuffer encode(final String name, final double[] frequencies,
+                                     final long letterTotal, final long bigramTotal, final long quadgramTotal,
+                                     final int size) {
+        // the name is used as file name and in JSON without escaping
+        String lowerCase = name.toLowerCase(Locale.ROOT);
+        if (!lowerCase.matches("[a-z0-9_-]{1," + MAX_NAME_BYTES + "}")) {
+            throw new IllegalArgumentException("The name of a language has 1 to " + MAX_NAME_BYTES
+                    + " letters, digits, '_' or '-': " + name);
+        }
+        byte[] nameBytes = lowerCase.getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer data = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        data.putInt(0, MAGIC).putInt(4, VERSION);
+        data.putLong(8, letterTotal).putLong(16, bigramTotal).putLong(24, quadgramTotal);
+        data.putInt(32, nameBytes.length);
+        for (int i = 0; i < nameBytes.length; i++) {
+            data.put(36 + i, nameBytes[i]);
+        }
+        for (int i = 0; i < 26; i++) {
+            data.putDouble(LETTERS_OFFSET + i * Double.BYTES, frequencies[i]);
+        }
+        return data;
+    }
+
+    /**
+     * Static method writes the log10 probability of each n-gram, n-grams missing in the corpus get a small count.
+     */
+    private static void writeLogProbabilities(final ByteBuffer data, final int offset, final int count,
+                                              final NGramHistogram histogram) {
+        final double total = histogram.getTotal();
+        float unseen = (float) Math.log10(UNSEEN_COUNT / total);
+        for (int i = 0; i < count; i++) {
+            data.putFloat(offset + i * Float.BYTES, unseen);
+        }
+        histogram.forEach((long key, long nGramCount) ->
+                data.putFloat(offset + (int) key * Float.BYTES, (float) Math.log10(nGramCount / total)));
+    }
+
+    /**
+     * Method writes the profile to a file. The file is replaced atomically,
+     * so a profile mapped by a running application is not truncated.
+     *
+     * @param file The profile file, see EXTENSION.
+     *
+     * @throws IOException If the file can not be written.
+     */
+    public void save(final Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer source = data.duplicate();
+                source.clear();
+                while (source.hasRemaining()) {
+                    channel.write(source);
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Static method maps a profile file.
+     *
+     * @param file The profile file.
+     *
+     * @return The profile, its n-grams are read from the mapping.
+     *
+     * @throws IOException If the file can not be mapped or is not a valid profile.
+     */
+    public static LanguageProfile load(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > SIZE) {
+                throw new IOException(file + ": Not a language profile");
+            }
+            // the mapping stays valid after the channel is closed
+            return new LanguageProfile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Static method loads all profile files of a directory into the registry,
+     * a profile replaces a registered profile of the same language. The word lists of the directory
+     * are loaded as dictionaries of their languages.
+     *
+     * @param directory The directory of the profile files.
+     *
+     * @return The number of loaded profiles.
+     *
+     * @throws IOException If the directory can not be read or a file is not a valid profile.
+     */
+    public static synchronized int loadProfiles(final Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        for (Path file : files) {
+            register(load(file));
+        }
+        WordDictionary.loadDictionaries(directory);
+        return files.size();
+    }
+
+    /**
+     * Static method loads the profiles from the directory of the system property "textanalyser.profiles",
+     * or from the directory "profiles", if the property is not set and the directory exists.
+     * A failure is reported on the standard error stream, the built-in profile is still available.
+     */
+    public static void loadProfilesFromProperties() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        Path path = Paths.get(directory != null && !directory.isEmpty() ? directory : DEFAULT_DIRECTORY);
+        if (directory == null && !Files.isDirectory(path)) {
+            return;
+        }
+        try {
+            loadProfiles(path);
+        } catch (IOException e) {
+            System.err.println("Language profiles: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Static method adds a profile to the registry, it replaces a registered profile of the same language.
+     */
+    public static synchronized void register(final LanguageProfile profile) {
+        for (int i = 0; i < PROFILES.size(); i++) {
+            if (PROFILES.get(i).name.equals(profile.name)) {
+                PROFILES.set(i, profile);
+                return;
+            }
+        }
+        PROFILES.add(profile);
+    }
+
+    /**
+     * @return The registered profiles, the default language first.
+     */
+    public static List<LanguageProfile> getProfiles() {
+        return Collections.unmodifiableList(PROFILES);
+    }
+
+    /**
+     * @return The registered profile of a language, or null.
+     */
+    public static LanguageProfile getProfile(final String name) {
+        for (LanguageProfile profile : PROFILES) {
+            if (profile.name.equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Static method ranks the registered profiles by the chi-squared statistic between the letter counts
+     * of a text and their letter frequencies. Only the histogram is needed, so the costs don't depend
+     * on the length of the text.
+     *
+     * @param histogram The frequency-analysis of the text.
+     * @param shifted True if the text may be encrypted with a shift cipher, then each profile is scored
+     *                with the shift fitting it best, false if the text is plane text.
+     *
+     * @return The profiles with their scores, ranked from the most to the least probable language.
+     */
+    public static List<LanguageScore> detect(final CharHistogram histogram, final boolean shifted) {
+        long[] counts = Cryptanalysis.letterCounts(histogram);
+        List<LanguageScore> scores = new ArrayList<>(PROFILES.size());
+        for (LanguageProfile profile : PROFILES) {
+            double chiSquared = shifted
+                    ? Cryptanalysis.crackShiftCipher(counts, profile.letters).get(0).getChiSquared()
+                    : Cryptanalysis.chiSquared(counts, profile.letters, 0);
+            scores.add(new LanguageScore(profile, chiSquared));
+        }
+        scores.sort(Comparator.comparingDouble(LanguageScore::getChiSquared));
+        return scores;
+    }
+
+    /**
+     * Static method ranks the registered profiles for a text encrypted with a polyalphabetic cipher.
+     * The letters are counted per column of the key length, each column is a shift cipher
+     * and is scored with the shift fitting the profile best.
+     *
+     * @param text The cipher text.
+     * @param keyLength The length of the key, e.g. of a keyword found with any profile,
+     *                  since the key length is estimated independent of the profile.
+     *
+     * @return The profiles with their summed scores, ranked from the most to the least probable language.
+     */
+    public static List<LanguageScore> detect(final CharSequence text, final int keyLength) {
+        long[][] columns = new long[Math.max(1, keyLength)][26];
+        int column = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int letter = c >= 'A' && c <= 'Z' ? c - 'A' : c >= 'a' && c <= 'z' ? c - 'a' : -1;
+            if (letter >= 0) {
+                columns[column][letter]++;
+                if (++column == columns.length) {
+                    column = 0;
+                }
+            }
+        }
+        List<LanguageScore> scores = new ArrayList<>(PROFILES.size());
+        for (LanguageProfile profile : PROFILES) {
+            double chiSquared = 0;
+            for (long[] counts : columns) {
+                chiSquared += Cryptanalysis.crackShiftCipher(counts, profile.letters).get(0).getChiSquared();
+            }
+            scores.add(new LanguageScore(profile, chiSquared));
+        }
+        scores.sort(Comparator.comparingDouble(LanguageScore::getChiSquared));
+        return scores;
+    }
+
+    /**
+     * Static method chooses the profile for breaking a polyalphabetic cipher. The key length is found
+     * with the default profile, then the profiles are ranked by the columns of this key length.
+     *
+     * @param text The cipher text.
+     * @param maxKeyLength The longest key length to be examined.
+     *
+     * @return The most probable language, the default profile if no other profile is registered.
+     */
+    public static LanguageProfile detectPolyalphabetic(final CharSequence text, final int maxKeyLength) {
+        List<LanguageProfile> profiles = PROFILES;
+        if (profiles.size() == 1) {
+            return profiles.get(0);
+        }
+        List<Cryptanalysis.KeywordCandidate> candidates =
+                Cryptanalysis.crackPolyalphabeticCipher(text, profiles.get(0).letters, maxKeyLength);
+        int keyLength = candidates.isEmpty() ? 1 : candidates.get(0).getKeyword().length();
+        return detect(text, keyLength).get(0).getProfile();
+    }
+
+    /**
+     * Static method chooses the profile for breaking a monoalphabetic substitution cipher. The cipher permutes
+     * the letters, so the letter counts of the text and the frequencies of each profile are compared in the order
+     * of their ranks. Profiles with n-grams are preferred, since only they can break the cipher (see SubstitutionSolver).
+     *
+     * @param histogram The frequency-analysis of the cipher text.
+     *
+     * @return The most probable language, the default profile if no other profile is registered.
+     */
+    public static LanguageProfile detectSubstitution(final CharHistogram histogram) {
+        long[] counts = Cryptanalysis.letterCounts(histogram);
+        Arrays.sort(counts);
+        LanguageProfile best = null;
+        double bestChiSquared = Double.MAX_VALUE;
+        for (LanguageProfile profile : PROFILES) {
+            double[] frequencies = profile.getLetterFrequencies();
+            Arrays.sort(frequencies);
+            double chiSquared = Cryptanalysis.chiSquared(counts, frequencies, 0);
+            boolean preferred = best == null || profile.hasNGrams() && !best.hasNGrams();
+            if (preferred || profile.hasNGrams() == best.hasNGrams() && chiSquared < bestChiSquared) {
+                best = profile;
+                bestChiSquared = chiSquared;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The name of the language.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The relative frequency of each letter A to Z, as profile of the cryptanalysis.
+     */
+    public double[] getLetterFrequencies() {
+        return letters.clone();
+    }
+
+    /**
+     * @return The dictionary of the language, or null if no word list is loaded.
+     */
+    public WordDictionary getDictionary() {
+        return WordDictionary.get(name);
+    }
+
+    /**
+     * @return The number of letters of the corpus, 0 for a built-in profile.
+     */
+    public long getLetterTotal() {
+        return letterTotal;
+    }
+
+    /**
+     * @return True if the profile contains the bigrams and quadgrams of its corpus.
+     */
+    public boolean hasNGrams() {
+        return bigrams != null && quadgrams != null;
+    }
+
+    /**
+     * @param index The bigram as base-26 number of its letters (0 - 675).
+     *
+     * @return The log10 probability of the bigram.
+     */
+    public float getBigramLogProbability(final int index) {
+        if (bigrams == null) {
+            throw new IllegalStateException("The profile " + name + " has no bigrams");
+        }
+        return bigrams.get(index);
+    }
+
+    /**
+     * @param index The quadgram as base-26 number of its letters (0 - 456975).
+     *
+     * @return The log10 probability of the quadgram.
+     */
+    public float getQuadgramLogProbability(final int index) {
+        if (quadgrams == null) {
+            throw new IllegalStateException("The profile " + name + " has no quadgrams");
+        }
+        return quadgrams.get(index);
+    }
+
+    @Override
+    public String toString() {
+        return name + (hasNGrams() ? " (" + letterTotal + " letters)" : " (letters only)");
+    }
+
+    /**
+     * Class represents a language profile with its score for a text.
+     */
+    public static class LanguageScore {
+        private final LanguageProfile profile;
+        private final double chiSquared;
+
+        public LanguageScore(LanguageProfile profile, double chiSquared) {
+            this.profile = profile;
+            this.chiSquared = chiSquared;
+        }
+
+        public LanguageProfile getProfile() {
+            return profile;
+        }
+
+        public double getChiSquared() {
+            return chiSquared;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s  (χ² %.1f)", profile.getName(), chiSquared);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import javafx.animation.PauseTransition;
+import javafx.scene.control.TextFormatter;
+import javafx.scene.control.TextInputControl;
+import javafx.util.Duration;
+
+import java.util.function.Consumer;
+
+/**
+ * Class provides the incremental frequency-analysis of the Text Analyser Application.
+ * A histogram of the text of a text control is kept up to date with every edit:
+ * the characters of a replaced range are removed from the counts and the inserted characters are added,
+ * so the costs of an edit depend on its size and not on the size of the text.
+ * The histogram is published after the edits have paused for a given delay.
+ */
+public class LiveFrequencyAnalysis {
+
+    private static final int LARGE_INSERT = 1 << 16;     // inserted texts of this size are counted in parallel
+
+    private final TextInputControl textControl;
+    private final Consumer<CharHistogram> onUpdate;
+    private final CharHistogram histogram;
+    private final PauseTransition debounce;       // restarted by every edit, publishes the histogram when finished
+    private final TextFormatter<String> formatter;
+    private boolean enabled;
+
+
+    /**
+     * Constructor.
+     *
+     * @param textControl The text control to be analysed.
+     * @param delay The pause after the last edit, before the histogram is published.
+     * @param onUpdate Receives the histogram on the JavaFX Application Thread.
+     *                 It is only valid until the next edit and must not be kept.
+     */
+    public LiveFrequencyAnalysis(final TextInputControl textControl, final Duration delay,
+                                 final Consumer<CharHistogram> onUpdate) {
+        this.textControl = textControl;
+        this.onUpdate = onUpdate;
+        this.histogram = new CharHistogram();
+        this.debounce = new PauseTransition(delay);
+        this.debounce.setOnFinished(event -> onUpdate.accept(histogram));
+        // the filter only observes the changes, they are applied unmodified
+        this.formatter = new TextFormatter<>((TextFormatter.Change change) -> {
+            if (change.isContentChange()) {
+                applyChange(change.getControlText(), change.getRangeStart(), change.getRangeEnd(), change.getText());
+            }
+            return change;
+        });
+    }
+
+    /**
+     * Method turns the incremental analysis on or off. When turned on, the current text is counted once
+     * and the histogram is published immediately.
+     *
+     * @param enabled True to keep the histogram up to date with the text.
+     */
+    public void setEnabled(final boolean enabled) {
+        if (this.enabled == enabled) {
+            return;
+        }
+        this.enabled = enabled;
+        if (enabled) {
+            histogram.clear();
+            histogram.merge(Cryptography.parallelFrequencyHistogram(textControl.getText() == null ? "" : textControl.getText()));
+            textControl.setTextFormatter(formatter);
+            onUpdate.accept(histogram);
+        } else {
+            textControl.setTextFormatter(null);
+            debounce.stop();
+        }
+    }
+
+    /**
+     * @return True if the histogram is kept up to date with the text.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return The histogram of the current text, only valid while the analysis is enabled.
+     */
+    public CharHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Method applies the replacement of a range of the text to the histogram.
+     */
+    private void applyChange(final String text, final int rangeStart, final int rangeEnd, final String inserted) {
+        if (rangeStart == 0 && rangeEnd == text.length()) {
+            histogram.clear();      // the whole text is replaced, e.g. by opening a file
+        } else {
+            histogram.removeAll(text, rangeStart, rangeEnd);
+        }
+        if (inserted.length() < LARGE_INSERT) {
+            histogram.addAll(inserted);
+        } else {
+            histogram.merge(Cryptography.parallelFrequencyHistogram(inserted));
+        }
+        debounce.playFromStart();
+    }
+}
@@ -0,0 +1,189 @@
+import java.util.Arrays;
+
+/**
+ * Class provides a primitive hash map from long keys to long counts for the Text Analyser Application.
+ * It uses open addressing with linear probing in two parallel arrays, so counting never boxes keys or counts
+ * and only allocates when the table grows. All long values are valid keys.
+ */
+public class LongCountMap {
+
+    private static final long EMPTY = 0L;               // marks a free slot, the key 0 is held separately
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private long[] counts;
+    private int mask;
+    private int shift;          // bits to drop from the multiplied key, so the hash fits the table
+    private int size;
+    private long total;         // sum of all counts
+    private boolean hasZeroKey;
+    private long zeroKeyCount;
+
+
+    /**
+     * Constructor. Creates an empty map.
+     */
+    public LongCountMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Method adds an amount to the count of a key.
+     *
+     * @param key The key.
+     * @param count The amount to add.
+     */
+    public void add(final long key, final long count) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroKeyCount += count;
+            total += count;
+            return;
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                counts[slot] += count;
+                break;
+            }
+            if (current == EMPTY) {
+                keys[slot] = key;
+                counts[slot] = count;
+                if (++size > (mask + 1) >>> 1) {       // keep the load factor below 0.5
+                    allocate((mask + 1) << 1);
+                }
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        total += count;
+    }
+
+    /**
+     * @param key The key to look up.
+     *
+     * @return The count of the key, or zero.
+     */
+    public long get(final long key) {
+        if (key == EMPTY) {
+            return zeroKeyCount;
+        }
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                return counts[slot];
+            }
+            if (current == EMPTY) {
+                return 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Method adds all counts of another map to this map.
+     *
+     * @param other The map to be merged into this one.
+     */
+    public void merge(final LongCountMap other) {
+        if (other.hasZeroKey) {
+            add(EMPTY, other.zeroKeyCount);
+        }
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != EMPTY) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Method removes all keys. The table keeps its capacity.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(counts, 0L);
+        size = 0;
+        total = 0;
+        hasZeroKey = false;
+        zeroKeyCount = 0;
+    }
+
+    /**
+     * @return The number of keys.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The sum of all counts.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The approximate number of bytes allocated by this map.
+     */
+    public long getAllocatedBytes() {
+        return 64L + 16L * keys.length;
+    }
+
+    /**
+     * Method passes every key and its count to the given consumer, in no particular order.
+     *
+     * @param consumer The consumer receiving key and count.
+     */
+    public void forEach(final KeyCountConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(EMPTY, zeroKeyCount);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    private int slot(final long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> shift) & mask;
+    }
+
+    /**
+     * Method allocates a table of the given capacity and inserts all keys again.
+     */
+    private void allocate(final int capacity) {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new long[capacity];
+        mask = capacity - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+        if (oldKeys != null) {
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Functional interface for iterating over the keys of a map without boxing.
+     */
+    @FunctionalInterface
+    public interface KeyCountConsumer {
+        void accept(long key, long count);
+    }
+}
@@ -0,0 +1,586 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Class provides the operation metrics of the Text Analyser Application.
+ * Each instrumented operation (frequency-analysis, normalization, file IO, ...) records into a Stage:
+ * the number of operations, a latency histogram, the processed chars or bytes (for the throughput)
+ * and the bytes allocated by the calling thread. Gauges report the queue depths of the background work.
+ *
+ * The metrics are published as MXBeans in the domain "TextAnalyser" (e.g. for JConsole),
+ * optionally written periodically as JSON snapshot file and summarized in the log of the UI.
+ * Recording is lock-free and costs well below a microsecond, so it is done per operation or per chunk,
+ * not per character.
+ */
+public final class Metrics {
+
+    public static final String DOMAIN = "TextAnalyser";
+    public static final String FILE_PROPERTY = "textanalyser.metrics.file";        // snapshot file, if set
+    public static final String PERIOD_PROPERTY = "textanalyser.metrics.period";    // seconds between snapshots
+
+    private static final long DEFAULT_PERIOD_SECONDS = 10;
+    private static final int SUB_BUCKET_BITS = 2;       // four buckets per power of two, at most 25% too high
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;   // up to Long.MAX_VALUE
+
+    private static final Map<String, Stage> STAGES = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> GAUGES = new ConcurrentSkipListMap<>();
+    private static final boolean ALLOCATIONS = allocationsSupported();
+
+    private static ScheduledExecutorService snapshots;
+    private static Path snapshotFile;
+
+    static {
+        registerGauge("forkJoin.queuedTasks", () -> ForkJoinPool.commonPool().getQueuedTaskCount());
+        registerGauge("forkJoin.activeThreads", () -> ForkJoinPool.commonPool().getActiveThreadCount());
+        register(new Registry(), DOMAIN + ":type=Metrics");
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Static method returns the stage of an operation, which is created and published on the first call.
+     * Instrumented classes keep their stages in constants.
+     *
+     * @param name The name of the operation, e.g. "io.analyseFile".
+     * @param unit The unit of the processed amount, e.g. "chars" or "bytes".
+     *
+     * @return The stage.
+     */
+    public static Stage stage(final String name, final String unit) {
+        return STAGES.computeIfAbsent(name, (String key) -> {
+            Stage stage = new Stage(name, unit);
+            register(stage, DOMAIN + ":type=Stage,name=" + ObjectName.quote(name));
+            return stage;
+        });
+    }
+
+    /**
+     * Static method adds a gauge, e.g. the depth of a queue. A gauge of the same name is replaced.
+     *
+     * @param name The name of the gauge.
+     * @param gauge Supplier of the current value, it is called from any thread.
+     */
+    public static void registerGauge(final String name, final LongSupplier gauge) {
+        GAUGES.put(name, gauge);
+    }
+
+    /**
+     * Static method removes a gauge, e.g. of a closed executor.
+     *
+     * @param name The name of the gauge.
+     */
+    public static void unregisterGauge(final String name) {
+        GAUGES.remove(name);
+    }
+
+    /**
+     * @return The current values of all gauges, by name.
+     */
+    public static Map<String, Long> getGauges() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LongSupplier> gauge : GAUGES.entrySet()) {
+            values.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return values;
+    }
+
+    /**
+     * Static method resets all stages, the gauges are kept.
+     */
+    public static void reset() {
+        for (Stage stage : STAGES.values()) {
+            stage.reset();
+        }
+    }
+
+    /**
+     * Static method summarizes the stages with at least one operation, one line per stage, and the gauges.
+     *
+     * @return The lines of the summary, e.g. for the log.
+     */
+    public static List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        for (Stage stage : STAGES.values()) {
+            if (stage.getCount() > 0) {
+                lines.add(stage.toString());
+            }
+        }
+        StringBuilder gauges = new StringBuilder("Queues:");
+        for (Map.Entry<String, Long> gauge : getGauges().entrySet()) {
+            gauges.append(' ').append(gauge.getKey()).append('=').append(gauge.getValue());
+        }
+        lines.add(gauges.toString());
+        return lines;
+    }
+
+    /**
+     * Static method writes a snapshot of all stages and gauges as JSON object.
+     *
+     * @param out Writer for the JSON, it will not be closed.
+     *
+     * @throws IOException If writing fails.
+     */
+    public static void writeJson(final Writer out) throws IOException {
+        out.write("{\"timestamp\":" + System.currentTimeMillis() + ",\"stages\":{");
+        boolean first = true;
+        for (Stage stage : STAGES.values()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write(String.format(Locale.ROOT,
+                    "\"%s\":{\"count\":%d,\"unit\":\"%s\",\"units\":%d,\"unitsPerSecond\":%.0f,"
+                            + "\"totalMillis\":%.3f,\"meanMillis\":%.3f,\"p50Millis\":%.3f,\"p90Millis\":%.3f,"
+                            + "\"p99Millis\":%.3f,\"maxMillis\":%.3f,\"allocatedBytes\":%d,\"allocatedBytesPerOperation\":%d}",
+                    stage.getName(), stage.getCount(), stage.getUnit(), stage.getUnits(), stage.getUnitsPerSecond(),
+                    stage.getTotalMillis(), stage.getMeanMillis(), stage.getP50Millis(), stage.getP90Millis(),
+                    stage.getP99Millis(), stage.getMaxMillis(), stage.getAllocatedBytes(), stage.getAllocatedBytesPerOperation()));
+        }
+        out.write("},\"gauges\":{");
+        first = true;
+        for (Map.Entry<String, Long> gauge : getGauges().entrySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write("\"" + gauge.getKey() + "\":" + gauge.getValue());
+        }
+        out.write("}}\n");
+    }
+
+    /**
+     * Static method writes a snapshot into a file. The file is replaced atomically, if the file system supports it,
+     * so a reader never sees a partial snapshot.
+     *
+     * @param file The snapshot file.
+     *
+     * @throws IOException If the file can not be written.
+     */
+    public static void writeSnapshot(final Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writeJson(out);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Static method starts writing a snapshot periodically on a daemon thread. Already started snapshots are stopped.
+     *
+     * @param file The snapshot file.
+     * @param periodSeconds The seconds between two snapshots.
+     */
+    public static synchronized void startSnapshots(final Path file, final long periodSeconds) {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+        }
+        snapshotFile = file;
+        snapshots = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+            Thread thread = new Thread(runnable, "TextAnalyser-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleAtFixedRate(() -> {
+            try {
+                writeSnapshot(file);
+            } catch (IOException e) {
+                // the next period tries again, a failing snapshot must not stop the application
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Static method starts the periodic snapshots, if the system property "textanalyser.metrics.file" is set.
+     * The period is read from "textanalyser.metrics.period" (seconds, default 10).
+     */
+    public static void startSnapshotsFromProperties() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file != null && !file.isEmpty()) {
+            startSnapshots(Paths.get(file), Math.max(1, Long.getLong(PERIOD_PROPERTY, DEFAULT_PERIOD_SECONDS)));
+        }
+    }
+
+    /**
+     * Static method stops the periodic snapshots and writes a last snapshot, if they were started.
+     *
+     * @throws IOException If the last snapshot can not be written.
+     */
+    public static synchronized void stopSnapshots() throws IOException {
+        if (snapshots == null) {
+            return;
+        }
+        snapshots.shutdownNow();
+        snapshots = null;
+        writeSnapshot(snapshotFile);
+    }
+
+    /**
+     * @return True if the allocated bytes of the operations are measured.
+     */
+    public static boolean isAllocationMeasured() {
+        return ALLOCATIONS;
+    }
+
+    /**
+     * Static method publishes an MXBean. The metrics work without JMX, so a failure is ignored.
+     */
+    private static void register(final Object bean, final String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(bean, objectName);
+            }
+        } catch (JMException | SecurityException e) {
+            // not published
+        }
+    }
+
+    private static boolean allocationsSupported() {
+        try {
+            return AllocationCounter.isSupported();
+        } catch (LinkageError e) {
+            return false;   // a runtime without the module jdk.management
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS ? AllocationCounter.currentThread() : 0;
+    }
+
+    /**
+     * Static method returns the index of the histogram bucket of a latency: values below four have their own
+     * bucket, larger values are divided into four buckets per power of two.
+     */
+    static int bucket(final long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Static method returns the largest latency of a histogram bucket.
+     */
+    static long bucketLimit(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Management interface of a stage, see Stage.
+     */
+    public interface StageMXBean {
+        String getName();
+        String getUnit();
+        long getCount();
+        long getUnits();
+        double getUnitsPerSecond();
+        double getTotalMillis();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP90Millis();
+        double getP99Millis();
+        double getMaxMillis();
+        long getAllocatedBytes();
+        long getAllocatedBytesPerOperation();
+        void reset();
+    }
+
+    /**
+     * Management interface of the metrics as a whole.
+     */
+    public interface RegistryMXBean {
+        Map<String, Long> getGauges();
+        boolean isAllocationMeasured();
+        String getSnapshot();
+        void reset();
+    }
+
+    /**
+     * Inner class for the metrics of one kind of operation.
+     * The latencies are counted in logarithmic buckets, so the percentiles are upper estimates.
+     */
+    public static final class Stage implements StageMXBean {
+        private final String name;
+        private final String unit;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder units = new LongAdder();
+        private final LongAdder allocated = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private Stage(final String name, final String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        /**
+         * Method starts timing an operation on the calling thread.
+         *
+         * @return The timer, to be stopped by the same thread.
+         */
+        public Timer start() {
+            return new Timer(this);
+        }
+
+        /**
+         * Method records a finished operation.
+         *
+         * @param elapsedNanos The latency of the operation.
+         * @param processed The processed amount in the unit of the stage.
+         * @param allocatedBytes The bytes allocated by the operation.
+         */
+        public void record(final long elapsedNanos, final long processed, final long allocatedBytes) {
+            count.increment();
+            nanos.add(elapsedNanos);
+            units.add(processed);
+            allocated.add(allocatedBytes);
+            buckets.incrementAndGet(bucket(elapsedNanos));
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getUnit() {
+            return unit;
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public long getUnits() {
+            return units.sum();
+        }
+
+        /**
+         * @return The processed amount per second of operation time (not of wall-clock time).
+         */
+        @Override
+        public double getUnitsPerSecond() {
+            long total = nanos.sum();
+            return total == 0 ? 0 : units.sum() * 1e9 / total;
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return nanos.sum() / 1e6;
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long operations = count.sum();
+            return operations == 0 ? 0 : nanos.sum() / 1e6 / operations;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return percentile(0.5) / 1e6;
+        }
+
+        @Override
+        public double getP90Millis() {
+            return percentile(0.9) / 1e6;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return percentile(0.99) / 1e6;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        /**
+         * @return The bytes allocated by the threads calling the operations, the work of the ForkJoinPool
+         *         is not included. 0 if the JVM doesn't measure allocations.
+         */
+        @Override
+        public long getAllocatedBytes() {
+            return allocated.sum();
+        }
+
+        @Override
+        public long getAllocatedBytesPerOperation() {
+            long operations = count.sum();
+            return operations == 0 ? 0 : allocated.sum() / operations;
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+            nanos.reset();
+            units.reset();
+            allocated.reset();
+            maxNanos.set(0);
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+
+        /**
+         * Method estimates a percentile of the latencies as limit of its bucket, at most the maximum latency.
+         */
+        private long percentile(final double fraction) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(bucketLimit(i), maxNanos.get());
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            String scale = unit.equals("bytes") ? "MB" : "M" + unit;
+            String allocation = ALLOCATIONS ? String.format(Locale.ROOT, ", %d KB allocated/op", getAllocatedBytesPerOperation() >> 10) : "";
+            return String.format(Locale.ROOT, "%s: %d ops, mean %.1f ms, p99 %.1f ms, max %.1f ms, %.1f %s/s%s",
+                    name, getCount(), getMeanMillis(), getP99Millis(), getMaxMillis(),
+                    getUnitsPerSecond() / (1 << 20), scale, allocation);
+        }
+    }
+
+    /**
+     * Inner class for timing one operation, see Stage.start().
+     */
+    public static final class Timer {
+        private final Stage stage;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Timer(final Stage stage) {
+            this.stage = stage;
+            this.startAllocated = allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Method records the operation in its stage. It has to be called by the thread, which started the timer.
+         *
+         * @param processed The processed amount in the unit of the stage.
+         */
+        public void stop(final long processed) {
+            long elapsed = System.nanoTime() - startNanos;
+            stage.record(elapsed, processed, Math.max(0, allocatedBytes() - startAllocated));
+        }
+    }
+
+    /**
+     * Inner class for the management interface of the metrics as a whole.
+     */
+    private static final class Registry implements RegistryMXBean {
+        @Override
+        public Map<String, Long> getGauges() {
+            return Metrics.getGauges();
+        }
+
+        @Override
+        public boolean isAllocationMeasured() {
+            return Metrics.isAllocationMeasured();
+        }
+
+        @Override
+        public String getSnapshot() {
+            StringWriter writer = new StringWriter();
+            try {
+                writeJson(writer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);  // not thrown by a StringWriter
+            }
+            return writer.toString();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+
+    /**
+     * Inner class isolates the HotSpot specific interface, so Metrics loads on runtimes without it.
+     */
+    private static final class AllocationCounter {
+        private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+        private static com.sun.management.ThreadMXBean threads() {
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            return threads instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) threads : null;
+        }
+
+        static boolean isSupported() {
+            if (THREADS == null || !THREADS.isThreadAllocatedMemorySupported()) {
+                return false;
+            }
+            if (!THREADS.isThreadAllocatedMemoryEnabled()) {
+                THREADS.setThreadAllocatedMemoryEnabled(true);
+            }
+            return true;
+        }
+
+        static long currentThread() {
+            return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
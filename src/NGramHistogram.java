@@ -0,0 +1,403 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class provides the n-gram frequency-analysis (bigrams, trigrams, quadgrams ...) for the Text Analyser Application.
+ * Each n-gram is packed into a long: in letter mode only the latin letters are counted, case-insensitive,
+ * as base-26 number (up to 13 letters), otherwise all characters with 16 bits each (up to 4 characters).
+ * Letter n-grams up to quadgrams are counted in a dense array of 26^n entries, all others in a LongCountMap,
+ * so neither String nor Character keys are created while counting.
+ *
+ * The histogram can be fed chunk by chunk, the last n-1 characters are carried over to the next chunk.
+ * Histograms of adjacent ranges of a text can be merged, see addAll(CharSequence, int, int, int).
+ */
+public class NGramHistogram {
+
+    public static final int MAX_LETTER_N = 13;      // 26^13 < 2^63, the oldest letter is dropped before appending
+    public static final int MAX_CHAR_N = 4;         // 4 * 16 bits
+    private static final int MAX_DENSE_N = 4;       // 26^4 = 456976 counts
+
+    private final int n;
+    private final boolean lettersOnly;
+    private final long modulus;         // keeps the last n units of the rolling key
+    private final long letterModulus;   // keeps the last n-1 letters, so appending a letter can't overflow
+    private final long[] dense;         // counts of letter n-grams up to quadgrams, otherwise null
+    private final LongCountMap sparse;  // counts of all other n-grams, otherwise null
+    private long total;
+
+    private long window;                // the last characters as rolling key
+    private int windowLength;           // number of characters in the window, up to n
+
+
+    /**
+     * Constructor. Creates an empty histogram.
+     *
+     * @param n The length of the n-grams.
+     * @param lettersOnly True to count only latin letters (ignoring the case), false to count all characters.
+     */
+    public NGramHistogram(final int n, final boolean lettersOnly) {
+        if (n < 1 || n > (lettersOnly ? MAX_LETTER_N : MAX_CHAR_N)) {
+            throw new IllegalArgumentException("Non valid n-gram length: " + n);
+        }
+        this.n = n;
+        this.lettersOnly = lettersOnly;
+        if (lettersOnly) {
+            long power = 1;
+            for (int i = 0; i < n; i++) {
+                power *= 26;
+            }
+            this.modulus = power;
+            this.letterModulus = power / 26;
+        } else {
+            this.modulus = n == MAX_CHAR_N ? 0 : 1L << (16 * n);    // 0: all 64 bits are used
+            this.letterModulus = 0;
+        }
+        this.dense = lettersOnly && n <= MAX_DENSE_N ? new long[(int) modulus] : null;
+        this.sparse = dense == null ? new LongCountMap() : null;
+    }
+
+    /**
+     * Method counts all n-grams of a text chunk, continuing the n-grams of the previous chunk.
+     *
+     * @param text The text to be counted.
+     */
+    public void addAll(final CharSequence text) {
+        addAll(text, 0, text.length());
+    }
+
+    /**
+     * Method counts all n-grams of a range of a text chunk, continuing the n-grams of the previous chunk.
+     *
+     * @param text The text to be counted.
+     * @param from Index of the first character (inclusive).
+     * @param to Index of the last character (exclusive).
+     */
+    public void addAll(final CharSequence text, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            add(text.charAt(i));
+        }
+    }
+
+    /**
+     * Method counts the n-grams starting in a range of a text, which may end behind the range.
+     * So histograms of adjacent ranges, each counted into its own histogram (e.g. in parallel),
+     * can be merged to the histogram of the whole text.
+     *
+     * @param text The text to be counted.
+     * @param from Index of the first character of the first n-gram (inclusive).
+     * @param to Index of the first character, which doesn't start an n-gram (exclusive).
+     * @param end Index of the end of the text (exclusive), the last n-grams may end there.
+     */
+    public void addAll(final CharSequence text, final int from, final int to, final int end) {
+        resetWindow();
+        addAll(text, from, to);
+        // complete the n-grams started in the range, the next range starts with an empty window
+        int missing = n - 1;
+        for (int i = to; i < end && missing > 0; i++) {
+            if (add(text.charAt(i))) {
+                missing--;
+            }
+        }
+        resetWindow();
+    }
+
+    /**
+     * Method adds the next character of the text.
+     *
+     * @param c The character.
+     *
+     * @return True if the character was part of an n-gram, false if it was skipped (non letters in letter mode).
+     */
+    public boolean add(final char c) {
+        if (lettersOnly) {
+            int letter;
+            if (c >= 'A' && c <= 'Z') {
+                letter = c - 'A';
+            } else if (c >= 'a' && c <= 'z') {
+                letter = c - 'a';
+            } else {
+                return false;
+            }
+            window = window % letterModulus * 26 + letter;
+        } else {
+            window = modulus == 0 ? window << 16 | c : (window << 16 | c) & (modulus - 1);
+        }
+        if (windowLength < n) {
+            windowLength++;
+        }
+        if (windowLength == n) {
+            if (dense != null) {
+                dense[(int) window]++;
+            } else {
+                sparse.add(window, 1);
+            }
+            total++;
+        }
+        return true;
+    }
+
+    /**
+     * Method adds an amount to the count of a packed n-gram, e.g. one passed by forEach().
+     *
+     * @param key The packed n-gram.
+     * @param count The amount to add.
+     */
+    public void add(final long key, final long count) {
+        if (dense != null) {
+            dense[(int) key] += count;
+        } else {
+            sparse.add(key, count);
+        }
+        total += count;
+    }
+
+    /**
+     * Method discards the carried over characters, so the next character starts a new text.
+     */
+    public void resetWindow() {
+        window = 0;
+        windowLength = 0;
+    }
+
+    /**
+     * Method adds all counts of another histogram with the same n and mode to this histogram.
+     *
+     * @param other The histogram to be merged into this one.
+     */
+    public void merge(final NGramHistogram other) {
+        if (other.n != n || other.lettersOnly != lettersOnly) {
+            throw new IllegalArgumentException("Histograms of different n-grams can not be merged");
+        }
+        if (dense != null) {
+            for (int i = 0; i < dense.length; i++) {
+                dense[i] += other.dense[i];
+            }
+        } else {
+            sparse.merge(other.sparse);
+        }
+        total += other.total;
+    }
+
+    /**
+     * @param nGram The n-gram to look up.
+     *
+     * @return The number of occurrences of the n-gram.
+     */
+    public long get(final String nGram) {
+        if (nGram.length() != n) {
+            return 0;
+        }
+        long key = 0;
+        for (int i = 0; i < n; i++) {
+            char c = nGram.charAt(i);
+            if (lettersOnly) {
+                char upperCase = Character.toUpperCase(c);
+                if (upperCase < 'A' || upperCase > 'Z') {
+                    return 0;
+                }
+                key = key * 26 + (upperCase - 'A');
+            } else {
+                key = key << 16 | c;
+            }
+        }
+        return dense != null ? dense[(int) key] : sparse.get(key);
+    }
+
+    /**
+     * @return The length of the n-grams.
+     */
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * @return True if only latin letters are counted.
+     */
+    public boolean isLettersOnly() {
+        return lettersOnly;
+    }
+
+    /**
+     * @return The number of all counted n-grams.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return The approximate number of bytes allocated by this histogram.
+     */
+    public long getAllocatedBytes() {
+        return 64L + (dense != null ? 8L * dense.length : sparse.getAllocatedBytes());
+    }
+
+    /**
+     * @return The number of distinct n-grams.
+     */
+    public int getDistinct() {
+        if (dense == null) {
+            return sparse.size();
+        }
+        int distinct = 0;
+        for (long count : dense) {
+            if (count != 0) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Method passes every n-gram with a count other than zero as packed key to the given consumer.
+     * Use decode() to get the n-gram of a key.
+     *
+     * @param consumer The consumer receiving key and count.
+     */
+    public void forEach(final LongCountMap.KeyCountConsumer consumer) {
+        if (dense == null) {
+            sparse.forEach(consumer);
+            return;
+        }
+        for (int i = 0; i < dense.length; i++) {
+            if (dense[i] != 0) {
+                consumer.accept(i, dense[i]);
+            }
+        }
+    }
+
+    /**
+     * Method finds the most frequent n-grams with a bounded min-heap, without sorting all n-grams.
+     * N-grams of equal frequency are ranked by their packed keys, so the result is deterministic.
+     *
+     * @param k The maximum number of n-grams.
+     *
+     * @return The most frequent n-grams in descending order of their frequency.
+     */
+    public List<NGramCount> top(final int k) {
+        final long[] heapCounts = new long[Math.max(0, k)];
+        final long[] heapKeys = new long[heapCounts.length];
+        final int[] size = {0};
+        forEach((long key, long count) -> {
+            if (size[0] < heapCounts.length) {
+                heapCounts[size[0]] = count;
+                heapKeys[size[0]] = key;
+                siftUp(heapCounts, heapKeys, size[0]++);
+            } else if (heapCounts.length > 0 && isLess(heapCounts[0], heapKeys[0], count, key)) {
+                heapCounts[0] = count;
+                heapKeys[0] = key;
+                siftDown(heapCounts, heapKeys, size[0]);
+            }
+        });
+        // remove the minimum until empty, filling the result from the back
+        NGramCount[] result = new NGramCount[size[0]];
+        for (int remaining = size[0]; remaining > 0; remaining--) {
+            result[remaining - 1] = new NGramCount(decode(heapKeys[0]), heapCounts[0]);
+            heapCounts[0] = heapCounts[remaining - 1];
+            heapKeys[0] = heapKeys[remaining - 1];
+            siftDown(heapCounts, heapKeys, remaining - 1);
+        }
+        List<NGramCount> list = new ArrayList<>(result.length);
+        for (NGramCount count : result) {
+            list.add(count);
+        }
+        return list;
+    }
+
+    /**
+     * Method unpacks the key of an n-gram.
+     *
+     * @param key The packed n-gram.
+     *
+     * @return The n-gram, letters are upper case in letter mode.
+     */
+    public String decode(final long key) {
+        char[] chars = new char[n];
+        long rest = key;
+        for (int i = n - 1; i >= 0; i--) {
+            if (lettersOnly) {
+                chars[i] = (char) ('A' + rest % 26);
+                rest /= 26;
+            } else {
+                chars[i] = (char) (rest & 0xFFFF);
+                rest >>>= 16;
+            }
+        }
+        return new String(chars);
+    }
+
+    private static void siftUp(final long[] counts, final long[] keys, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isLess(counts, keys, index, parent)) {
+                return;
+            }
+            swap(counts, keys, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(final long[] counts, final long[] keys, final int size) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            if (left < size && isLess(counts, keys, left, smallest)) {
+                smallest = left;
+            }
+            if (left + 1 < size && isLess(counts, keys, left + 1, smallest)) {
+                smallest = left + 1;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(counts, keys, smallest, index);
+            index = smallest;
+        }
+    }
+
+    /**
+     * Method ranks the n-grams: a lower count is less, of equal counts the higher key is less.
+     */
+    private static boolean isLess(final long count, final long key, final long otherCount, final long otherKey) {
+        return count < otherCount || count == otherCount && Long.compareUnsigned(key, otherKey) > 0;
+    }
+
+    private static boolean isLess(final long[] counts, final long[] keys, final int i, final int j) {
+        return isLess(counts[i], keys[i], counts[j], keys[j]);
+    }
+
+    private static void swap(final long[] counts, final long[] keys, final int i, final int j) {
+        long count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+    }
+
+    /**
+     * Class represents an n-gram with its frequency.
+     */
+    public static class NGramCount {
+        private final String nGram;
+        private final long count;
+
+        public NGramCount(String nGram, long count) {
+            this.nGram = nGram;
+            this.count = count;
+        }
+
+        public String getNGram() {
+            return nGram;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return nGram + " " + count;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Class provides a read-only document of the Text Analyser Application, backed by a memory-mapped UTF-8 file
+ * or by the bytes of a CompactText. The text is never held as String: lines are decoded on demand from the bytes,
+ * so documents of several gigabytes can be shown (see DocumentViewer).
+ *
+ * The line index is built incrementally, e.g. in the background, see indexLines(long).
+ * It only keeps the offset of every 64th line, the lines in between are found by scanning forward.
+ * Lines longer than MAX_LINE_BYTES are split, so a file without line breaks still has lines of a sensible length.
+ * Lines already indexed can be read while the indexing goes on.
+ */
+public class PagedDocument {
+
+    public static final int MAX_LINE_BYTES = 2000;          // longer lines are split into several lines
+
+    private static final int REGION_BITS = 30;              // the file is mapped in regions of 1 GB
+    private static final long REGION_MASK = (1L << REGION_BITS) - 1;
+    private static final int CHECKPOINT_BITS = 6;           // the offset of every 64th line is kept
+    private static final int CHECKPOINT_MASK = (1 << CHECKPOINT_BITS) - 1;
+
+    private static final Metrics.Stage INDEX_METRICS = Metrics.stage("documentIndex", "bytes");
+
+    private final File file;            // null for a text in memory
+    private final CompactText text;     // null for a file
+    private final boolean temporary;
+    private final Charset charset;      // UTF-8, or ISO-8859-1 for a Latin-1 text in memory
+    private final long size;
+    private final ByteBuffer[] regions;
+
+    private volatile long[] checkpoints = new long[1024];   // offsets of the lines 0, 64, 128, ...
+    private volatile int lineCount;                         // lines indexed so far
+    private volatile long indexedBytes;                     // offset of the next line to be indexed
+
+
+    /**
+     * Constructor. Maps the whole file, the lines are not indexed yet.
+     *
+     * @param file The UTF-8 encoded text file.
+     * @param temporary True if the file is deleted, when the document is closed.
+     *
+     * @throws IOException If the file can not be mapped.
+     */
+    public PagedDocument(final File file, final boolean temporary) throws IOException {
+        this.file = file;
+        this.text = null;
+        this.temporary = temporary;
+        this.charset = StandardCharsets.UTF_8;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            this.size = channel.size();
+            this.regions = new ByteBuffer[(int) ((size + REGION_MASK) >>> REGION_BITS)];
+            for (int i = 0; i < regions.length; i++) {
+                long position = (long) i << REGION_BITS;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_MASK + 1, size - position));
+            }
+        }
+        // the mappings stay valid after the channel is closed
+    }
+
+    /**
+     * Constructor. Shows a text in memory as document, its bytes are not copied.
+     *
+     * @param text The text.
+     */
+    public PagedDocument(final CompactText text) {
+        this.file = null;
+        this.text = text;
+        this.temporary = false;
+        this.charset = text.getCharset();
+        this.size = text.getByteSize();
+        this.regions = new ByteBuffer[] {text.getBytes()};
+    }
+
+    /**
+     * Method indexes the next lines, until about the given number of bytes is scanned or the end of the file.
+     * It must not be called concurrently, but getLine() may be called meanwhile.
+     *
+     * @param maxBytes The number of bytes to scan.
+     *
+     * @return True if the whole file is indexed.
+     */
+    public boolean indexLines(final long maxBytes) {
+        Metrics.Timer timer = INDEX_METRICS.start();
+        long position = indexedBytes;
+        long end = Math.min(size, position + maxBytes);
+        int count = lineCount;
+        long[] offsets = checkpoints;
+        while (position < end) {
+            if ((count & CHECKPOINT_MASK) == 0) {
+                int checkpoint = count >>> CHECKPOINT_BITS;
+                if (checkpoint == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    checkpoints = offsets;
+                }
+                offsets[checkpoint] = position;
+            }
+            position = nextLine(position);
+            // the line is visible for readers only after its checkpoint has been written
+            lineCount = ++count;
+            if (count == Integer.MAX_VALUE) {
+                position = size;    // a ListView can't show more lines
+            }
+        }
+        timer.stop(position - indexedBytes);
+        indexedBytes = position;
+        return position >= size;
+    }
+
+    /**
+     * @return True if the whole file is indexed.
+     */
+    public boolean isIndexed() {
+        return indexedBytes >= size;
+    }
+
+    /**
+     * @return The number of lines indexed so far.
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return The number of bytes indexed so far.
+     */
+    public long getIndexedBytes() {
+        return indexedBytes;
+    }
+
+    /**
+     * Method decodes a line of the document.
+     *
+     * @param index The index of the line, it has to be indexed already.
+     *
+     * @return The line without the line separator.
+     */
+    public String getLine(final int index) {
+        if (index < 0 || index >= lineCount) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " + lineCount);
+        }
+        long start = lineStart(index);
+        return decodeLine(start, nextLine(start));
+    }
+
+    /**
+     * Method decodes consecutive lines of the document, the file is scanned only once for all of them.
+     *
+     * @param from The index of the first line, it has to be indexed already.
+     * @param lines The array filled with the lines, without their line separators.
+     *
+     * @return The number of lines decoded, less than the length of the array at the end of the indexed lines.
+     */
+    public int getLines(final int from, final String[] lines) {
+        int count = Math.min(lines.length, lineCount - from);
+        if (from < 0 || count < 0) {
+            throw new IndexOutOfBoundsException("Line " + from + " of " + lineCount);
+        }
+        long start = count > 0 ? lineStart(from) : 0;
+        for (int i = 0; i < count; i++) {
+            long end = nextLine(start);
+            lines[i] = decodeLine(start, end);
+            start = end;
+        }
+        return count;
+    }
+
+    /**
+     * Method decodes the beginning of the document, e.g. as sample for breaking a cipher.
+     *
+     * @param maxBytes The maximum number of bytes to be decoded.
+     *
+     * @return The text, without an incomplete character at its end.
+     */
+    public String readText(final int maxBytes) {
+        long end = Math.min(size, maxBytes);
+        if (end < size) {
+            end = characterStart(end);
+        }
+        return new String(read(0, (int) end), charset);
+    }
+
+    /**
+     * @return The file of the document, or null for a text in memory.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The text of a document in memory, or null for a file.
+     */
+    public CompactText getText() {
+        return text;
+    }
+
+    /**
+     * @return The size of the file in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Method releases the document. A temporary file is deleted, or at least when the application exits.
+     */
+    public void close() {
+        if (temporary && file != null) {
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                file.deleteOnExit();    // e.g. a mapped file can not be deleted on Windows
+            }
+        }
+    }
+
+    /**
+     * Method finds the start of the line after the line starting at the given offset.
+     */
+    private long nextLine(final long start) {
+        long limit = Math.min(size, start + MAX_LINE_BYTES);
+        long position = start;
+        while (position < limit) {
+            // scan within one region with int indices
+            ByteBuffer region = regions[(int) (position >>> REGION_BITS)];
+            long base = position & ~REGION_MASK;
+            int index = (int) (position - base);
+            int regionLimit = (int) Math.min(limit - base, region.limit());
+            for (; index < regionLimit; index++) {
+                if (region.get(index) == '\n') {
+                    return base + index + 1;
+                }
+            }
+            position = base + regionLimit;
+        }
+        // split a long line, but not within a character
+        return limit < size ? Math.max(start + 1, characterStart(limit)) : limit;
+    }
+
+    /**
+     * Method finds the offset of an indexed line, scanning forward from its checkpoint.
+     */
+    private long lineStart(final int index) {
+        long start = checkpoints[index >>> CHECKPOINT_BITS];
+        for (int i = index & ~CHECKPOINT_MASK; i < index; i++) {
+            start = nextLine(start);
+        }
+        return start;
+    }
+
+    /**
+     * Method decodes the bytes of a line, without its line separator, if the line is not split.
+     */
+    private String decodeLine(final long start, long end) {
+        if (end > start && byteAt(end - 1) == '\n') {
+            end--;
+            if (end > start && byteAt(end - 1) == '\r') {
+                end--;
+            }
+        }
+        return new String(read(start, (int) (end - start)), charset);
+    }
+
+    /**
+     * Method moves an offset back to the first byte of a UTF-8 encoded character.
+     */
+    private long characterStart(long position) {
+        if (charset != StandardCharsets.UTF_8) {
+            return position;    // one byte per character
+        }
+        for (int i = 0; i < 3 && position > 0 && (byteAt(position) & 0xC0) == 0x80; i++) {
+            position--;
+        }
+        return position;
+    }
+
+    private byte byteAt(final long position) {
+        return regions[(int) (position >>> REGION_BITS)].get((int) (position & REGION_MASK));
+    }
+
+    /**
+     * Method copies bytes of the file, which may span two regions.
+     */
+    private byte[] read(final long start, final int length) {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long position = start + copied;
+            ByteBuffer region = regions[(int) (position >>> REGION_BITS)].duplicate();
+            region.position((int) (position & REGION_MASK));
+            int count = Math.min(length - copied, region.remaining());
+            region.get(bytes, copied, count);
+            copied += count;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,491 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Class caches the results of analyses and ciphers for the Text Analyser Application, so repeating an operation
+ * on the same text with the same settings doesn't compute it again. The results are keyed by a fast 64-bit hash
+ * of the text, its length and the normalized settings of the operation, see Key.
+ *
+ * Results are held in memory up to a budget of bytes, the least recently used ones are evicted first.
+ * If a spill directory is set, evicted results are written to the disk (up to another budget)
+ * and loaded again on their next use. Cached values are shared and must not be modified.
+ * Supported values are Strings and CompactTexts (cipher outputs), CharHistograms and NGramHistograms.
+ */
+public class ResultCache {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;    // multipliers of the xxHash64 rounds
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_CHAR_HISTOGRAM = 2;
+    private static final byte TYPE_NGRAM_HISTOGRAM = 3;
+    private static final byte TYPE_COMPACT_TEXT = 4;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);   // in access order
+    private final LinkedHashMap<Key, Spilled> spilled = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long usedBytes;
+    private Path spillDirectory;
+    private long maxSpillBytes;
+    private long spilledBytes;
+    private long spillFiles;            // number of spill files written, names the next one
+
+    private long hits;
+    private long diskHits;
+    private long misses;
+
+
+    /**
+     * Constructor. Creates an empty cache without spilling to the disk.
+     *
+     * @param maxBytes The budget of the results held in memory, 0 disables the cache.
+     */
+    public ResultCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Method returns the cached result of a key or computes and caches it.
+     * The computation runs outside of the lock, so the same result may be computed twice concurrently.
+     *
+     * @param key The key of the result.
+     * @param computation Computes the result, if it is not cached.
+     *
+     * @return The result, a null result is not cached.
+     *
+     * @throws Exception If the computation fails.
+     */
+    public <T> T computeIfAbsent(final Key key, final Computation<T> computation) throws Exception {
+        Object cached = get(key);
+        if (cached != null) {
+            @SuppressWarnings("unchecked")
+            T value = (T) cached;
+            return value;
+        }
+        T value = computation.compute();
+        if (value != null) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * @param key The key of the result.
+     *
+     * @return The cached result, or null.
+     */
+    public synchronized Object get(final Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+            return entry.value;
+        }
+        Spilled file = spilled.remove(key);
+        if (file != null) {
+            spilledBytes -= file.bytes;
+            try {
+                Object value = read(file.path);
+                diskHits++;
+                put(key, value);
+                return value;
+            } catch (IOException e) {
+                // a damaged or deleted spill file is a miss
+            } finally {
+                deleteQuietly(file.path);
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Method caches a result and evicts the least recently used results beyond the budget.
+     * A result larger than the whole budget is not cached.
+     *
+     * @param key The key of the result.
+     * @param value The result, a String, CharHistogram or NGramHistogram.
+     */
+    public synchronized void put(final Key key, final Object value) {
+        long bytes = sizeOf(value);
+        if (bytes > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(key, new Entry(value, bytes));
+        if (previous != null) {
+            usedBytes -= previous.bytes;
+        }
+        usedBytes += bytes;
+        evict(maxBytes);
+    }
+
+    /**
+     * Method sets the budget of the results held in memory and evicts results beyond it.
+     *
+     * @param maxBytes The budget in bytes, 0 disables the cache.
+     */
+    public synchronized void setMaxBytes(final long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict(maxBytes);
+    }
+
+    /**
+     * Method enables or disables spilling evicted results to the disk. Disabling deletes all spill files.
+     *
+     * @param directory The directory of the spill files (created if needed), or null to disable spilling.
+     * @param maxSpillBytes The budget of the spill files in bytes.
+     */
+    public synchronized void setSpillDirectory(final Path directory, final long maxSpillBytes) {
+        if (!Objects.equals(directory, spillDirectory)) {
+            clearSpilled();
+        }
+        this.spillDirectory = directory;
+        this.maxSpillBytes = maxSpillBytes;
+        evictSpilled();
+    }
+
+    /**
+     * Method removes all results, also the spill files.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+        clearSpilled();
+    }
+
+    /**
+     * @return The approximate number of bytes of the results held in memory.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return The ratio of lookups found in memory or on the disk, 0 if there was no lookup.
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + diskHits + misses;
+        return lookups == 0 ? 0 : (double) (hits + diskHits) / lookups;
+    }
+
+    /**
+     * @return A summary of the hits and misses and the used budget, e.g. for the log.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("Result cache: %d hits (%d from disk), %d misses, hit rate %.0f%%, %d of %d MB used%s",
+                hits + diskHits, diskHits, misses, getHitRate() * 100, usedBytes >> 20, maxBytes >> 20,
+                spillDirectory != null ? ", " + (spilledBytes >> 20) + " MB spilled" : "");
+    }
+
+    /**
+     * Static method creates the key of a result of a text.
+     *
+     * @param text The processed text.
+     * @param settings The operation and all its settings, which influence the result, in a normalized form.
+     *
+     * @return The key.
+     */
+    public static Key key(final CharSequence text, final String settings) {
+        return new Key(hash(text), text.length(), settings);
+    }
+
+    /**
+     * Static method creates the key of a result of a file. The file is identified by its path, size
+     * and modification time, so it doesn't have to be read for a lookup.
+     *
+     * @param file The processed file.
+     * @param settings The operation and all its settings, which influence the result, in a normalized form.
+     *
+     * @return The key.
+     */
+    public static Key key(final File file, final String settings) {
+        String path = file.getAbsolutePath();
+        return new Key(hash(path) ^ file.lastModified() * P3, file.length(), "file:" + path + ";" + settings);
+    }
+
+    /**
+     * Static method computes a 64-bit hash of a text in the style of xxHash64. Four lanes consume
+     * 16 characters per round independently, so the multiplications of the lanes overlap in the CPU.
+     *
+     * @param text The text to be hashed.
+     *
+     * @return The hash.
+     */
+    public static long hash(final CharSequence text) {
+        int length = text.length();
+        long lane1 = P1 + P2;
+        long lane2 = P2;
+        long lane3 = 0;
+        long lane4 = -P1;
+        int i = 0;
+        for (; i + 16 <= length; i += 16) {
+            lane1 = round(lane1, pack(text, i));
+            lane2 = round(lane2, pack(text, i + 4));
+            lane3 = round(lane3, pack(text, i + 8));
+            lane4 = round(lane4, pack(text, i + 12));
+        }
+        long hash = Long.rotateLeft(lane1, 1) + Long.rotateLeft(lane2, 7)
+                + Long.rotateLeft(lane3, 12) + Long.rotateLeft(lane4, 18);
+        hash += length;
+        for (; i < length; i++) {
+            hash = Long.rotateLeft(hash ^ text.charAt(i) * P3, 11) * P1;
+        }
+        // final avalanche
+        hash ^= hash >>> 33;
+        hash *= P2;
+        hash ^= hash >>> 29;
+        hash *= P3;
+        return hash ^ hash >>> 32;
+    }
+
+    private static long pack(final CharSequence text, final int i) {
+        return (long) text.charAt(i) | (long) text.charAt(i + 1) << 16
+                | (long) text.charAt(i + 2) << 32 | (long) text.charAt(i + 3) << 48;
+    }
+
+    private static long round(final long lane, final long input) {
+        return Long.rotateLeft(lane + input * P2, 31) * P1;
+    }
+
+    /**
+     * Method evicts the least recently used results, until the results in memory fit into the budget.
+     * Evicted results are spilled to the disk, if enabled.
+     */
+    private void evict(final long budget) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (usedBytes > budget && iterator.hasNext()) {
+            Map.Entry<Key, Entry> eldest = iterator.next();
+            iterator.remove();
+            usedBytes -= eldest.getValue().bytes;
+            spill(eldest.getKey(), eldest.getValue().value);
+        }
+    }
+
+    private void spill(final Key key, final Object value) {
+        if (spillDirectory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(spillDirectory);
+            Path path = spillDirectory.resolve("result-" + (spillFiles++) + ".bin");
+            write(path, value);
+            long bytes = Files.size(path);
+            if (bytes > maxSpillBytes) {
+                deleteQuietly(path);
+                return;
+            }
+            spilled.put(key, new Spilled(path, bytes));
+            spilledBytes += bytes;
+            evictSpilled();
+        } catch (IOException | UncheckedIOException e) {
+            // the result is only lost, like without spilling
+        }
+    }
+
+    private void evictSpilled() {
+        Iterator<Spilled> iterator = spilled.values().iterator();
+        while (spilledBytes > maxSpillBytes && iterator.hasNext()) {
+            Spilled eldest = iterator.next();
+            iterator.remove();
+            spilledBytes -= eldest.bytes;
+            deleteQuietly(eldest.path);
+        }
+    }
+
+    private void clearSpilled() {
+        for (Spilled file : spilled.values()) {
+            deleteQuietly(file.path);
+        }
+        spilled.clear();
+        spilledBytes = 0;
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Static method estimates the heap size of a result.
+     */
+    private static long sizeOf(final Object value) {
+        if (value instanceof String) {
+            return 56L + 2L * ((String) value).length();     // Latin-1 strings only use half of it
+        } else if (value instanceof CompactText) {
+            return ((CompactText) value).getAllocatedBytes();
+        } else if (value instanceof CharHistogram) {
+            return ((CharHistogram) value).getAllocatedBytes();
+        } else if (value instanceof NGramHistogram) {
+            return ((NGramHistogram) value).getAllocatedBytes();
+        }
+        throw new IllegalArgumentException("Non cacheable result: " + value.getClass().getName());
+    }
+
+    /**
+     * Static method writes a result into a spill file.
+     */
+    private static void write(final Path path, final Object value) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            if (value instanceof String) {
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                out.writeByte(TYPE_STRING);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            } else if (value instanceof CompactText) {
+                CompactText text = (CompactText) value;
+                ByteBuffer bytes = text.getBytes();
+                out.writeByte(TYPE_COMPACT_TEXT);
+                out.writeBoolean(text.isLatin1());
+                out.writeInt(text.length());
+                out.writeInt(bytes.remaining());
+                byte[] chunk = new byte[Math.min(bytes.remaining(), 1 << 16)];
+                while (bytes.hasRemaining()) {
+                    int count = Math.min(bytes.remaining(), chunk.length);
+                    bytes.get(chunk, 0, count);
+                    out.write(chunk, 0, count);
+                }
+            } else if (value instanceof CharHistogram) {
+                CharHistogram histogram = (CharHistogram) value;
+                out.writeByte(TYPE_CHAR_HISTOGRAM);
+                out.writeInt(histogram.getDistinct());
+                histogram.forEach((char c, long count) -> {
+                    try {
+                        out.writeChar(c);
+                        out.writeLong(count);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } else {
+                NGramHistogram histogram = (NGramHistogram) value;
+                out.writeByte(TYPE_NGRAM_HISTOGRAM);
+                out.writeInt(histogram.getN());
+                out.writeBoolean(histogram.isLettersOnly());
+                out.writeInt(histogram.getDistinct());
+                histogram.forEach((long key, long count) -> {
+                    try {
+                        out.writeLong(key);
+                        out.writeLong(count);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Static method reads a result from a spill file.
+     */
+    private static Object read(final Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            byte type = in.readByte();
+            switch (type) {
+                case TYPE_STRING:
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    return new String(bytes, StandardCharsets.UTF_8);
+                case TYPE_COMPACT_TEXT:
+                    boolean latin1 = in.readBoolean();
+                    int length = in.readInt();
+                    byte[] textBytes = new byte[in.readInt()];
+                    in.readFully(textBytes);
+                    return CompactText.wrap(textBytes, length, latin1);
+                case TYPE_CHAR_HISTOGRAM:
+                    CharHistogram histogram = new CharHistogram();
+                    for (int i = in.readInt(); i > 0; i--) {
+                        histogram.add(in.readChar(), in.readLong());
+                    }
+                    return histogram;
+                case TYPE_NGRAM_HISTOGRAM:
+                    NGramHistogram nGrams = new NGramHistogram(in.readInt(), in.readBoolean());
+                    for (int i = in.readInt(); i > 0; i--) {
+                        nGrams.add(in.readLong(), in.readLong());
+                    }
+                    return nGrams;
+                default:
+                    throw new IOException("Unknown result type " + type + " in " + path);
+            }
+        }
+    }
+
+    /**
+     * Class represents the key of a cached result: the hash and length of the processed text
+     * and the normalized settings of the operation.
+     */
+    public static class Key {
+        private final long hash;
+        private final long length;
+        private final String settings;
+
+        public Key(final long hash, final long length, final String settings) {
+            this.hash = hash;
+            this.length = length;
+            this.settings = settings;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && length == key.length && settings.equals(key.settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + settings.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x:%d:%s", hash, length, settings);
+        }
+    }
+
+    /**
+     * Functional interface for computing a result, which is not cached.
+     */
+    @FunctionalInterface
+    public interface Computation<T> {
+        T compute() throws Exception;
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long bytes;
+
+        Entry(final Object value, final long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Spilled {
+        private final Path path;
+        private final long bytes;
+
+        Spilled(final Path path, final long bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+    }
+}
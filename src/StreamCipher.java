@@ -0,0 +1,410 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Class provides the table-driven kernels of the shift cipher, the polyalphabetic cipher and the
+ * monoalphabetic substitution cipher for the Text Analyser Application. Each shift is a precomputed 256-entry
+ * translation table for the Latin-1 range, the polyalphabetic cipher uses the table of each keyword letter in turn,
+ * the substitution cipher a single table of its alphabet.
+ * The text is encrypted chunk by chunk, the position in the keyword is carried from one chunk to the next,
+ * so a text of any size can be encrypted in bounded memory.
+ * ASCII bytes are encrypted eight at a time by the word kernels (see WordKernels), other bytes by the tables.
+ * The word kernels only shift letters, so a substitution cipher always uses its table.
+ * Like in Cryptography, non alphabetic characters and non latin alphabet characters will be ignored.
+ */
+public class StreamCipher {
+
+    private static final int BUFFER_SIZE = 1 << 16;     // chars per chunk, when transferring from a Reader
+    private static final int TABLE_SIZE = 256;
+    private static final long ALL_LETTERS = 0x0101010101010101L;       // letter mask of a word of eight letters
+    private static final int MIN_SCALAR_RUN = 64;           // bytes encrypted by the tables after a word the kernel can't take,
+    private static final int MAX_SCALAR_RUN = 1 << 12;      // doubled while the kernel can't take the following words either
+
+    private static final boolean[] LETTER = new boolean[TABLE_SIZE];           // ASCII A - Z and a - z
+    private static final int[] STEP = new int[TABLE_SIZE];                    // TABLE_SIZE for letters, else 0
+    private static final char[][] SHIFT_TABLES = new char[26][TABLE_SIZE];    // translation table of each shift
+    private static final byte[][] BYTE_SHIFT_TABLES = new byte[26][TABLE_SIZE];
+
+    static {
+        for (int shift = 0; shift < 26; shift++) {
+            for (int c = 0; c < TABLE_SIZE; c++) {
+                int translated = c;
+                if (c >= 'A' && c <= 'Z') {
+                    translated = 'A' + (c - 'A' + shift) % 26;
+                    LETTER[c] = true;
+                    STEP[c] = TABLE_SIZE;
+                } else if (c >= 'a' && c <= 'z') {
+                    translated = 'a' + (c - 'a' + shift) % 26;
+                    LETTER[c] = true;
+                    STEP[c] = TABLE_SIZE;
+                }
+                SHIFT_TABLES[shift][c] = (char) translated;
+                BYTE_SHIFT_TABLES[shift][c] = (byte) translated;
+            }
+        }
+    }
+
+    private final int[] shifts;         // shift of each keyword letter, the shift cipher has a single shift
+    private final String alphabet;      // cipher letters of A - Z of the substitution cipher, otherwise null
+    private final char[] keyTable;      // translation tables of all keyword letters, one after another
+    private final byte[] byteKeyTable;
+    private final long[] shiftWords;    // shifts of the next eight letters from each position in the keyword
+    private final int wordStep;         // positions in the keyword moved by a word of eight letters
+    private int keyIndex;               // position in the keyword for the next letter
+
+
+    private StreamCipher(final int[] shifts) {
+        this(shifts, null);
+    }
+
+    /**
+     * Constructor. A substitution cipher has a single table of its alphabet and a shift of 0 for the kernels,
+     * which are not used by it.
+     */
+    private StreamCipher(final int[] shifts, final String alphabet) {
+        this.shifts = shifts;
+        this.alphabet = alphabet;
+        this.keyTable = new char[shifts.length * TABLE_SIZE];
+        this.byteKeyTable = new byte[shifts.length * TABLE_SIZE];
+        for (int i = 0; i < shifts.length; i++) {
+            System.arraycopy(SHIFT_TABLES[shifts[i]], 0, keyTable, i * TABLE_SIZE, TABLE_SIZE);
+            System.arraycopy(BYTE_SHIFT_TABLES[shifts[i]], 0, byteKeyTable, i * TABLE_SIZE, TABLE_SIZE);
+        }
+        if (alphabet != null) {
+            for (int letter = 0; letter < 26; letter++) {
+                char translated = alphabet.charAt(letter);
+                keyTable['A' + letter] = translated;
+                keyTable['a' + letter] = (char) (translated - 'A' + 'a');
+                byteKeyTable['A' + letter] = (byte) keyTable['A' + letter];
+                byteKeyTable['a' + letter] = (byte) keyTable['a' + letter];
+            }
+        }
+        this.shiftWords = new long[shifts.length];
+        for (int i = 0; i < shifts.length; i++) {
+            shiftWords[i] = WordKernels.shiftWord(shifts, i);
+        }
+        this.wordStep = WordKernels.WORD_BYTES % shifts.length;
+    }
+
+    /**
+     * Static factory method for a shift cipher (caesar's cipher).
+     *
+     * @param shift The amount, each letter will be shifted to the right in the alphabet.
+     *              e.g. shift 3 will replace A -> D
+     * @return The StreamCipher.
+     */
+    public static StreamCipher shift(final int shift) {
+        return new StreamCipher(new int[] {Math.floorMod(shift, 26)});
+    }
+
+    /**
+     * Static factory method for a polyalphabetic substitution cipher (Vigenère cipher).
+     *
+     * @param keyword The keyword for the substitution. Has to be uppercase and it is only allowed
+     *                to contain letters of the latin alphabet (ASCII A - Z).
+     * @return The StreamCipher.
+     */
+    public static StreamCipher polyalphabetic(final String keyword) throws IllegalArgumentException {
+        if (keyword == null || keyword.length() == 0) {
+            throw new IllegalArgumentException("Non valid keyword");
+        }
+        // calculate offset of each keyword letter to ASCII code point A (65)
+        int[] shifts = new int[keyword.length()];
+        for (int i = 0; i < keyword.length(); i++) {
+            shifts[i] = Math.floorMod(keyword.charAt(i) - 'A', 26);
+        }
+        return new StreamCipher(shifts);
+    }
+
+    /**
+     * Static factory method for a monoalphabetic substitution cipher.
+     *
+     * @param alphabet The cipher alphabet, the letters A - Z are replaced by: a permutation of the 26 uppercase
+     *                 letters of the latin alphabet (ASCII A - Z), e.g. "QWERTYUIOPASDFGHJKLZXCVBNM" replaces A -> Q.
+     *                 The case of each letter is kept.
+     * @return The StreamCipher.
+     */
+    public static StreamCipher substitution(final String alphabet) throws IllegalArgumentException {
+        if (alphabet == null || alphabet.length() != 26) {
+            throw new IllegalArgumentException("Non valid alphabet, it needs 26 letters");
+        }
+        boolean[] used = new boolean[26];
+        for (int i = 0; i < 26; i++) {
+            char c = alphabet.charAt(i);
+            if (c < 'A' || c > 'Z' || used[c - 'A']) {
+                throw new IllegalArgumentException("Non valid alphabet, each letter A - Z has to occur once: " + alphabet);
+            }
+            used[c - 'A'] = true;
+        }
+        return new StreamCipher(new int[] {0}, alphabet);
+    }
+
+    /**
+     * Static method finds the alphabet of the inverse substitution.
+     *
+     * @param alphabet The cipher alphabet, see substitution().
+     * @return The alphabet, which replaces each letter of the cipher alphabet by its letter of A - Z.
+     */
+    public static String inverseAlphabet(final String alphabet) {
+        char[] inverse = new char[26];
+        for (int i = 0; i < 26; i++) {
+            inverse[alphabet.charAt(i) - 'A'] = (char) ('A' + i);
+        }
+        return new String(inverse);
+    }
+
+    /**
+     * @return The cipher alphabet of a substitution cipher, or null for a shift or polyalphabetic cipher.
+     */
+    public String getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Method creates the inverse of this cipher, using the inverse translation tables.
+     * The inverse cipher decrypts the cipher text of this cipher, starting at the beginning of the keyword.
+     *
+     * @return The StreamCipher for decryption.
+     */
+    public StreamCipher inverse() {
+        if (alphabet != null) {
+            return new StreamCipher(new int[] {0}, inverseAlphabet(alphabet));
+        }
+        int[] inverseShifts = new int[shifts.length];
+        for (int i = 0; i < shifts.length; i++) {
+            inverseShifts[i] = (26 - shifts[i]) % 26;
+        }
+        return new StreamCipher(inverseShifts);
+    }
+
+    /**
+     * Method encrypts a single character and moves on in the keyword, if the character is a letter.
+     *
+     * @param c The plane text character.
+     * @return The cipher text character.
+     */
+    public char encrypt(final char c) {
+        if (c < TABLE_SIZE && LETTER[c]) {
+            char translated = keyTable[keyIndex * TABLE_SIZE + c];
+            if (++keyIndex == shifts.length) {
+                keyIndex = 0;
+            }
+            return translated;
+        }
+        return c;
+    }
+
+    /**
+     * Method encrypts the characters of an array in place.
+     *
+     * @param chars The characters to be encrypted.
+     * @param from Index of the first character (inclusive).
+     * @param to Index of the last character (exclusive).
+     */
+    public void encrypt(final char[] chars, final int from, final int to) {
+        final char[] keyTable = this.keyTable;
+        if (shifts.length == 1) {
+            // single table: non letters are translated to themselves, no position to carry
+            for (int i = from; i < to; i++) {
+                char c = chars[i];
+                if (c < TABLE_SIZE) {
+                    chars[i] = keyTable[c];
+                }
+            }
+            return;
+        }
+        // the position in the keyword is the offset of the current table
+        final int end = keyTable.length;
+        int offset = keyIndex * TABLE_SIZE;
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            if (c < TABLE_SIZE) {
+                chars[i] = keyTable[offset + c];
+                offset += STEP[c];
+                if (offset == end) {
+                    offset = 0;
+                }
+            }
+        }
+        keyIndex = offset / TABLE_SIZE;
+    }
+
+    /**
+     * Method encrypts ASCII or Latin-1 encoded bytes of an array in place.
+     *
+     * @param bytes The bytes to be encrypted, each byte represents one character.
+     * @param from Index of the first byte (inclusive).
+     * @param to Index of the last byte (exclusive).
+     */
+    public void encrypt(final byte[] bytes, final int from, final int to) {
+        int i = from;
+        if (WordKernels.ENABLED && alphabet == null) {
+            int scalarRun = MIN_SCALAR_RUN;
+            while (i <= to - WordKernels.WORD_BYTES) {
+                long word = WordKernels.word(bytes, i);
+                long letters = WordKernels.letters(word);
+                if (!WordKernels.isAscii(word) || !isWholeWord(letters)) {
+                    int scalarEnd = Math.min(to, i + scalarRun);
+                    encryptBytes(bytes, i, scalarEnd);
+                    i = scalarEnd;
+                    scalarRun = Math.min(2 * scalarRun, MAX_SCALAR_RUN);
+                    continue;
+                }
+                scalarRun = MIN_SCALAR_RUN;
+                if (letters != 0) {
+                    WordKernels.setWord(bytes, i, WordKernels.shiftLetters(word, letters, nextShifts()));
+                }
+                i += WordKernels.WORD_BYTES;
+            }
+        }
+        encryptBytes(bytes, i, to);
+    }
+
+    /**
+     * Method encrypts the remaining ASCII or Latin-1 encoded bytes of a buffer in place.
+     * The position of the buffer is moved to its limit.
+     *
+     * @param buffer The bytes to be encrypted, each byte represents one character.
+     */
+    public void encrypt(final ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            encrypt(buffer.array(), offset + buffer.position(), offset + buffer.limit());
+            buffer.position(buffer.limit());
+            return;
+        }
+        int i = buffer.position();
+        final int to = buffer.limit();
+        if (WordKernels.ENABLED && alphabet == null) {
+            int scalarRun = MIN_SCALAR_RUN;
+            while (i <= to - WordKernels.WORD_BYTES) {
+                long word = WordKernels.word(buffer, i);
+                long letters = WordKernels.letters(word);
+                if (!WordKernels.isAscii(word) || !isWholeWord(letters)) {
+                    int scalarEnd = Math.min(to, i + scalarRun);
+                    encryptBytes(buffer, i, scalarEnd);
+                    i = scalarEnd;
+                    scalarRun = Math.min(2 * scalarRun, MAX_SCALAR_RUN);
+                    continue;
+                }
+                scalarRun = MIN_SCALAR_RUN;
+                if (letters != 0) {
+                    WordKernels.setWord(buffer, i, WordKernels.shiftLetters(word, letters, nextShifts()));
+                }
+                i += WordKernels.WORD_BYTES;
+            }
+        }
+        encryptBytes(buffer, i, to);
+        buffer.position(to);
+    }
+
+    /**
+     * Method checks, whether a word can be shifted as a whole. The shift cipher shifts all letters alike,
+     * the polyalphabetic cipher needs a word of eight letters or none, as the keyword letter of each lane
+     * depends on the letters before it.
+     *
+     * @param letters The letter lanes of the word, see WordKernels.letters().
+     */
+    private boolean isWholeWord(final long letters) {
+        return shifts.length == 1 || letters == ALL_LETTERS || letters == 0;
+    }
+
+    /**
+     * Method takes the shifts for a word of eight letters and moves on in the keyword by them.
+     * The shift cipher has a single word of shifts.
+     */
+    private long nextShifts() {
+        long word = shiftWords[keyIndex];
+        keyIndex += wordStep;
+        if (keyIndex >= shifts.length) {
+            keyIndex -= shifts.length;
+        }
+        return word;
+    }
+
+    /**
+     * Method encrypts bytes of an array one by one with the translation tables.
+     */
+    private void encryptBytes(final byte[] bytes, final int from, final int to) {
+        final byte[] keyTable = this.byteKeyTable;
+        final int end = keyTable.length;
+        int offset = keyIndex * TABLE_SIZE;
+        for (int i = from; i < to; i++) {
+            int c = bytes[i] & 0xFF;
+            bytes[i] = keyTable[offset + c];
+            offset += STEP[c];
+            if (offset == end) {
+                offset = 0;
+            }
+        }
+        keyIndex = offset / TABLE_SIZE;
+    }
+
+    /**
+     * Method encrypts bytes of a buffer one by one with the translation tables.
+     */
+    private void encryptBytes(final ByteBuffer buffer, final int from, final int to) {
+        final byte[] keyTable = this.byteKeyTable;
+        final int end = keyTable.length;
+        int offset = keyIndex * TABLE_SIZE;
+        for (int i = from; i < to; i++) {
+            int c = buffer.get(i) & 0xFF;
+            buffer.put(i, keyTable[offset + c]);
+            offset += STEP[c];
+            if (offset == end) {
+                offset = 0;
+            }
+        }
+        keyIndex = offset / TABLE_SIZE;
+    }
+
+    /**
+     * Method encrypts the remaining characters of a buffer in place.
+     * The position of the buffer is moved to its limit.
+     *
+     * @param buffer The characters to be encrypted.
+     */
+    public void encrypt(final CharBuffer buffer) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            encrypt(buffer.array(), offset + buffer.position(), offset + buffer.limit());
+        } else {
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                buffer.put(i, encrypt(buffer.get(i)));
+            }
+        }
+        buffer.position(buffer.limit());
+    }
+
+    /**
+     * Method reads a text from a Reader, encrypts it chunk by chunk and writes it to a Writer.
+     * Neither stream will be closed.
+     *
+     * @param in The plane text.
+     * @param out The cipher text.
+     * @return The number of encrypted characters.
+     * @throws IOException If reading or writing fails.
+     */
+    public long encrypt(final Reader in, final Writer out) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        long count = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            encrypt(buffer, 0, read);
+            out.write(buffer, 0, read);
+            count += read;
+        }
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Method resets the position in the keyword, so the cipher can be used for a new text.
+     */
+    public void reset() {
+        keyIndex = 0;
+    }
+}
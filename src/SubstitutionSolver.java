@@ -0,0 +1,367 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Class breaks monoalphabetic substitution ciphers for the Text Analyser Application by hill climbing:
+ * starting from a key, two letters of the key are swapped as long as this improves the log probability
+ * of the decrypted quadgrams in the language of the plane text (see LanguageProfile). A climb, which is stuck,
+ * is perturbed by a few random swaps and continues from there, if it gets better. Independent climbs from
+ * different keys run in parallel on the common ForkJoinPool, the best keys of all climbs are returned.
+ *
+ * The cipher text is counted only once: the quadgrams of its letters and their counts are the input of the climbs.
+ * A swap of two letters only changes the quadgrams containing one of them, so a swap is scored by the difference
+ * of these quadgrams, without decrypting the text.
+ *
+ * A profile without n-grams (e.g. the built-in English profile) only scores the letter frequencies,
+ * which rarely breaks the cipher completely, but still finds the frequent letters.
+ */
+public class SubstitutionSolver {
+
+    public static final int DEFAULT_RESTARTS = 16;         // independent climbs
+    public static final int MAX_CANDIDATES = 5;            // best distinct keys returned
+
+    private static final int QUADGRAMS = 26 * 26 * 26 * 26;
+    private static final int MAX_PERTURBATIONS = 20;       // perturbations of a climb without improvement
+    private static final int PERTURBATION_SWAPS = 3;       // random swaps of a perturbation
+    private static final long SEED = 0x5EED5EEDL;          // the climbs are seeded by their index, so results are repeatable
+    private static final double MIN_FREQUENCY = 1e-5;      // frequency of a letter missing in a profile
+
+    private static final Metrics.Stage SUBSTITUTION_METRICS = Metrics.stage("crackSubstitution", "chars");
+
+    private final float[] table;        // log10 probability of each quadgram of the plane text
+    private final int[] grams;          // letters of the distinct quadgrams of the cipher text, four per quadgram
+    private final int[] counts;         // count of each distinct quadgram
+    private final int[][] gramsOf;      // indices of the quadgrams containing each letter of the cipher text
+    private final int[] masks;          // bit mask of the letters of each quadgram
+    private final long total;           // quadgrams of the cipher text
+    private final int[] frequencyKey;   // decryption by the ranks of the letter frequencies
+
+
+    /**
+     * Constructor. Prepares the quadgrams of a cipher text for the climbs.
+     *
+     * @param quadgrams The quadgrams of the latin letters of the cipher text, see NGramHistogram.
+     * @param letterCounts Frequency of each letter A to Z in the cipher text.
+     * @param profile The language of the plane text.
+     */
+    public SubstitutionSolver(final NGramHistogram quadgrams, final long[] letterCounts, final LanguageProfile profile) {
+        if (quadgrams.getN() != 4 || !quadgrams.isLettersOnly()) {
+            throw new IllegalArgumentException("Quadgrams of latin letters needed, not " + quadgrams.getN() + "-grams");
+        }
+        this.table = scoreTable(profile);
+        this.grams = new int[4 * quadgrams.getDistinct()];
+        this.counts = new int[quadgrams.getDistinct()];
+        this.masks = new int[counts.length];
+        final int[] letterGrams = new int[26];
+        final int[] distinct = new int[1];
+        quadgrams.forEach((long key, long count) -> {
+            int index = distinct[0]++;
+            int rest = (int) key;
+            for (int i = 3; i >= 0; i--) {
+                int letter = rest % 26;
+                grams[4 * index + i] = letter;
+                rest /= 26;
+                masks[index] |= 1 << letter;
+            }
+            counts[index] = (int) count;
+            for (int letter = 0; letter < 26; letter++) {
+                if ((masks[index] & 1 << letter) != 0) {
+                    letterGrams[letter]++;
+                }
+            }
+        });
+        this.gramsOf = new int[26][];
+        for (int letter = 0; letter < 26; letter++) {
+            gramsOf[letter] = new int[letterGrams[letter]];
+            letterGrams[letter] = 0;
+        }
+        for (int index = 0; index < counts.length; index++) {
+            for (int letter = 0; letter < 26; letter++) {
+                if ((masks[index] & 1 << letter) != 0) {
+                    gramsOf[letter][letterGrams[letter]++] = index;
+                }
+            }
+        }
+        this.total = quadgrams.getTotal();
+        this.frequencyKey = frequencyKey(letterCounts, profile.getLetterFrequencies());
+    }
+
+    /**
+     * Static method breaks a monoalphabetic substitution cipher. The quadgrams and letters of the text are counted
+     * in parallel first, then the climbs run in parallel.
+     *
+     * @param text The cipher text.
+     * @param profile The language of the plane text, which should contain n-grams.
+     * @param restarts The number of independent climbs.
+     *
+     * @return The best distinct keys, ranked from the most to the least probable.
+     */
+    public static List<AlphabetCandidate> crack(final CharSequence text, final LanguageProfile profile,
+                                                final int restarts) {
+        Metrics.Timer timer = SUBSTITUTION_METRICS.start();
+        NGramHistogram quadgrams = Cryptography.parallelNGramHistogram(text, 0, text.length(), 4, true);
+        long[] letterCounts = Cryptanalysis.letterCounts(Cryptography.parallelFrequencyHistogram(text));
+        List<AlphabetCandidate> candidates = new SubstitutionSolver(quadgrams, letterCounts, profile).solve(restarts);
+        timer.stop(text.length());
+        return candidates;
+    }
+
+    /**
+     * Method runs the climbs in parallel, the first starts from the letter frequencies, the others from random keys.
+     *
+     * @param restarts The number of independent climbs.
+     *
+     * @return The best distinct keys, ranked from the most to the least probable.
+     */
+    public List<AlphabetCandidate> solve(final int restarts) {
+        List<AlphabetCandidate> results = IntStream.range(0, Math.max(1, restarts))
+                .parallel()
+                .mapToObj(this::climb)
+                .sorted(Comparator.comparingDouble(AlphabetCandidate::getScore).reversed())
+                .collect(Collectors.toList());
+        // several climbs usually end with the same key, or differ only in letters missing in the cipher text
+        Map<String, AlphabetCandidate> distinct = new LinkedHashMap<>();
+        for (AlphabetCandidate candidate : results) {
+            char[] usedLetters = candidate.getAlphabet().toCharArray();
+            for (int i = 0; i < 26; i++) {
+                if (gramsOf[usedLetters[i] - 'A'].length == 0) {
+                    usedLetters[i] = '.';
+                }
+            }
+            if (distinct.size() < MAX_CANDIDATES) {
+                distinct.putIfAbsent(new String(usedLetters), candidate);
+            }
+        }
+        return new ArrayList<>(distinct.values());
+    }
+
+    /**
+     * Method climbs from a start key to the best key it finds.
+     *
+     * @param restart The index of the climb, which seeds its random generator.
+     */
+    private AlphabetCandidate climb(final int restart) {
+        SplittableRandom random = new SplittableRandom(SEED + restart);
+        int[] key = frequencyKey.clone();
+        if (restart > 0) {
+            for (int i = 25; i > 0; i--) {
+                swap(key, i, random.nextInt(i + 1));
+            }
+        }
+        Climb climb = new Climb(key);
+        climb.improve();
+        int[] bestKey = climb.key.clone();
+        double bestScore = climb.score;
+        // iterated local search: perturb the best key and climb again, until it fails to improve for a while
+        for (int failed = 0; failed < MAX_PERTURBATIONS; failed++) {
+            for (int i = 0; i < PERTURBATION_SWAPS; i++) {
+                climb.swap(random.nextInt(26), random.nextInt(26), true);
+            }
+            climb.improve();
+            if (climb.score > bestScore + 1e-9) {
+                bestKey = climb.key.clone();
+                bestScore = climb.score;
+                failed = -1;
+            } else {
+                climb.reset(bestKey);
+            }
+        }
+        return new AlphabetCandidate(alphabet(bestKey), total > 0 ? bestScore / total : 0);
+    }
+
+    /**
+     * Inner class for the state of a climb: the key and the log probability of each decrypted quadgram.
+     */
+    private class Climb {
+        private final int[] key = new int[26];          // plane letter of each cipher letter
+        private final float[] logProbabilities = new float[counts.length];
+        private final float[] changed = new float[counts.length];   // log probabilities of the quadgrams of a swap
+        private final int[] changedGrams = new int[counts.length];
+        private double score;
+
+        Climb(final int[] start) {
+            reset(start);
+        }
+
+        /**
+         * Method sets the key and scores all quadgrams.
+         */
+        void reset(final int[] start) {
+            System.arraycopy(start, 0, key, 0, 26);
+            score = 0;
+            for (int index = 0; index < counts.length; index++) {
+                logProbabilities[index] = table[decrypt(index)];
+                score += (double) counts[index] * logProbabilities[index];
+            }
+        }
+
+        /**
+         * Method swaps letter pairs, as long as any swap improves the score.
+         */
+        void improve() {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int a = 0; a < 25; a++) {
+                    for (int b = a + 1; b < 26; b++) {
+                        if (swap(a, b, false)) {
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Method swaps the plane letters of two cipher letters and keeps the swap, if it improves the score.
+         * Only the quadgrams containing one of the letters are scored again.
+         *
+         * @param force True to keep the swap anyway, e.g. to perturb the key.
+         *
+         * @return True if the swap is kept.
+         */
+        boolean swap(final int a, final int b, final boolean force) {
+            if (a == b || (!force && gramsOf[a].length == 0 && gramsOf[b].length == 0)) {
+                return false;
+            }
+            SubstitutionSolver.swap(key, a, b);
+            double delta = 0;
+            int changedCount = 0;
+            for (int index : gramsOf[a]) {
+                float logProbability = table[decrypt(index)];
+                delta += counts[index] * (double) (logProbability - logProbabilities[index]);
+                changed[changedCount] = logProbability;
+                changedGrams[changedCount++] = index;
+            }
+            for (int index : gramsOf[b]) {
+                if ((masks[index] & 1 << a) != 0) {
+                    continue;   // scored with the quadgrams of a
+                }
+                float logProbability = table[decrypt(index)];
+                delta += counts[index] * (double) (logProbability - logProbabilities[index]);
+                changed[changedCount] = logProbability;
+                changedGrams[changedCount++] = index;
+            }
+            if (!force && delta <= 1e-9) {
+                SubstitutionSolver.swap(key, a, b);
+                return false;
+            }
+            for (int i = 0; i < changedCount; i++) {
+                logProbabilities[changedGrams[i]] = changed[i];
+            }
+            score += delta;
+            return true;
+        }
+
+        /**
+         * Method decrypts a quadgram with the key.
+         *
+         * @return The index of the decrypted quadgram in the score table.
+         */
+        private int decrypt(final int index) {
+            int offset = 4 * index;
+            return ((key[grams[offset]] * 26 + key[grams[offset + 1]]) * 26 + key[grams[offset + 2]]) * 26
+                    + key[grams[offset + 3]];
+        }
+    }
+
+    /**
+     * Static method reads the quadgram log probabilities of a profile into the heap, where the climbs
+     * look them up fastest. A profile without n-grams scores a quadgram by the frequencies of its letters.
+     */
+    private static float[] scoreTable(final LanguageProfile profile) {
+        float[] table = new float[QUADGRAMS];
+        if (profile.hasNGrams()) {
+            for (int i = 0; i < QUADGRAMS; i++) {
+                table[i] = profile.getQuadgramLogProbability(i);
+            }
+            return table;
+        }
+        double[] frequencies = profile.getLetterFrequencies();
+        double[] logFrequencies = new double[26];
+        for (int letter = 0; letter < 26; letter++) {
+            logFrequencies[letter] = Math.log10(Math.max(frequencies[letter], MIN_FREQUENCY));
+        }
+        for (int i = 0; i < QUADGRAMS; i++) {
+            table[i] = (float) (logFrequencies[i / 17576] + logFrequencies[i / 676 % 26]
+                    + logFrequencies[i / 26 % 26] + logFrequencies[i % 26]);
+        }
+        return table;
+    }
+
+    /**
+     * Static method finds the key, which decrypts the n-th most frequent cipher letter
+     * to the n-th most frequent letter of the language.
+     */
+    private static int[] frequencyKey(final long[] letterCounts, final double[] frequencies) {
+        Integer[] cipherLetters = new Integer[26];
+        Integer[] planeLetters = new Integer[26];
+        for (int letter = 0; letter < 26; letter++) {
+            cipherLetters[letter] = letter;
+            planeLetters[letter] = letter;
+        }
+        Arrays.sort(cipherLetters, Comparator.comparingLong((Integer letter) -> letterCounts[letter]).reversed());
+        Arrays.sort(planeLetters, Comparator.comparingDouble((Integer letter) -> frequencies[letter]).reversed());
+        int[] key = new int[26];
+        for (int rank = 0; rank < 26; rank++) {
+            key[cipherLetters[rank]] = planeLetters[rank];
+        }
+        return key;
+    }
+
+    /**
+     * Static method converts a decryption key to the cipher alphabet, which encrypts the plane text.
+     */
+    private static String alphabet(final int[] key) {
+        char[] alphabet = new char[26];
+        for (int cipherLetter = 0; cipherLetter < 26; cipherLetter++) {
+            alphabet[key[cipherLetter]] = (char) ('A' + cipherLetter);
+        }
+        return new String(alphabet);
+    }
+
+    private static void swap(final int[] key, final int a, final int b) {
+        int letter = key[a];
+        key[a] = key[b];
+        key[b] = letter;
+    }
+
+    /**
+     * Class represents a possible cipher alphabet of a substitution cipher with its score.
+     */
+    public static class AlphabetCandidate {
+        private final String alphabet;
+        private final double score;
+
+        public AlphabetCandidate(String alphabet, double score) {
+            this.alphabet = alphabet;
+            this.score = score;
+        }
+
+        /**
+         * @return The cipher alphabet, see StreamCipher.substitution().
+         */
+        public String getAlphabet() {
+            return alphabet;
+        }
+
+        /**
+         * @return The mean log10 probability of the decrypted quadgrams, the higher the better.
+         */
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s  (log p %.2f)", alphabet, score);
+        }
+    }
+}
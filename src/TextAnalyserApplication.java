@@ -10,9 +10,23 @@ public class TextAnalyserApplication {
 
     /**
      * Main method for Text Analyser Application.
-     * @param args not used
+     * Starts the headless command-line mode, if the first argument is one of its commands
+     * (see TextAnalyserCli), otherwise the UI.
+     * @param args command and options of the command-line mode, or none for the UI
      */
     public static void main(String[] args) {
+        // periodic JSON snapshots of the metrics, if the system property textanalyser.metrics.file is set
+        Metrics.startSnapshotsFromProperties();
+        // reference profiles of further languages, from the directory textanalyser.profiles or "profiles"
+        LanguageProfile.loadProfilesFromProperties();
+        if (TextAnalyserCli.isCommand(args)) {
+            // the UI classes are not loaded, so the JavaFX toolkit is never initialized
+            System.exit(new TextAnalyserCli(System.out, System.err).run(args));
+        }
+        launchUI(args);
+    }
+
+    private static void launchUI(String[] args) {
         TextAnalyserUI.launch(TextAnalyserUI.class, args);
     }
 
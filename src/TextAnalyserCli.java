@@ -0,0 +1,878 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Class provides the headless command-line mode of the Text Analyser Application.
+ * Files, directories (recursively) and glob patterns are analysed, encrypted or decrypted.
+ * The files are read concurrently and processed by a pool of workers, see FileIngestionScheduler.
+ * This class doesn't use any JavaFX classes, so the JavaFX toolkit is never initialized.
+ */
+public class TextAnalyserCli {
+
+    public static final int EXIT_SUCCESS = 0;
+    public static final int EXIT_FAILURE = 1;      // at least one file could not be processed
+    public static final int EXIT_USAGE = 2;        // invalid command or options
+
+    private static final int MAX_KEY_LENGTH = 40;  // longest keyword examined, when breaking a cipher
+    private static final int CRACK_SAMPLE_SIZE = 1 << 22;   // chars of a large file examined to break a keyword
+    private static final long DEFAULT_MAX_IN_FLIGHT_MB = 256;
+    private static final int DEFAULT_TOP_NGRAMS = 100;
+    private static final int DEFAULT_MAX_QUEUE = 16;
+    private static final long DEFAULT_MAX_REQUEST_MB = 64;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: TextAnalyserApplication <command> [options] <file|directory|glob>...",
+            "       TextAnalyserApplication serve [--port <n>] [--workers <n>] [--max-queue <n>] [--max-request <MB>]",
+            "",
+            "Commands:",
+            "  analyse     frequency-analysis of each file",
+            "  encrypt     encrypts each file into the output directory",
+            "  decrypt     decrypts each file into the output directory, with a key or by breaking the cipher",
+            "  detect      ranks the languages of the loaded profiles for each file",
+            "  profile     builds the reference profile of a language from corpus files, see LanguageProfile",
+            "  serve       local HTTP service on the loopback address, see TextAnalyserServer",
+            "  help        shows this message",
+            "",
+            "Options:",
+            "  --workers <n>              threads processing the files (default: number of processors)",
+            "  --max-in-flight <MB>       cap of the file contents read, but not yet processed (default: 256)",
+            "  --output <directory>       directory of the result files (analyse: default standard output)",
+            "  --format csv|json          format of the histograms (default: csv)",
+            "  --charset <name>           charset of the input files, results are written as UTF-8 (default: UTF-8)",
+            "  --merge                    analyse: one histogram of all files",
+            "  --ngram <n>                analyse: n-grams of latin letters instead of single characters",
+            "  --top <k>                  analyse: number of the most frequent n-grams (default: 100)",
+            "  --shift <n>                shift cipher with the shift n",
+            "  --keyword <keyword>        polyalphabetic cipher with the keyword",
+            "  --alphabet <alphabet>      substitution cipher with the cipher alphabet of the letters A - Z",
+            "  --crack shift|polyalphabetic|substitution",
+            "                             decrypt: break the cipher and decrypt with the most probable key",
+            "  --remove-whitespace, --remove-punctuation, --only-alphanumeric, --upper-case",
+            "                             encrypt: character handling before the encryption",
+            "  --language <name>          profile: name of the language, the profile is written to the output directory",
+            "  --profiles <directory>     loads the language profiles of the directory (default: ./profiles)",
+            "  --metrics <file>           writes timings, throughput and queue depths as JSON snapshot",
+            "  --port <n>                 serve: port of the HTTP service (default: 8080)",
+            "  --max-queue <n>            serve: requests waiting for a worker, before 429 is returned (default: 16)",
+            "  --max-request <MB>         serve: largest request body (default: 64)",
+            "");
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    private String command;
+    private final List<String> inputs = new ArrayList<>();
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_MB << 20;
+    private Path outputDirectory;
+    private String format = "csv";
+    private Charset charset = StandardCharsets.UTF_8;
+    private boolean merge;
+    private int nGramLength = 1;
+    private int topNGrams = DEFAULT_TOP_NGRAMS;
+    private Integer shift;
+    private String keyword;
+    private String alphabet;
+    private String crack;
+    private boolean removeWhitespace;
+    private boolean removePunctuation;
+    private boolean onlyAlphaNumeric;
+    private boolean toUpperCase;
+    private String language;
+    private Path profilesDirectory;
+    private Path metricsFile;
+    private int port = TextAnalyserServer.DEFAULT_PORT;
+    private int maxQueue = DEFAULT_MAX_QUEUE;
+    private long maxRequestBytes = DEFAULT_MAX_REQUEST_MB << 20;
+
+    private final CharHistogram merged = new CharHistogram();   // histograms of all files, if merged
+    private NGramHistogram mergedNGrams;
+    private CorpusCounts corpus;                                // counts of all files of a profile
+
+
+    /**
+     * Constructor.
+     *
+     * @param out Stream for the results.
+     * @param err Stream for progress and error messages.
+     */
+    public TextAnalyserCli(final PrintStream out, final PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Static method checks, if the command-line arguments select the headless mode.
+     *
+     * @param args The command-line arguments.
+     *
+     * @return True if the first argument is a command of the command-line mode.
+     */
+    public static boolean isCommand(final String[] args) {
+        if (args.length == 0) {
+            return false;
+        }
+        switch (args[0]) {
+            case "analyse":
+            case "encrypt":
+            case "decrypt":
+            case "detect":
+            case "profile":
+            case "serve":
+            case "help":
+            case "--help":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Method parses the arguments and processes all input files.
+     *
+     * @param args The command-line arguments, starting with the command.
+     *
+     * @return The exit code.
+     */
+    public int run(final String[] args) {
+        try {
+            parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return EXIT_USAGE;
+        }
+        if (command.equals("help") || command.equals("--help")) {
+            out.print(USAGE);
+            return EXIT_SUCCESS;
+        }
+        if (command.equals("serve")) {
+            return serve();
+        }
+
+        if (profilesDirectory != null) {
+            try {
+                LanguageProfile.loadProfiles(profilesDirectory);
+            } catch (IOException e) {
+                err.println(e.getMessage());
+                return EXIT_FAILURE;
+            }
+        }
+
+        List<Input> files;
+        try {
+            files = resolveInputs();
+        } catch (IOException | IllegalArgumentException e) {
+            err.println(e.getMessage());
+            return EXIT_FAILURE;
+        }
+        if (files.size() > 1 && command.equals("analyse") && outputDirectory == null && !merge) {
+            err.println("Several files need --output or --merge");
+            return EXIT_USAGE;
+        }
+
+        if (metricsFile != null) {
+            Metrics.startSnapshots(metricsFile, Long.getLong(Metrics.PERIOD_PROPERTY, 10));
+        }
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> results = new ArrayList<>(files.size());
+        mergedNGrams = nGramLength > 1 ? new NGramHistogram(nGramLength, true) : null;
+        corpus = command.equals("profile") ? new CorpusCounts() : null;
+        int failed = 0;
+        try (FileIngestionScheduler scheduler = new FileIngestionScheduler(workers, maxInFlightBytes)) {
+            Metrics.registerGauge("ingestion.queueDepth", scheduler::getQueueDepth);
+            Metrics.registerGauge("ingestion.inFlightBytes", scheduler::getInFlightBytes);
+            for (Input input : files) {
+                results.add(submit(scheduler, input));
+            }
+
+            // results are reported in the order of the inputs, while later files are still processed
+            boolean toStandardOutput = command.equals("analyse") && outputDirectory == null && !merge
+                    || command.equals("detect");
+            for (int i = 0; i < files.size(); i++) {
+                Input input = files.get(i);
+                try {
+                    String result = results.get(i).get();
+                    if (result == null && input.explicit) {
+                        failed++;
+                        err.println(input.file + ": No valid file was selected!");
+                    } else if (result != null && toStandardOutput) {
+                        out.print(result);
+                    } else if (result != null && !result.isEmpty()) {
+                        err.println(input.file + ": " + result);
+                    }
+                } catch (ExecutionException e) {
+                    failed++;
+                    Throwable cause = e.getCause();
+                    err.println(input.file + ": " + (cause.getMessage() != null ? cause.getMessage() : cause));
+                }
+            }
+        } catch (InterruptedException e) {
+            err.println("Interrupted");
+            return EXIT_FAILURE;
+        } finally {
+            Metrics.unregisterGauge("ingestion.queueDepth");
+            Metrics.unregisterGauge("ingestion.inFlightBytes");
+        }
+        if (merge && command.equals("analyse")) {
+            try {
+                writeMerged();
+            } catch (IOException e) {
+                err.println(e.getMessage());
+                return EXIT_FAILURE;
+            }
+        }
+        if (command.equals("profile")) {
+            try {
+                writeProfile();
+            } catch (IOException | IllegalArgumentException e) {
+                err.println(e.getMessage());
+                return EXIT_FAILURE;
+            }
+        }
+        err.printf("%d files processed, %d failed in %d ms%n",
+                files.size(), failed, (System.nanoTime() - start) / 1_000_000);
+        try {
+            // the last snapshot, before the JVM exits (also of snapshots started by the system property)
+            Metrics.stopSnapshots();
+        } catch (IOException e) {
+            err.println(e.getMessage());
+        }
+        if (metricsFile != null) {
+            for (String line : Metrics.summary()) {
+                err.println(line);
+            }
+        }
+        return failed == 0 ? EXIT_SUCCESS : EXIT_FAILURE;
+    }
+
+    /**
+     * Method runs the HTTP service on the loopback address, until the JVM is stopped (e.g. by Ctrl+C).
+     *
+     * @return The exit code.
+     */
+    private int serve() {
+        if (metricsFile != null) {
+            Metrics.startSnapshots(metricsFile, Long.getLong(Metrics.PERIOD_PROPERTY, 10));
+        }
+        TextAnalyserServer server;
+        try {
+            server = new TextAnalyserServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                    workers, maxQueue, maxRequestBytes);
+        } catch (IOException e) {
+            err.println("Port " + port + ": " + e.getMessage());
+            return EXIT_FAILURE;
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            try {
+                Metrics.stopSnapshots();
+            } catch (IOException e) {
+                // the periodic snapshots have been written
+            }
+        }));
+        err.println("Listening on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+        try {
+            server.awaitStop();
+        } catch (InterruptedException e) {
+            server.stop(0);
+            return EXIT_FAILURE;
+        }
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Method schedules the processing of one input file. The content is counted or ciphered
+     * on a processing thread, the results are written on the reading thread.
+     *
+     * @return Future of the message for the log (or of the histogram for the standard output, or empty if merged),
+     *         or of null, if the file doesn't contain text.
+     */
+    private CompletableFuture<String> submit(final FileIngestionScheduler scheduler, final Input input) {
+        switch (command) {
+            case "analyse":
+                if (nGramLength > 1) {
+                    return submitNGrams(scheduler, input);
+                }
+                return scheduler.submit(input.file,
+                        (Path file, byte[] content) -> content != null
+                                ? TextAnalyserIO.analyseBytes(ByteBuffer.wrap(content), charset)
+                                : TextAnalyserIO.analyseFile(file.toFile(), charset),
+                        (Path file, CharHistogram histogram) -> {
+                            if (merge) {
+                                synchronized (merged) {
+                                    merged.merge(histogram);
+                                }
+                            } else if (outputDirectory != null) {
+                                try (Writer writer = Files.newBufferedWriter(outputFile(input, "." + format), StandardCharsets.UTF_8)) {
+                                    writeHistogram(histogram, writer);
+                                }
+                            }
+                        }
+                ).thenApply((CharHistogram histogram) -> {
+                    if (histogram == null || merge) {
+                        return histogram == null ? null : "";
+                    }
+                    return outputDirectory == null ? formatHistogram(histogram)
+                            : histogram.getTotal() + " characters analysed to " + outputDirectory.resolve(input.relativePath + "." + format);
+                });
+            case "detect":
+                return scheduler.submit(input.file,
+                        (Path file, byte[] content) -> content != null
+                                ? TextAnalyserIO.analyseBytes(ByteBuffer.wrap(content), charset)
+                                : TextAnalyserIO.analyseFile(file.toFile(), charset),
+                        (Path file, CharHistogram histogram) -> {
+                        }
+                ).thenApply((CharHistogram histogram) -> histogram == null ? null
+                        : input.file + ": " + LanguageProfile.detect(histogram, false).stream()
+                                .map(LanguageProfile.LanguageScore::toString)
+                                .collect(Collectors.joining(", ")) + "\n");
+            case "profile":
+                return scheduler.submit(input.file,
+                        (Path file, byte[] content) -> CorpusCounts.of(file, content, charset),
+                        (Path file, CorpusCounts counts) -> {
+                            synchronized (corpus) {
+                                corpus.merge(counts);
+                            }
+                        }
+                ).thenApply((CorpusCounts counts) -> counts == null ? null : "");
+            case "encrypt":
+                return scheduler.submit(input.file,
+                        (Path file, byte[] content) -> cipher(input, content, new TextNormalizer(
+                                removeWhitespace, removePunctuation, onlyAlphaNumeric, toUpperCase, createCipher())),
+                        this::writeOutput
+                ).thenApply((Output output) -> output == null ? null : "encrypted to " + output.target);
+            default:
+                return scheduler.submit(input.file,
+                        (Path file, byte[] content) -> {
+                            String key = crack == null ? (shift != null ? String.valueOf(shift) : keyword != null ? keyword : alphabet)
+                                    : crackKey(file, content);
+                            StreamCipher cipher = crack == null ? createCipher()
+                                    : crack.equals("substitution") ? StreamCipher.substitution(key) : StreamCipher.polyalphabetic(key);
+                            Output output = cipher(input, content, new TextNormalizer(false, false, false, false, cipher.inverse()));
+                            output.message = "decrypted to " + output.target + " (key: " + key + ")";
+                            return output;
+                        },
+                        this::writeOutput
+                ).thenApply((Output output) -> output == null ? null
+                        : output.message != null ? output.message : "decrypted to " + output.target);
+        }
+    }
+
+    /**
+     * Method schedules the n-gram analysis of one input file, see submit().
+     */
+    private CompletableFuture<String> submitNGrams(final FileIngestionScheduler scheduler, final Input input) {
+        return scheduler.submit(input.file,
+                (Path file, byte[] content) -> {
+                    if (content == null) {
+                        return TextAnalyserIO.analyseFileNGrams(file.toFile(), charset, nGramLength, true);
+                    }
+                    NGramHistogram histogram = new NGramHistogram(nGramLength, true);
+                    histogram.addAll(new String(content, charset));
+                    return histogram;
+                },
+                (Path file, NGramHistogram histogram) -> {
+                    if (merge) {
+                        synchronized (mergedNGrams) {
+                            mergedNGrams.merge(histogram);
+                        }
+                    } else if (outputDirectory != null) {
+                        try (Writer writer = Files.newBufferedWriter(outputFile(input, "." + format), StandardCharsets.UTF_8)) {
+                            writeNGrams(histogram, writer);
+                        }
+                    }
+                }
+        ).thenApply((NGramHistogram histogram) -> {
+            if (histogram == null || merge) {
+                return histogram == null ? null : "";
+            }
+            return outputDirectory == null ? formatNGrams(histogram)
+                    : histogram.getTotal() + " " + nGramLength + "-grams analysed to " + outputDirectory.resolve(input.relativePath + "." + format);
+        });
+    }
+
+    /**
+     * Method normalizes and ciphers the content of an input file. Files, which are too large to be read at once,
+     * are streamed into the output file directly.
+     */
+    private Output cipher(final Input input, final byte[] content, final TextNormalizer normalizer) throws IOException {
+        Path target = outputFile(input, "");
+        if (content == null) {
+            TextAnalyserIO.encryptFile(input.file.toFile(), charset, target.toFile(), normalizer);
+            return new Output(target, null);
+        }
+        return new Output(target, normalizer.normalize(new String(content, charset)));
+    }
+
+    private void writeOutput(final Path file, final Output output) throws IOException {
+        if (output.text != null) {
+            Files.write(output.target, output.text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Method breaks the cipher of a file and returns the most probable key as keyword,
+     * or as cipher alphabet for the substitution cipher. Of a file, which is too large to be read at once,
+     * only the beginning is examined, so the cap of the bytes in flight holds (see FileIngestionScheduler).
+     */
+    private String crackKey(final Path file, final byte[] content) throws IOException {
+        if (crack.equals("shift")) {
+            CharHistogram histogram = content != null
+                    ? TextAnalyserIO.analyseBytes(ByteBuffer.wrap(content), charset)
+                    : TextAnalyserIO.analyseFile(file.toFile(), charset);
+            LanguageProfile profile = LanguageProfile.detect(histogram, true).get(0).getProfile();
+            List<Cryptanalysis.ShiftCandidate> candidates = Cryptanalysis.crackShiftCipher(histogram, profile.getLetterFrequencies());
+            WordDictionary dictionary = profile.getDictionary();
+            if (dictionary != null) {
+                candidates = dictionary.preferBest(content != null ? new String(content, charset)
+                                : readSample(file, WordDictionary.SAMPLE_SIZE), candidates,
+                        (Cryptanalysis.ShiftCandidate candidate) -> String.valueOf((char) ('A' + candidate.getShift())));
+            }
+            return String.valueOf((char) ('A' + candidates.get(0).getShift()));
+        }
+        String text = content != null ? new String(content, charset) : readSample(file, CRACK_SAMPLE_SIZE);
+        if (crack.equals("substitution")) {
+            LanguageProfile profile = LanguageProfile.detectSubstitution(Cryptography.parallelFrequencyHistogram(text));
+            List<SubstitutionSolver.AlphabetCandidate> candidates =
+                    SubstitutionSolver.crack(text, profile, SubstitutionSolver.DEFAULT_RESTARTS);
+            return candidates.get(0).getAlphabet();
+        }
+        LanguageProfile profile = LanguageProfile.detectPolyalphabetic(text, MAX_KEY_LENGTH);
+        List<Cryptanalysis.KeywordCandidate> candidates = Cryptanalysis.crackPolyalphabeticCipher(
+                text, profile.getLetterFrequencies(), MAX_KEY_LENGTH);
+        if (candidates.isEmpty()) {
+            throw new IOException("No letters to break the cipher");
+        }
+        WordDictionary dictionary = profile.getDictionary();
+        if (dictionary != null) {
+            candidates = dictionary.preferBest(text, candidates, Cryptanalysis.KeywordCandidate::getKeyword);
+        }
+        return candidates.get(0).getKeyword();
+    }
+
+    /**
+     * Method reads the beginning of a file, which is too large to be read at once.
+     */
+    private String readSample(final Path file, final int maxChars) throws IOException {
+        char[] buffer = new char[maxChars];
+        int length = 0;
+        try (Reader in = new InputStreamReader(Files.newInputStream(file), charset)) {
+            int read;
+            while (length < maxChars && (read = in.read(buffer, length, maxChars - length)) != -1) {
+                length += read;
+            }
+        }
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Method creates a StreamCipher for the key options.
+     */
+    private StreamCipher createCipher() {
+        return shift != null ? StreamCipher.shift(shift)
+                : keyword != null ? StreamCipher.polyalphabetic(keyword) : StreamCipher.substitution(alphabet);
+    }
+
+    /**
+     * Method returns the result file of an input in the output directory, keeping the relative path of the input.
+     */
+    private Path outputFile(final Input input, final String extension) throws IOException {
+        Path target = outputDirectory.resolve(input.relativePath.toString() + extension);
+        if (Files.exists(target) && Files.isSameFile(target, input.file)) {
+            throw new IOException("Output file would overwrite the input file");
+        }
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        return target;
+    }
+
+    private void writeMerged() throws IOException {
+        if (outputDirectory == null) {
+            if (mergedNGrams != null) {
+                out.print(formatNGrams(mergedNGrams));
+            } else {
+                out.print(formatHistogram(merged));
+            }
+            return;
+        }
+        Files.createDirectories(outputDirectory);
+        Path target = outputDirectory.resolve("merged." + format);
+        try (Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            if (mergedNGrams != null) {
+                writeNGrams(mergedNGrams, writer);
+            } else {
+                writeHistogram(merged, writer);
+            }
+        }
+        err.println((mergedNGrams != null ? mergedNGrams.getTotal() + " " + nGramLength + "-grams"
+                : merged.getTotal() + " characters") + " analysed to " + target);
+    }
+
+    /**
+     * Method builds the profile of the language from the counts of all corpus files
+     * and writes it to the output directory.
+     */
+    private void writeProfile() throws IOException {
+        LanguageProfile profile = LanguageProfile.build(language, corpus.letters, corpus.bigrams, corpus.quadgrams);
+        Files.createDirectories(outputDirectory);
+        Path target = outputDirectory.resolve(profile.getName() + LanguageProfile.EXTENSION);
+        profile.save(target);
+        err.println(profile.getLetterTotal() + " letters, " + corpus.quadgrams.getTotal()
+                + " quadgrams of " + profile.getName() + " profiled to " + target);
+    }
+
+    private String formatHistogram(final CharHistogram histogram) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeHistogram(histogram, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);     // not thrown by a StringWriter
+        }
+        return writer.toString();
+    }
+
+    private void writeHistogram(final CharHistogram histogram, final Writer writer) throws IOException {
+        if (format.equals("json")) {
+            TextAnalyserIO.writeHistogramJson(histogram, writer);
+        } else {
+            TextAnalyserIO.writeHistogramCsv(histogram, writer);
+        }
+    }
+
+    private String formatNGrams(final NGramHistogram histogram) {
+        StringWriter writer = new StringWriter();
+        try {
+            writeNGrams(histogram, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);     // not thrown by a StringWriter
+        }
+        return writer.toString();
+    }
+
+    private void writeNGrams(final NGramHistogram histogram, final Writer writer) throws IOException {
+        if (format.equals("json")) {
+            TextAnalyserIO.writeNGramsJson(histogram, topNGrams, writer);
+        } else {
+            TextAnalyserIO.writeNGramsCsv(histogram, topNGrams, writer);
+        }
+    }
+
+    /**
+     * Method parses the command and the options.
+     *
+     * @throws IllegalArgumentException If an argument is not valid.
+     */
+    private void parseArguments(final String[] args) throws IllegalArgumentException {
+        command = args[0];
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--workers":
+                    workers = parseInt(arg, value(args, ++i));
+                    if (workers < 1) {
+                        throw new IllegalArgumentException("--workers has to be at least 1");
+                    }
+                    break;
+                case "--max-in-flight":
+                    maxInFlightBytes = (long) parseInt(arg, value(args, ++i)) << 20;
+                    if (maxInFlightBytes < 1) {
+                        throw new IllegalArgumentException("--max-in-flight has to be at least 1");
+                    }
+                    break;
+                case "--output":
+                    outputDirectory = Paths.get(value(args, ++i));
+                    break;
+                case "--format":
+                    format = value(args, ++i);
+                    if (!format.equals("csv") && !format.equals("json")) {
+                        throw new IllegalArgumentException("Unknown format: " + format);
+                    }
+                    break;
+                case "--charset":
+                    try {
+                        charset = Charset.forName(value(args, ++i));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown charset: " + args[i]);
+                    }
+                    break;
+                case "--merge":
+                    merge = true;
+                    break;
+                case "--ngram":
+                    nGramLength = parseInt(arg, value(args, ++i));
+                    if (nGramLength < 1 || nGramLength > NGramHistogram.MAX_LETTER_N) {
+                        throw new IllegalArgumentException("--ngram has to be between 1 and " + NGramHistogram.MAX_LETTER_N);
+                    }
+                    break;
+                case "--top":
+                    topNGrams = parseInt(arg, value(args, ++i));
+                    if (topNGrams < 1) {
+                        throw new IllegalArgumentException("--top has to be at least 1");
+                    }
+                    break;
+                case "--shift":
+                    shift = parseInt(arg, value(args, ++i));
+                    break;
+                case "--keyword":
+                    // allow only latin letters in keyword, like the UI
+                    keyword = value(args, ++i).toUpperCase().replaceAll("[^A-Z]", "");
+                    if (keyword.isEmpty()) {
+                        throw new IllegalArgumentException("Non valid keyword");
+                    }
+                    break;
+                case "--alphabet":
+                    alphabet = value(args, ++i).toUpperCase().replaceAll("[^A-Z]", "");
+                    StreamCipher.substitution(alphabet);    // checks the alphabet
+                    break;
+                case "--crack":
+                    crack = value(args, ++i);
+                    if (!crack.equals("shift") && !crack.equals("polyalphabetic") && !crack.equals("substitution")) {
+                        throw new IllegalArgumentException("Unknown cipher: " + crack);
+                    }
+                    break;
+                case "--remove-whitespace":
+                    removeWhitespace = true;
+                    break;
+                case "--remove-punctuation":
+                    removePunctuation = true;
+                    break;
+                case "--only-alphanumeric":
+                    onlyAlphaNumeric = true;
+                    break;
+                case "--upper-case":
+                    toUpperCase = true;
+                    break;
+                case "--language":
+                    language = value(args, ++i);
+                    break;
+                case "--profiles":
+                    profilesDirectory = Paths.get(value(args, ++i));
+                    break;
+                case "--metrics":
+                    metricsFile = Paths.get(value(args, ++i));
+                    break;
+                case "--port":
+                    port = parseInt(arg, value(args, ++i));
+                    if (port < 0 || port > 65535) {
+                        throw new IllegalArgumentException("--port has to be between 0 and 65535");
+                    }
+                    break;
+                case "--max-queue":
+                    maxQueue = parseInt(arg, value(args, ++i));
+                    if (maxQueue < 0) {
+                        throw new IllegalArgumentException("--max-queue must not be negative");
+                    }
+                    break;
+                case "--max-request":
+                    maxRequestBytes = (long) parseInt(arg, value(args, ++i)) << 20;
+                    if (maxRequestBytes < 1) {
+                        throw new IllegalArgumentException("--max-request has to be at least 1");
+                    }
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    inputs.add(arg);
+            }
+        }
+
+        switch (command) {
+            case "help":
+            case "--help":
+                return;
+            case "serve":
+                if (!inputs.isEmpty()) {
+                    throw new IllegalArgumentException("serve doesn't take input files");
+                }
+                return;
+            case "analyse":
+            case "detect":
+                break;
+            case "profile":
+                if (language == null || language.isEmpty()) {
+                    throw new IllegalArgumentException("profile needs the --language of the corpus");
+                }
+                if (outputDirectory == null) {
+                    throw new IllegalArgumentException("profile needs an --output directory");
+                }
+                break;
+            case "encrypt":
+            case "decrypt":
+                int keys = (shift != null ? 1 : 0) + (keyword != null ? 1 : 0) + (alphabet != null ? 1 : 0)
+                        + (crack != null && command.equals("decrypt") ? 1 : 0);
+                if (keys != 1) {
+                    throw new IllegalArgumentException(command.equals("encrypt")
+                            ? "Select the cipher with either --shift, --keyword or --alphabet"
+                            : "Select the cipher with either --shift, --keyword, --alphabet or --crack");
+                }
+                if (outputDirectory == null) {
+                    throw new IllegalArgumentException(command + " needs an --output directory");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
+        }
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input files");
+        }
+    }
+
+    private static String value(final String[] args, final int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private static int parseInt(final String option, final String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Non valid number of " + option + ": " + value);
+        }
+    }
+
+    /**
+     * Method resolves the input arguments to files. Directories are searched recursively and glob patterns
+     * are matched below their directory.
+     *
+     * @throws IOException If a directory can not be searched or a file doesn't exist.
+     */
+    private List<Input> resolveInputs() throws IOException {
+        List<Input> files = new ArrayList<>();
+        for (String input : inputs) {
+            int glob = indexOfGlob(input);
+            if (glob >= 0) {
+                int separator = Math.max(input.lastIndexOf('/', glob), input.lastIndexOf(File.separatorChar, glob));
+                Path base = separator < 0 ? Paths.get("") : Paths.get(input.substring(0, separator + 1));
+                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input.substring(separator + 1));
+                files.addAll(walk(base, matcher));
+            } else {
+                Path path = Paths.get(input);
+                if (Files.isDirectory(path)) {
+                    files.addAll(walk(path, null));
+                } else if (Files.isRegularFile(path)) {
+                    files.add(new Input(path, path.getFileName(), true));
+                } else {
+                    throw new IOException("No such file: " + input);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static List<Input> walk(final Path base, final PathMatcher matcher) throws IOException {
+        Path start = base.toString().isEmpty() ? Paths.get(".") : base;
+        try (Stream<Path> paths = Files.walk(start)) {
+            List<Path> found = paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher == null || matcher.matches(start.relativize(path)))
+                    .sorted()
+                    .collect(Collectors.toList());
+            // files without text are skipped by the scheduler
+            List<Input> files = new ArrayList<>(found.size());
+            for (Path path : found) {
+                files.add(new Input(path, start.relativize(path), false));
+            }
+            return files;
+        }
+    }
+
+    private static int indexOfGlob(final String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Inner class for an input file and its path relative to the searched directory.
+     */
+    private static class Input {
+        private final Path file;
+        private final Path relativePath;
+        private final boolean explicit;     // named as argument, not found in a directory or by a pattern
+
+        Input(final Path file, final Path relativePath, final boolean explicit) {
+            this.file = file;
+            this.relativePath = relativePath;
+            this.explicit = explicit;
+        }
+    }
+
+    /**
+     * Inner class for the letters, bigrams and quadgrams of corpus files, see LanguageProfile.build().
+     */
+    private static class CorpusCounts {
+        private final CharHistogram letters = new CharHistogram();
+        private final NGramHistogram bigrams = new NGramHistogram(2, true);
+        private final NGramHistogram quadgrams = new NGramHistogram(4, true);
+
+        /**
+         * Static method counts a file, which is read at once or streamed, if it is too large.
+         *
+         * @return The counts.
+         */
+        static CorpusCounts of(final Path file, final byte[] content, final Charset charset) throws IOException {
+            CorpusCounts counts = new CorpusCounts();
+            if (content == null) {
+                counts.letters.merge(TextAnalyserIO.analyseFile(file.toFile(), charset));
+                counts.bigrams.merge(TextAnalyserIO.analyseFileNGrams(file.toFile(), charset, 2, true));
+                counts.quadgrams.merge(TextAnalyserIO.analyseFileNGrams(file.toFile(), charset, 4, true));
+                return counts;
+            }
+            String text = new String(content, charset);
+            counts.letters.merge(TextAnalyserIO.analyseBytes(ByteBuffer.wrap(content), charset));
+            counts.bigrams.addAll(text);
+            counts.quadgrams.addAll(text);
+            return counts;
+        }
+
+        void merge(final CorpusCounts other) {
+            letters.merge(other.letters);
+            bigrams.merge(other.bigrams);
+            quadgrams.merge(other.quadgrams);
+        }
+    }
+
+    /**
+     * Inner class for the ciphered text of an input file and its output file.
+     */
+    private static class Output {
+        private final Path target;
+        private final String text;      // null, if it has already been written
+        private String message;
+
+        Output(final Path target, final String text) {
+            this.target = target;
+            this.text = text;
+        }
+    }
+}
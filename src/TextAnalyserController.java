@@ -1,27 +1,39 @@
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.SelectionModel;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.*;
 import javafx.stage.FileChooser;
 import javafx.stage.WindowEvent;
+import javafx.util.Duration;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -32,10 +44,32 @@ public class TextAnalyserController {
     private final TextAnalyserUI ui;
 
     private StringProperty originalText;            // the text written in the text area or imported by the user
-    private StringProperty cipherText;              // the text after applying encryption method
-    private StringProperty planeText;               // the text after applying decryption method
 
-    private ObservableList<FrequencyModel> data;    // data model for the TableView binding
+    // large texts are shown from their files instead of the text area, see PagedDocument
+    private ObjectProperty<PagedDocument> originalDocument;
+    // the texts after applying the encryption and decryption method, from a temporary file or a CompactText
+    private ObjectProperty<PagedDocument> cipherDocument;
+    private ObjectProperty<PagedDocument> planeDocument;
+
+    private FrequencyTableModel data;               // data model for the TableView binding
+    private ObservableList<String> candidateKeys;   // keys shown in the candidates list of the decryption
+    private boolean candidateAlphabets;             // the keys are alphabets of a substitution cipher, not keywords
+    private TableColumn<FrequencyModel, String> letterColumn;   // shows the characters or the n-grams
+
+    private static final int TASK_CHUNK_SIZE = 1 << 22;    // chars processed between progress updates of a task
+    private static final int MAX_KEY_LENGTH = 40;           // longest keyword examined, when breaking a cipher
+    private static final int TOP_NGRAMS = 100;              // most frequent n-grams shown in the TableView
+    private static final long LARGE_FILE_SIZE = 1 << 23;   // larger files are opened as paged documents
+    private static final int CRACK_SAMPLE_SIZE = 1 << 22;   // bytes of a paged document examined to break a keyword
+    private static final long CACHE_SPILL_BYTES = 1L << 30; // budget of the result cache on the disk
+    private static final int COMPARE_STEP = 1 << 16;        // lines compared between progress updates
+    private static final long INDEX_POLL_MILLIS = 50;       // pause while waiting for the line index of a document
+    private static final Duration LIVE_ANALYSIS_DELAY = Duration.millis(200);  // pause after typing, before the table is updated
+
+    private final LiveFrequencyAnalysis liveAnalysis;   // keeps the frequency analysis up to date while typing
+    private final ResultCache resultCache;          // results of analyses and ciphers, shared by the tasks
+    private final ThreadPoolExecutor executor;      // runs analysis and encryption off the JavaFX Application Thread
+    private Task<?> currentTask;                    // the latest submitted task, superseded by the next one
 
 
     /**
@@ -46,20 +80,36 @@ public class TextAnalyserController {
     public TextAnalyserController(TextAnalyserUI ui) {
         this.ui = ui;
         this.originalText = new SimpleStringProperty();
-        this.cipherText = new SimpleStringProperty();
-        this.planeText = new SimpleStringProperty();
-        this.data = FXCollections.observableArrayList();
+        this.originalDocument = new SimpleObjectProperty<>();
+        this.cipherDocument = new SimpleObjectProperty<>();
+        this.planeDocument = new SimpleObjectProperty<>();
+        this.data = new FrequencyTableModel();
+        this.candidateKeys = FXCollections.observableArrayList();
+        this.resultCache = new ResultCache((long) ui.getCacheSizeSpinner().getValue() << 20);
+        this.liveAnalysis = new LiveFrequencyAnalysis(ui.getOriginalTextArea(), LIVE_ANALYSIS_DELAY, this::updateLettersTable);
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                (Runnable runnable) -> {
+                    Thread thread = new Thread(runnable, "TextAnalyser-Worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Metrics.registerGauge("worker.queueDepth", () -> executor.getQueue().size());
+        Metrics.registerGauge("worker.activeTasks", executor::getActiveCount);
 
         /* set EventHandlers */
 
         ui.getItemOpen().setOnAction(new OpenHandler());
+        ui.getItemAnalyseFile().setOnAction(new AnalyseFileHandler());
         ui.getItemSave().setOnAction(new SaveHandler());
+        ui.getItemEncryptFile().setOnAction(new EncryptFileHandler());
         ui.getItemClear().setOnAction((ActionEvent event) -> {
                 ui.getOriginalTextArea().clear();
-                ui.getCipherTextArea().clear();
-                ui.getPlaneTextArea().clear();
                 ui.getLogTextArea().clear();
+                ui.getCandidatesList().getItems().clear();
                 data.clear();
+                showDocument(originalDocument, ui.getOriginalViewer(), null);
+                showDocument(cipherDocument, ui.getCipherViewer(), null);
+                showDocument(planeDocument, ui.getPlaneViewer(), null);
         });
 
         ui.getItemResize().setOnAction((ActionEvent event) -> {
@@ -67,10 +117,33 @@ public class TextAnalyserController {
                 ui.getPrimaryStage().setHeight(680);
         });
 
+        ui.getItemCompare().setOnAction((ActionEvent event) -> {
+                ui.getCompareStage().show();
+                compareTexts();
+        });
+        ui.getButtonCompare().setOnAction((ActionEvent event) ->
+                compareTexts()
+        );
+
+        ui.getItemMetrics().setOnAction((ActionEvent event) -> {
+                // timings, throughput and allocations of the operations so far, see Metrics
+                for (String line : Metrics.summary()) {
+                    showLog(line);
+                }
+        });
+
         ui.getPrimaryStage().setOnCloseRequest((WindowEvent event) -> {
-                // close all other application windows before exit
+                // close all other application windows and stop background work before exit
                 ui.getSettingsStage().close();
                 ui.getHelpStage().close();
+                ui.getCompareStage().close();
+                executor.shutdownNow();
+                resultCache.clear();    // deletes the spill files
+                try {
+                    Metrics.stopSnapshots();
+                } catch (IOException e) {
+                    // the last snapshot is lost, the periodic ones have been written
+                }
         });
 
         ui.getButtonAnalyse().setOnAction(new AnalyseHandler());
@@ -81,6 +154,13 @@ public class TextAnalyserController {
                 ui.getSettingsStage().show()
         );
         ui.getButtonEncrypt().setOnAction(new EncryptHandler());
+        ui.getButtonDecrypt().setOnAction(new DecryptHandler());
+        ui.getButtonCancel().setOnAction((ActionEvent event) -> {
+                if (currentTask != null) {
+                    currentTask.cancel();
+                }
+        });
+        ui.getButtonCancel().setDisable(true);
 
         ui.getOriginalTextArea().setOnDragEntered(new DragEnteredHandler());
         ui.getOriginalTextArea().setOnDragExited((DragEvent event) ->
@@ -92,15 +172,15 @@ public class TextAnalyserController {
         /* add BooleanBindings between StringProperties and UI elements */
 
         // enables the "encrypt/decrypt buttons" only if text has been entered or imported
-        ui.getButtonEncrypt().disableProperty().bind(originalText.isEmpty());
-        ui.getButtonDecrypt().disableProperty().bind(originalText.isEmpty());
+        ui.getButtonEncrypt().disableProperty().bind(originalText.isEmpty().and(originalDocument.isNull()));
+        ui.getButtonDecrypt().disableProperty().bind(originalText.isEmpty().and(originalDocument.isNull()));
 
         // enables safe option and "cipher text tab" only if text has been encrypted
-        ui.getItemSave().disableProperty().bind(cipherText.isEmpty());
-        ui.getCipherTab().disableProperty().bind(cipherText.isEmpty());
+        ui.getItemSave().disableProperty().bind(cipherDocument.isNull());
+        ui.getCipherTab().disableProperty().bind(cipherDocument.isNull());
 
         // enables "plane text tab" only if text has been decrypted
-        ui.getPlaneTab().disableProperty().bind(planeText.isEmpty());
+        ui.getPlaneTab().disableProperty().bind(planeDocument.isNull());
 
 
         // add Listener for cipher selection
@@ -113,16 +193,69 @@ public class TextAnalyserController {
                                 break;
                         case 1: // "Polyalphabetic Cipher" option selected
                                 ui.getKeyTextField().getParent().setDisable(false);
+                                ui.getKeyTextField().setPromptText("Enter keyword");
+                                ui.getKeyComboBox().getParent().setDisable(true);
+                                break;
+                        case 2: // "Substitution Cipher" option selected
+                                ui.getKeyTextField().getParent().setDisable(false);
+                                ui.getKeyTextField().setPromptText("Enter cipher alphabet");
                                 ui.getKeyComboBox().getParent().setDisable(true);
                                 break;
                     }
                 }
         );
 
+        // add Listener for the live analysis option
+        ui.getLiveAnalysisCheckBox().selectedProperty().addListener(
+                (ObservableValue<? extends Boolean> ov, Boolean oldVal, Boolean newVal) -> {
+                    liveAnalysis.setEnabled(newVal);
+                    showLog("Live analysis " + (newVal ? "enabled" : "disabled"));
+                }
+        );
+
+        // add Listener for the n-gram selection, live analysis only counts single characters
+        ui.getNGramSelectionBox().getSelectionModel().selectedIndexProperty().addListener(
+                (ObservableValue<? extends Number> ov, Number oldVal, Number newVal) -> {
+                    boolean nGrams = newVal.intValue() > 0;
+                    if (nGrams) {
+                        ui.getLiveAnalysisCheckBox().setSelected(false);
+                    }
+                    ui.getLiveAnalysisCheckBox().setDisable(nGrams);
+                    letterColumn.setText(nGrams ? "N-gram" : "Letter");
+                }
+        );
+
+        // add Listeners for the result cache settings
+        ui.getCacheSizeSpinner().valueProperty().addListener(
+                (ObservableValue<? extends Integer> ov, Integer oldVal, Integer newVal) ->
+                        resultCache.setMaxBytes((long) newVal << 20)
+        );
+        ui.getCacheSpillCheckBox().selectedProperty().addListener(
+                (ObservableValue<? extends Boolean> ov, Boolean oldVal, Boolean newVal) -> {
+                    if (!newVal) {
+                        resultCache.setSpillDirectory(null, 0);
+                        return;
+                    }
+                    try {
+                        Path directory = Files.createTempDirectory("text-analyser-cache-");
+                        directory.toFile().deleteOnExit();
+                        resultCache.setSpillDirectory(directory, CACHE_SPILL_BYTES);
+                        showLog("Result cache spills to " + directory);
+                    } catch (IOException e) {
+                        ui.getCacheSpillCheckBox().setSelected(false);
+                        showAlert(e);
+                    }
+                }
+        );
+
+        // decrypt with the key selected in the candidates list
+        ui.getCandidatesList().getSelectionModel().selectedIndexProperty().addListener(
+                (ObservableValue<? extends Number> ov, Number oldVal, Number newVal) ->
+                        decryptWithCandidate(newVal.intValue())
+        );
+
         // bind text areas to StringProperty
         originalText.bindBidirectional(ui.getOriginalTextArea().textProperty());
-        cipherText.bindBidirectional(ui.getCipherTextArea().textProperty());
-        planeText.bindBidirectional(ui.getPlaneTextArea().textProperty());
 
         // initialize keyboard shortcuts
         initializeShortcuts(ui.getPrimaryStage().getScene());
@@ -153,6 +286,7 @@ public class TextAnalyserController {
     private void initializeLettersTable() {
         // create Columns
         TableColumn<FrequencyModel, String> colLetter = new TableColumn<>("Letter");
+        letterColumn = colLetter;
         TableColumn<FrequencyModel, String> colFrequency = new TableColumn<>("Frequency");
         colLetter.setPrefWidth(60);
         colFrequency.setPrefWidth(90);
@@ -163,7 +297,7 @@ public class TextAnalyserController {
         // bind model to table
         colLetter.setCellValueFactory(new PropertyValueFactory<>("letter"));
         colFrequency.setCellValueFactory(new PropertyValueFactory<>("frequency"));
-        ui.getLettersTable().setItems(this.data);
+        ui.getLettersTable().setItems(this.data.getItems());
     }
 
     /**
@@ -185,11 +319,123 @@ public class TextAnalyserController {
 
             // read text from specified file
             if (inputFile != null) {
-                originalText.setValue(TextAnalyserIO.openFile(inputFile));
-                showLog("Imported text from " + inputFile.toString());
-                data.clear();
+                importFile(inputFile);
+            }
+        }
+    }
+
+    /**
+     * Method imports the text of a file into the original tab. Large files are not read into the text area,
+     * they are shown as paged document, which is read on demand from the file.
+     *
+     * @param inputFile File (txt) to read from.
+     *
+     * @return True if the text has been imported.
+     */
+    private boolean importFile(final File inputFile) {
+        if (inputFile.length() <= LARGE_FILE_SIZE) {
+            String text = TextAnalyserIO.openFile(inputFile);
+            if (text == null) {
+                return false;
+            }
+            showDocument(originalDocument, ui.getOriginalViewer(), null);
+            originalText.setValue(text);
+            showLog("Imported text from " + inputFile.toString());
+        } else {
+            try {
+                if (!TextAnalyserIO.fileContainsText(inputFile)) {
+                    throw new IllegalArgumentException("No valid file was selected!");
+                }
+                PagedDocument document = new PagedDocument(inputFile, false);
+                originalText.setValue("");
+                showDocument(originalDocument, ui.getOriginalViewer(), document);
+                showLog("Opened " + inputFile.toString() + " (" + (document.getSize() >> 20) + " MB) as paged document");
+            } catch (IOException | IllegalArgumentException e) {
+                showAlert(e);
+                return false;
             }
         }
+        data.clear();
+        return true;
+    }
+
+    /**
+     * Method shows a paged document in the viewer of a tab instead of its text area, or the text area again.
+     * The previous document of the tab is closed.
+     *
+     * @param property The document property of the tab.
+     * @param viewer The viewer of the tab.
+     * @param document The document to be shown, or null to show the text area.
+     */
+    private void showDocument(final ObjectProperty<PagedDocument> property, final DocumentViewer viewer,
+                              final PagedDocument document) {
+        PagedDocument previous = property.get();
+        if (previous != null && previous != document) {
+            previous.close();
+        }
+        property.set(document);
+        viewer.setDocument(document);
+        viewer.setVisible(document != null);
+    }
+
+    /**
+     * Inner class for ActionEvent "analyse file".
+     * Analyses a file directly, without importing its text.
+     */
+    private class AnalyseFileHandler implements EventHandler<ActionEvent> {
+        @Override
+        public void handle(ActionEvent event) {
+            // file chooser configuration
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.setTitle("Analyse Resource File");
+            fileChooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("Text files (*.txt)", "*.txt"),
+                    new FileChooser.ExtensionFilter("All files", "*")
+            );
+            // show open file dialog
+            File inputFile = fileChooser.showOpenDialog(ui.getPrimaryStage());
+
+            // do frequency analysis of the specified file
+            if (inputFile != null) {
+                analyseFile(inputFile);
+            }
+        }
+    }
+
+    /**
+     * Method does the frequency or n-gram analysis of a file in the background, streaming it from the disk.
+     *
+     * @param inputFile File (txt) to be analysed.
+     */
+    private void analyseFile(final File inputFile) {
+        if (getNGramLength() > 1) {
+            final int n = getNGramLength();
+            Task<NGramHistogram> task = new CachingTask<NGramHistogram>() {
+                @Override
+                protected NGramHistogram call() throws Exception {
+                    return cached(ResultCache.key(inputFile, nGramSettings(n)),
+                            () -> TextAnalyserIO.analyseFileNGrams(inputFile, StandardCharsets.UTF_8, n, true));
+                }
+            };
+            task.setOnSucceeded((WorkerStateEvent e) -> {
+                updateNGramTable(task.getValue());
+                showLog(task.getValue().getTotal() + " " + n + "-grams analysed in " + inputFile.toString());
+            });
+            submitTask(task, "Analysing " + n + "-grams of " + inputFile.toString());
+        } else {
+            Task<CharHistogram> task = new CachingTask<CharHistogram>() {
+                @Override
+                protected CharHistogram call() throws Exception {
+                    return fileHistogram(inputFile);
+                }
+            };
+            task.setOnSucceeded((WorkerStateEvent e) -> {
+                updateLettersTable(task.getValue());
+                showLog(task.getValue().getTotal() + " characters analysed in " + inputFile.toString()
+                        + languageNote(task.getValue()));
+            });
+            submitTask(task, "Analysing " + inputFile.toString());
+        }
     }
 
     /**
@@ -208,9 +454,21 @@ public class TextAnalyserController {
             // show save file dialog
             File outputFile = fileChooser.showSaveDialog(ui.getPrimaryStage());
             // save "modified text" to specified file
-            if (outputFile != null) {
-                TextAnalyserIO.saveFile(cipherText.get(), outputFile);
-                showLog("Saved text to " + outputFile.toString());
+            if (outputFile != null && cipherDocument.get() != null) {
+                // copy the temporary file or write the text in memory in the background
+                final PagedDocument document = cipherDocument.get();
+                Task<Path> task = new Task<Path>() {
+                    @Override
+                    protected Path call() throws IOException {
+                        if (document.getFile() == null) {
+                            document.getText().write(outputFile.toPath());
+                            return outputFile.toPath();
+                        }
+                        return Files.copy(document.getFile().toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                };
+                task.setOnSucceeded((WorkerStateEvent e) -> showLog("Saved text to " + outputFile.toString()));
+                submitTask(task, "Saving " + outputFile.toString());
             }
         }
     }
@@ -277,15 +535,14 @@ public class TextAnalyserController {
                     // check if text can be read from the dragged file
                     File inputFile = db.getFiles().get(0);
                     if (TextAnalyserIO.fileContainsText(inputFile)) {
-                        target.setText(TextAnalyserIO.openFile(inputFile));
-                        showLog("Imported text from " + inputFile.toString());
-                        success = true;
+                        success = importFile(inputFile);
                     }
                 } catch (IOException e) {
                     // no handling needed
                 }
             // also allow direct text dragging
             } else if (db.hasString() && !db.hasFiles()) {
+                showDocument(originalDocument, ui.getOriginalViewer(), null);
                 target.setText(db.getString());
                 success = true;
             }
@@ -300,95 +557,702 @@ public class TextAnalyserController {
     private class AnalyseHandler implements EventHandler<ActionEvent> {
         @Override
         public void handle(ActionEvent event) {
+            // a paged document is analysed from its file
+            if (originalDocument.get() != null) {
+                analyseFile(originalDocument.get().getFile());
+                return;
+            }
             if (originalText.getValueSafe().isEmpty()) {
                 return;
             }
-            // do frequency analysis
-            Map<Character, Integer> frequencyMap = Cryptography.frequencyAnalysis(originalText.get());
-
-            // generate data model from EntrySet
-            List<FrequencyModel> frequencyList = new ArrayList<>();
-            for (Map.Entry<Character, Integer> entry: frequencyMap.entrySet()) {
-                FrequencyModel current = new FrequencyModel(entry.getKey(), entry.getValue());
-                frequencyList.add(current);
+            if (getNGramLength() > 1) {
+                analyseNGrams(originalText.get(), getNGramLength());
+                return;
             }
-            // update TableView
-            data.setAll(frequencyList);
-            showLog(originalText.getValue().length() + " characters analysed");
+            // the live histogram is already up to date
+            if (liveAnalysis.isEnabled()) {
+                updateLettersTable(liveAnalysis.getHistogram());
+                return;
+            }
+            final String text = originalText.get();
+
+            // do frequency analysis in the background, chunk by chunk
+            Task<CharHistogram> task = new CachingTask<CharHistogram>() {
+                @Override
+                protected CharHistogram call() throws Exception {
+                    return textHistogram(text);
+                }
+            };
+            task.setOnSucceeded((WorkerStateEvent e) -> {
+                updateLettersTable(task.getValue());
+                showLog(text.length() + " characters analysed" + languageNote(task.getValue()));
+            });
+            submitTask(task, "Analysing text");
         }
     }
 
+    /**
+     * Method does the n-gram analysis of a text in the background, chunk by chunk,
+     * and shows the most frequent n-grams in the TableView.
+     *
+     * @param text The text to be analysed.
+     * @param n The length of the n-grams.
+     */
+    private void analyseNGrams(final String text, final int n) {
+        Task<NGramHistogram> task = new CachingTask<NGramHistogram>() {
+            @Override
+            protected NGramHistogram call() throws Exception {
+                return cached(ResultCache.key(text, nGramSettings(n)), () -> {
+                    NGramHistogram histogram = new NGramHistogram(n, true);
+                    for (int from = 0; from < text.length(); from += TASK_CHUNK_SIZE) {
+                        if (isCancelled()) {
+                            return null;
+                        }
+                        int to = Math.min(text.length(), from + TASK_CHUNK_SIZE);
+                        // n-grams starting in the chunk may end in the next one
+                        histogram.merge(Cryptography.parallelNGramHistogram(text, from, to, n, true));
+                        updateProgress(to, text.length());
+                    }
+                    return histogram;
+                });
+            }
+        };
+        task.setOnSucceeded((WorkerStateEvent e) -> {
+            updateNGramTable(task.getValue());
+            showLog(task.getValue().getTotal() + " " + n + "-grams analysed, "
+                    + task.getValue().getDistinct() + " distinct");
+        });
+        submitTask(task, "Analysing " + n + "-grams");
+    }
+
     /**
      * Inner Class for ActionEvent "encrypt-button-pressed"
      */
     private class EncryptHandler implements EventHandler<ActionEvent> {
         @Override
         public void handle(ActionEvent event) {
-            // check if all selection options have been made and give visual highlight to missing options
-            SelectionModel<String> selectionModel = ui.getCipherSelectionBox().getSelectionModel();
-            if (selectionModel.isEmpty()) {
-                ui.getCipherSelectionBox().setStyle("-fx-border-color:RED");
+            final PagedDocument document = originalDocument.get();
+            if (!checkCipherOptions() || (document == null && originalText.getValueSafe().isEmpty())) {
+                return;
+            }
+            // read all options on the JavaFX Application Thread, before the task is started
+            final String text = originalText.get();
+            final TextNormalizer normalizer;
+            try {
+                normalizer = createNormalizer(createCipher());
+            } catch (IllegalArgumentException e) {
+                showAlert(e);
                 return;
+            }
+
+            Task<?> task;
+            if (document != null) {
+                // a paged document is encrypted from file to file
+                Task<PagedDocument> fileTask = createFileCipherTask(document, normalizer);
+                fileTask.setOnSucceeded((WorkerStateEvent e) ->
+                        showDocument(cipherDocument, ui.getCipherViewer(), fileTask.getValue())
+                );
+                task = fileTask;
             } else {
-                ui.getCipherSelectionBox().setStyle("-fx-border-color:transparent");
+                Task<CompactText> textTask = createCipherTask(text, normalizer, getCipherSettings());
+                textTask.setOnSucceeded((WorkerStateEvent e) ->
+                        showDocument(cipherDocument, ui.getCipherViewer(), new PagedDocument(textTask.getValue()))
+                );
+                task = textTask;
             }
-            if (ui.getKeyComboBox().isDisabled()) {
-                if (ui.getKeyTextField().getText().isEmpty()) {
-                    ui.getKeyTextField().setStyle("-fx-border-color:RED");
-                    return;
-                }
-                ui.getKeyTextField().setStyle("-fx-border-color:transparent");
 
+            if (ui.getCipherSelectionBox().getSelectionModel().getSelectedItem().equals("Shift Cipher")) {
+                submitTask(task, "Caesar (shift: " + ui.getKeyComboBox().getSelectionModel().getSelectedIndex() + ")");
+            } else if (ui.getCipherSelectionBox().getSelectionModel().getSelectedItem().equals("Substitution Cipher")) {
+                submitTask(task, "Substitution (alphabet: " + getKeyword() + ")");
             } else {
-                if (ui.getKeyComboBox().getSelectionModel().isEmpty()) {
-                    ui.getKeyComboBox().setStyle("-fx-border-color:RED");
-                    return;
-                }
-                ui.getKeyComboBox().setStyle("-fx-border-color:transparent");
+                submitTask(task, "Vigenère (keyword: " + getKeyword() + ")");
+            }
+        }
+    }
+
+    /**
+     * Inner Class for ActionEvent "decrypt-button-pressed".
+     * Breaks the cipher of the original text and shows the ranked keys in the candidates list.
+     */
+    private class DecryptHandler implements EventHandler<ActionEvent> {
+        @Override
+        public void handle(ActionEvent event) {
+            // check if a cipher has been selected and give visual highlight otherwise
+            if (ui.getDecryptSelectionBox().getSelectionModel().isEmpty()) {
+                ui.getDecryptSelectionBox().setStyle("-fx-border-color:RED");
+                return;
             }
+            ui.getDecryptSelectionBox().setStyle("-fx-border-color:transparent");
+            final PagedDocument document = originalDocument.get();
+            if (document == null && originalText.getValueSafe().isEmpty()) {
+                return;
+            }
+            final String text = originalText.get();
+
+            switch (ui.getDecryptSelectionBox().getSelectionModel().getSelectedItem()) {
+                case "Shift Cipher":
+                    crackShiftCipher(text, document);
+                    break;
+                case "Polyalphabetic Cipher":
+                    crackPolyalphabeticCipher(text, document);
+                    break;
+                case "Substitution Cipher":
+                    crackSubstitutionCipher(text, document);
+                    break;
+            }
+        }
 
-            if (!originalText.getValueSafe().isEmpty()) {
-                // convert to upper case, remove whitespace, punctuation and non-alphanumeric characters if options are enabled
-                // originalText -> modifiedText -> cipherText
-                String modifiedText = originalText.get();
-                boolean removeWhitespace = ui.getWhitespaceToggleGroup().getSelectedToggle().getUserData().equals("remove");
-                if (removeWhitespace) {
-                    modifiedText = modifiedText.replaceAll("[\\s]", "");
+        /**
+         * One frequency-analysis of the cipher text, then all shifts are scored against the reference profile.
+         * A paged document is analysed from its file.
+         */
+        private void crackShiftCipher(final String text, final PagedDocument document) {
+            Task<List<Cryptanalysis.ShiftCandidate>> task = new CachingTask<List<Cryptanalysis.ShiftCandidate>>() {
+                @Override
+                protected List<Cryptanalysis.ShiftCandidate> call() throws Exception {
+                    // the frequency-analysis of the text may be cached already
+                    CharHistogram histogram = document != null ? fileHistogram(document.getFile()) : textHistogram(text);
+                    if (histogram == null) {
+                        return null;
+                    }
+                    // the reference profile of the language fitting the cipher text best with any shift
+                    LanguageProfile language = LanguageProfile.detect(histogram, true).get(0).getProfile();
+                    updateMessage("Language of the plane text: " + language.getName());
+                    List<Cryptanalysis.ShiftCandidate> candidates =
+                            Cryptanalysis.crackShiftCipher(histogram, language.getLetterFrequencies());
+                    WordDictionary dictionary = language.getDictionary();
+                    if (dictionary == null) {
+                        return candidates;
+                    }
+                    // the keys are ranked by the words of their decryptions, which tell short texts apart
+                    String sample = document != null ? document.readText(WordDictionary.SAMPLE_SIZE) : text;
+                    List<Cryptanalysis.ShiftCandidate> ranked = dictionary.preferBest(sample, candidates,
+                            (Cryptanalysis.ShiftCandidate candidate) -> String.valueOf((char) ('A' + candidate.getShift())));
+                    if (ranked != candidates) {
+                        updateMessage("Shift " + ranked.get(0).getShift() + " preferred by the dictionary");
+                    }
+                    return ranked;
                 }
-                boolean removePunctuation = ui.getPunctuationToggleGroup().getSelectedToggle().getUserData().equals("remove");
-                if (removePunctuation) {
-                    modifiedText = modifiedText.replaceAll("[\\p{Punct}]", "");
+            };
+            task.setOnSucceeded((WorkerStateEvent e) -> {
+                List<String> keys = new ArrayList<>();
+                List<String> items = new ArrayList<>();
+                for (Cryptanalysis.ShiftCandidate candidate : task.getValue()) {
+                    keys.add(String.valueOf((char) ('A' + candidate.getShift())));
+                    items.add(candidate.toString());
                 }
-                boolean onlyAlphaNumeric = ui.getAlphaNumericCheckBox().isSelected();
-                if (onlyAlphaNumeric) {
-                    modifiedText = modifiedText.replaceAll("[^\\p{Alnum}]", "");
+                showCandidates(keys, items, false);
+            });
+            submitTask(task, "Breaking shift cipher");
+        }
+
+        /**
+         * Key length estimation and solving of the columns, the keywords of the probable lengths are shown.
+         * Of a paged document only the beginning is examined, which is a sample large enough for the statistics.
+         */
+        private void crackPolyalphabeticCipher(final String text, final PagedDocument document) {
+            Task<List<Cryptanalysis.KeywordCandidate>> task = new Task<List<Cryptanalysis.KeywordCandidate>>() {
+                @Override
+                protected List<Cryptanalysis.KeywordCandidate> call() {
+                    String sample = document != null ? document.readText(CRACK_SAMPLE_SIZE) : text;
+                    LanguageProfile language = LanguageProfile.detectPolyalphabetic(sample, MAX_KEY_LENGTH);
+                    updateMessage("Language of the plane text: " + language.getName());
+                    List<Cryptanalysis.KeywordCandidate> candidates =
+                            Cryptanalysis.crackPolyalphabeticCipher(sample, language.getLetterFrequencies(), MAX_KEY_LENGTH);
+                    WordDictionary dictionary = language.getDictionary();
+                    if (dictionary == null) {
+                        return candidates;
+                    }
+                    List<Cryptanalysis.KeywordCandidate> ranked =
+                            dictionary.preferBest(sample, candidates, Cryptanalysis.KeywordCandidate::getKeyword);
+                    if (ranked != candidates) {
+                        updateMessage("Keyword " + ranked.get(0).getKeyword() + " preferred by the dictionary");
+                    }
+                    return ranked;
                 }
-                boolean toUpperCase = ui.getCaseToggleGroup().getSelectedToggle().getUserData().equals("convert");
-                if (toUpperCase) {
-                    modifiedText = modifiedText.toUpperCase();
+            };
+            task.setOnSucceeded((WorkerStateEvent e) -> {
+                List<String> keys = new ArrayList<>();
+                List<String> items = new ArrayList<>();
+                for (Cryptanalysis.KeywordCandidate candidate : task.getValue()) {
+                    keys.add(candidate.getKeyword());
+                    items.add(candidate.toString());
                 }
+                if (!keys.isEmpty()) {
+                    showLog("Key length " + keys.get(0).length() + " (repeated trigram distances: "
+                            + task.getValue().get(0).getKasiskiCount() + ")");
+                }
+                showCandidates(keys, items, false);
+            });
+            submitTask(task, "Breaking polyalphabetic cipher");
+        }
 
-                // do encryption
-                String cipher = selectionModel.getSelectedItem();
-                switch (cipher) {
-                    case "Shift Cipher":
-                        int shift = ui.getKeyComboBox().getSelectionModel().getSelectedIndex();
-                        showLog("Caesar (shift: " + shift + ")");
-                        cipherText.setValue(Cryptography.shiftCipher(shift, modifiedText));
-                        break;
-                    case "Polyalphabetic Cipher":
-                        String keyword = ui.getKeyTextField().getText().toUpperCase();
-                        keyword = keyword.replaceAll("[^A-Z]" , ""); // allow only latin letters in keyword
-                        showLog("Vigenère (keyword: " + keyword + ")");
-                        try {
-                            cipherText.setValue(Cryptography.polyalphabeticCipher(keyword, modifiedText));
-                        } catch (IllegalArgumentException e) {
-                            showAlert(e);
+        /**
+         * Hill climbing on the quadgrams of the cipher text, the climbs run in parallel (see SubstitutionSolver).
+         * Of a paged document only the beginning is examined, like for the polyalphabetic cipher.
+         */
+        private void crackSubstitutionCipher(final String text, final PagedDocument document) {
+            Task<List<SubstitutionSolver.AlphabetCandidate>> task = new Task<List<SubstitutionSolver.AlphabetCandidate>>() {
+                @Override
+                protected List<SubstitutionSolver.AlphabetCandidate> call() {
+                    String sample = document != null ? document.readText(CRACK_SAMPLE_SIZE) : text;
+                    LanguageProfile language =
+                            LanguageProfile.detectSubstitution(Cryptography.parallelFrequencyHistogram(sample));
+                    updateMessage("Language of the plane text: " + language.getName() + (language.hasNGrams()
+                            ? "" : " (no quadgrams loaded, only the letter frequencies are matched)"));
+                    return SubstitutionSolver.crack(sample, language, SubstitutionSolver.DEFAULT_RESTARTS);
+                }
+            };
+            task.setOnSucceeded((WorkerStateEvent e) -> {
+                List<String> keys = new ArrayList<>();
+                List<String> items = new ArrayList<>();
+                for (SubstitutionSolver.AlphabetCandidate candidate : task.getValue()) {
+                    keys.add(candidate.getAlphabet());
+                    items.add(candidate.toString());
+                }
+                showCandidates(keys, items, true);
+            });
+            submitTask(task, "Breaking substitution cipher");
+        }
+    }
+
+    /**
+     * Method shows the ranked keys of a broken cipher and decrypts the original text with the best key.
+     *
+     * @param keys The keys, ranked from the most to the least probable.
+     *             Each key is a keyword, for the shift cipher the letter A is shifted to.
+     * @param items The descriptions of the keys for the candidates list.
+     * @param alphabets True if the keys are cipher alphabets of a substitution cipher.
+     */
+    private void showCandidates(final List<String> keys, final List<String> items, final boolean alphabets) {
+        candidateAlphabets = alphabets;
+        candidateKeys.setAll(keys);
+        ui.getCandidatesList().getItems().setAll(items);
+        ui.getCandidatesList().getSelectionModel().selectFirst();
+    }
+
+    /**
+     * Method decrypts the original text with a key from the candidates list.
+     *
+     * @param index The index of the key in the candidates list.
+     */
+    private void decryptWithCandidate(final int index) {
+        final PagedDocument document = originalDocument.get();
+        if (index < 0 || index >= candidateKeys.size() || (document == null && originalText.getValueSafe().isEmpty())) {
+            return;
+        }
+        String key = candidateKeys.get(index);
+        // a shift is a keyword of one letter
+        StreamCipher cipher = candidateAlphabets ? StreamCipher.substitution(key) : StreamCipher.polyalphabetic(key);
+        TextNormalizer normalizer = new TextNormalizer(false, false, false, false, cipher.inverse());
+
+        if (document != null) {
+            Task<PagedDocument> task = createFileCipherTask(document, normalizer);
+            task.setOnSucceeded((WorkerStateEvent e) -> {
+                showDocument(planeDocument, ui.getPlaneViewer(), task.getValue());
+                ui.getPlaneTab().getTabPane().getSelectionModel().select(ui.getPlaneTab());
+            });
+            submitTask(task, "Decrypting (key: " + key + ")");
+            return;
+        }
+        Task<CompactText> task = createCipherTask(originalText.get(), normalizer,
+                "decrypt:" + (candidateAlphabets ? "alphabet=" : "keyword=") + key);
+        task.setOnSucceeded((WorkerStateEvent e) -> {
+            showDocument(planeDocument, ui.getPlaneViewer(), new PagedDocument(task.getValue()));
+            ui.getPlaneTab().getTabPane().getSelectionModel().select(ui.getPlaneTab());
+        });
+        submitTask(task, "Decrypting (key: " + key + ")");
+    }
+
+    /**
+     * Method creates a task, which normalizes and encrypts a text chunk by chunk.
+     *
+     * @param text The text to be processed.
+     * @param normalizer The normalizer applying the character handling options and the cipher.
+     * @param settings The cipher, key and options of the normalizer, as key of the result cache.
+     *
+     * @return The task, its value is the resulting text, which is shown as PagedDocument.
+     */
+    private Task<CompactText> createCipherTask(final String text, final TextNormalizer normalizer, final String settings) {
+        return new CachingTask<CompactText>() {
+            @Override
+            protected CompactText call() throws Exception {
+                return cached(ResultCache.key(text, settings), () -> {
+                    // convert to upper case, remove whitespace, punctuation and non-alphanumeric characters
+                    // if options are enabled and encrypt in the same pass, chunk by chunk
+                    // the result is stored once in compact form, it is never copied into a text area
+                    Metrics.Timer timer = TextNormalizer.METRICS.start();
+                    CompactText.Builder result = new CompactText.Builder(text.length());
+                    for (int from = 0; from < text.length(); from += TASK_CHUNK_SIZE) {
+                        if (isCancelled()) {
+                            return null;
                         }
-                        break;
+                        int to = Math.min(text.length(), from + TASK_CHUNK_SIZE);
+                        int length = normalizer.normalize(text, from, to);
+                        result.append(normalizer.getBuffer(), 0, length);
+                        updateProgress(to, text.length());
+                    }
+                    int length = normalizer.finish();
+                    result.append(normalizer.getBuffer(), 0, length);
+                    CompactText normalized = result.build();
+                    timer.stop(text.length());
+                    return normalized;
+                });
+            }
+        };
+    }
+
+    /**
+     * Inner class for tasks, which look up their results in the result cache first.
+     * The hit rate of the cache is logged as message of the task.
+     */
+    private abstract class CachingTask<V> extends Task<V> {
+
+        /**
+         * Method returns the cached result of a key or computes and caches it.
+         * The computation returns null, if the task has been cancelled, so a partial result is never cached.
+         */
+        protected <T> T cached(final ResultCache.Key key, final ResultCache.Computation<T> computation) throws Exception {
+            T result = resultCache.computeIfAbsent(key, computation);
+            updateMessage(resultCache.toString());
+            return result;
+        }
+
+        /**
+         * Method does the frequency-analysis of a text chunk by chunk, or returns its cached histogram.
+         */
+        protected CharHistogram textHistogram(final String text) throws Exception {
+            return cached(ResultCache.key(text, "frequencies"), () -> {
+                CharHistogram histogram = new CharHistogram();
+                for (int from = 0; from < text.length(); from += TASK_CHUNK_SIZE) {
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    int to = Math.min(text.length(), from + TASK_CHUNK_SIZE);
+                    histogram.merge(Cryptography.parallelFrequencyHistogram(text, from, to));
+                    updateProgress(to, text.length());
+                }
+                return histogram;
+            });
+        }
+
+        /**
+         * Method does the frequency-analysis of a file, or returns its cached histogram.
+         */
+        protected CharHistogram fileHistogram(final File file) throws Exception {
+            return cached(ResultCache.key(file, "frequencies"), () -> TextAnalyserIO.analyseFile(file));
+        }
+    }
+
+    /**
+     * Method compares the two texts selected in the compare stage in the background and shows them side by side.
+     * A paged document is compared from its file, as soon as its lines are indexed by the viewer of its tab.
+     */
+    private void compareTexts() {
+        final int leftTab = ui.getCompareLeftBox().getSelectionModel().getSelectedIndex();
+        final int rightTab = ui.getCompareRightBox().getSelectionModel().getSelectedIndex();
+        final String leftText = leftTab == 0 ? originalText.getValueSafe() : "";
+        final String rightText = rightTab == 0 ? originalText.getValueSafe() : "";
+        final PagedDocument leftDocument = documentProperty(leftTab).get();
+        final PagedDocument rightDocument = documentProperty(rightTab).get();
+
+        Task<TextComparison> task = new Task<TextComparison>() {
+            @Override
+            protected TextComparison call() throws InterruptedException {
+                TextComparison.Lines leftLines = lines(leftText, leftDocument);
+                TextComparison.Lines rightLines = lines(rightText, rightDocument);
+                if (leftLines == null || rightLines == null) {
+                    return null;
+                }
+                TextComparison comparison = new TextComparison(leftLines, rightLines);
+                while (!comparison.compare(COMPARE_STEP)) {
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    updateProgress(comparison.getProgress(), 1);
+                }
+                return comparison;
+            }
+
+            private TextComparison.Lines lines(final String text, final PagedDocument document) throws InterruptedException {
+                if (document == null) {
+                    return TextComparison.lines(text);
+                }
+                while (!document.isIndexed()) {
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    Thread.sleep(INDEX_POLL_MILLIS);
+                }
+                return TextComparison.lines(document);
+            }
+        };
+        task.setOnSucceeded((WorkerStateEvent e) -> {
+            ui.getCompareViewer().setComparison(task.getValue());
+            ui.getCompareLabel().setText(task.getValue().toString());
+            showLog(task.getValue().toString());
+        });
+        ui.getCompareViewer().setComparison(null);
+        ui.getCompareLabel().setText("Comparing...");
+        submitTask(task, "Comparing " + ui.getCompareLeftBox().getValue() + " with " + ui.getCompareRightBox().getValue());
+    }
+
+    /**
+     * @return The document property of a tab (0: original, 1: cipher text, 2: plane text).
+     */
+    private ObjectProperty<PagedDocument> documentProperty(final int tab) {
+        return tab == 0 ? originalDocument : tab == 1 ? cipherDocument : planeDocument;
+    }
+
+    /**
+     * Method creates a task, which normalizes and encrypts a paged document from its file into a temporary file.
+     *
+     * @param document The document to be processed.
+     * @param normalizer The normalizer applying the character handling options and the cipher.
+     *
+     * @return The task, its value is the resulting document.
+     */
+    private Task<PagedDocument> createFileCipherTask(final PagedDocument document, final TextNormalizer normalizer) {
+        return new Task<PagedDocument>() {
+            @Override
+            protected PagedDocument call() throws IOException {
+                File outputFile = File.createTempFile("text-analyser-", ".txt");
+                outputFile.deleteOnExit();
+                try {
+                    TextAnalyserIO.encryptFile(document.getFile(), outputFile, normalizer);
+                    if (isCancelled()) {
+                        Files.deleteIfExists(outputFile.toPath());
+                        return null;
+                    }
+                    return new PagedDocument(outputFile, true);
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(outputFile.toPath());
+                    throw e;
                 }
             }
+        };
+    }
+
+    /**
+     * Inner Class for ActionEvent "encrypt file".
+     * Encrypts a file directly into another file, without importing its text.
+     */
+    private class EncryptFileHandler implements EventHandler<ActionEvent> {
+        @Override
+        public void handle(ActionEvent event) {
+            if (!checkCipherOptions()) {
+                return;
+            }
+            // file chooser configuration
+            FileChooser fileChooser = new FileChooser();
+            fileChooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("Text files (*.txt)", "*.txt"),
+                    new FileChooser.ExtensionFilter("All files", "*")
+            );
+            // show open and save file dialogs
+            fileChooser.setTitle("Encrypt Resource File");
+            File inputFile = fileChooser.showOpenDialog(ui.getPrimaryStage());
+            if (inputFile == null) {
+                return;
+            }
+            fileChooser.setTitle("Save Cipher Text");
+            File outputFile = fileChooser.showSaveDialog(ui.getPrimaryStage());
+            if (outputFile == null) {
+                return;
+            }
+
+            // encrypt the specified file in the background
+            final TextNormalizer normalizer;
+            try {
+                normalizer = createNormalizer(createCipher());
+            } catch (IllegalArgumentException e) {
+                showAlert(e);
+                return;
+            }
+            Task<Long> task = new Task<Long>() {
+                @Override
+                protected Long call() throws IOException {
+                    return TextAnalyserIO.encryptFile(inputFile, outputFile, normalizer);
+                }
+            };
+            task.setOnSucceeded((WorkerStateEvent e) ->
+                    showLog(task.getValue() + " characters encrypted to " + outputFile.toString())
+            );
+            submitTask(task, "Encrypting " + inputFile.toString());
+        }
+    }
+
+    /**
+     * Method checks if all selection options for the encryption have been made
+     * and gives visual highlight to missing options.
+     *
+     * @return True if a cipher and its key have been selected, otherwise false.
+     */
+    private boolean checkCipherOptions() {
+        SelectionModel<String> selectionModel = ui.getCipherSelectionBox().getSelectionModel();
+        if (selectionModel.isEmpty()) {
+            ui.getCipherSelectionBox().setStyle("-fx-border-color:RED");
+            return false;
+        } else {
+            ui.getCipherSelectionBox().setStyle("-fx-border-color:transparent");
+        }
+        if (ui.getKeyComboBox().isDisabled()) {
+            if (ui.getKeyTextField().getText().isEmpty()) {
+                ui.getKeyTextField().setStyle("-fx-border-color:RED");
+                return false;
+            }
+            ui.getKeyTextField().setStyle("-fx-border-color:transparent");
+
+        } else {
+            if (ui.getKeyComboBox().getSelectionModel().isEmpty()) {
+                ui.getKeyComboBox().setStyle("-fx-border-color:RED");
+                return false;
+            }
+            ui.getKeyComboBox().setStyle("-fx-border-color:transparent");
+        }
+        return true;
+    }
+
+    /**
+     * @return The keyword entered for the polyalphabetic cipher, or the cipher alphabet of the substitution cipher,
+     *         reduced to uppercase latin letters.
+     */
+    private String getKeyword() {
+        String keyword = ui.getKeyTextField().getText().toUpperCase();
+        return keyword.replaceAll("[^A-Z]" , ""); // allow only latin letters in keyword
+    }
+
+    /**
+     * Method creates a StreamCipher for the selected cipher and key.
+     * Call checkCipherOptions() first.
+     *
+     * @return The StreamCipher.
+     */
+    private StreamCipher createCipher() throws IllegalArgumentException {
+        String selectedCipher = ui.getCipherSelectionBox().getSelectionModel().getSelectedItem();
+        if (selectedCipher.equals("Shift Cipher")) {
+            return StreamCipher.shift(ui.getKeyComboBox().getSelectionModel().getSelectedIndex());
+        } else if (selectedCipher.equals("Substitution Cipher")) {
+            return StreamCipher.substitution(getKeyword());
+        }
+        return StreamCipher.polyalphabetic(getKeyword());
+    }
+
+    /**
+     * Method creates a TextNormalizer with the character handling options of the settings stage.
+     *
+     * @param cipher The cipher to be applied in the same pass, or null.
+     *
+     * @return The TextNormalizer.
+     */
+    private TextNormalizer createNormalizer(final StreamCipher cipher) {
+        boolean removeWhitespace = ui.getWhitespaceToggleGroup().getSelectedToggle().getUserData().equals("remove");
+        boolean removePunctuation = ui.getPunctuationToggleGroup().getSelectedToggle().getUserData().equals("remove");
+        boolean onlyAlphaNumeric = ui.getAlphaNumericCheckBox().isSelected();
+        boolean toUpperCase = ui.getCaseToggleGroup().getSelectedToggle().getUserData().equals("convert");
+        return new TextNormalizer(removeWhitespace, removePunctuation, onlyAlphaNumeric, toUpperCase, cipher);
+    }
+
+    /**
+     * Method describes the selected cipher, its key and the character handling options in a normalized form,
+     * which identifies the result of an encryption in the result cache.
+     *
+     * @return The settings of the encryption.
+     */
+    private String getCipherSettings() {
+        String selectedCipher = ui.getCipherSelectionBox().getSelectionModel().getSelectedItem();
+        String key = selectedCipher.equals("Shift Cipher")
+                ? "shift=" + ui.getKeyComboBox().getSelectionModel().getSelectedIndex()
+                : selectedCipher.equals("Substitution Cipher") ? "alphabet=" + getKeyword() : "keyword=" + getKeyword();
+        return "encrypt:" + key
+                + ";whitespace=" + ui.getWhitespaceToggleGroup().getSelectedToggle().getUserData()
+                + ";punctuation=" + ui.getPunctuationToggleGroup().getSelectedToggle().getUserData()
+                + ";alphanumeric=" + ui.getAlphaNumericCheckBox().isSelected()
+                + ";case=" + ui.getCaseToggleGroup().getSelectedToggle().getUserData();
+    }
+
+    /**
+     * @return The settings of an n-gram analysis of latin letters, as key of the result cache.
+     */
+    private static String nGramSettings(final int n) {
+        return "ngrams:" + n + ";letters";
+    }
+
+    /**
+     * Method submits a task to the background executor. The previous task will be cancelled, if it is still
+     * queued or running, so rapid clicks don't pile up duplicate work. The progress of the task is shown in the progress bar,
+     * its messages, failure and cancellation in the log.
+     * Results have to be published by the OnSucceeded handler of the task.
+     *
+     * @param task The task to be submitted.
+     * @param description Logging message for the start of the task.
+     */
+    private void submitTask(final Task<?> task, final String description) {
+        // a task waiting in the queue of the executor is not running yet, but is cancelled as well
+        if (currentTask != null && currentTask.cancel()) {
+            showLog("Previous operation superseded");
+        }
+        currentTask = task;
+
+        ui.getProgressBar().progressProperty().bind(task.progressProperty());
+        ui.getButtonCancel().disableProperty().bind(task.runningProperty().not());
+        task.messageProperty().addListener((ObservableValue<? extends String> ov, String oldVal, String newVal) -> {
+            if (!newVal.isEmpty()) {
+                showLog(newVal);
+            }
+        });
+        task.setOnFailed((WorkerStateEvent e) -> {
+            Throwable exception = task.getException();
+            showAlert(exception instanceof Exception ? (Exception) exception : new RuntimeException(exception));
+        });
+        task.setOnCancelled((WorkerStateEvent e) -> showLog(description + " cancelled"));
+
+        showLog(description);
+        executor.submit(task);
+    }
+
+    /**
+     * Method updates the data model in place from a histogram, keeping the sort order of the TableView.
+     *
+     * @param histogram The result of a frequency-analysis.
+     */
+    @SuppressWarnings("unchecked")
+    private void updateLettersTable(final CharHistogram histogram) {
+        TableView<FrequencyModel> table = ui.getLettersTable();
+        data.update(histogram, table.getComparator());
+    }
+
+    /**
+     * Method shows the most frequent n-grams of a histogram in the TableView, in the sort order of the TableView.
+     *
+     * @param histogram The result of an n-gram analysis.
+     */
+    @SuppressWarnings("unchecked")
+    private void updateNGramTable(final NGramHistogram histogram) {
+        TableView<FrequencyModel> table = ui.getLettersTable();
+        data.update(histogram.top(TOP_NGRAMS), table.getComparator());
+    }
+
+    /**
+     * @return The length of the n-grams selected for the frequency analysis, 1 for single characters.
+     */
+    private int getNGramLength() {
+        return ui.getNGramSelectionBox().getSelectionModel().getSelectedIndex() + 1;
+    }
+
+    /**
+     * Method names the most probable language of an analysed text for the log, if several profiles are loaded.
+     *
+     * @param histogram The result of a frequency-analysis.
+     *
+     * @return The note to be appended to a logging message, or an empty string.
+     */
+    private static String languageNote(final CharHistogram histogram) {
+        if (LanguageProfile.getProfiles().size() < 2) {
+            return "";
         }
+        return ", language " + LanguageProfile.detect(histogram, false).get(0);
     }
 
     /**
@@ -2,8 +2,19 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.stream.Stream;
+import java.nio.file.StandardOpenOption;
 
 
 /**
@@ -12,6 +23,15 @@ import java.util.stream.Stream;
  */
 public class TextAnalyserIO {
 
+    private static final int MAP_CHUNK_SIZE = 1 << 26;         // files are mapped in windows of 64 MB
+    private static final char REPLACEMENT_CHAR = '\uFFFD';     // counted for malformed input
+
+    private static final Metrics.Stage READ_METRICS = Metrics.stage("io.readFile", "bytes");
+    private static final Metrics.Stage ANALYSE_FILE_METRICS = Metrics.stage("io.analyseFile", "bytes");
+    private static final Metrics.Stage ANALYSE_BYTES_METRICS = Metrics.stage("io.analyseBytes", "bytes");
+    private static final Metrics.Stage NGRAMS_FILE_METRICS = Metrics.stage("io.analyseFileNGrams", "chars");
+    private static final Metrics.Stage ENCRYPT_FILE_METRICS = Metrics.stage("io.encryptFile", "chars");
+
     /**
      * Static method for reading from an txt file.
      * Returns content as string-object.
@@ -21,21 +41,147 @@ public class TextAnalyserIO {
      * @return Content of the file represented as string-object or null, if an exception occurred.
      */
     public static String openFile(final File inputFile) {
-        StringBuilder content = new StringBuilder();
-
-        try (Stream<String> stream = Files.lines(inputFile.toPath())) {
+        try {
             // check, if file contains plane text
-            if (fileContainsText(inputFile)) {
-                stream.forEach(content::append);
-            } else {
+            if (!fileContainsText(inputFile)) {
                 throw new IllegalArgumentException("No valid file was selected!");
             }
+            return readFile(inputFile);
         } catch (Exception e) {
             TextAnalyserController.showAlert(e);
             e.printStackTrace();
             return null;
         }
-        return content.toString();
+    }
+
+    /**
+     * Static method for reading the whole content of an UTF-8 encoded txt file, including the line separators.
+     * Unlike openFile(File), exceptions are thrown to the caller instead of being shown in an alert,
+     * so this method can be used without the UI.
+     *
+     * @param inputFile Input file (txt) to read from.
+     *
+     * @return Content of the file.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    public static String readFile(final File inputFile) throws IOException {
+        Metrics.Timer timer = READ_METRICS.start();
+        byte[] bytes = Files.readAllBytes(inputFile.toPath());
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        timer.stop(bytes.length);
+        return text;
+    }
+
+    /**
+     * Static method for frequency-analysis of an UTF-8 encoded txt file.
+     * See analyseFile(File, Charset).
+     *
+     * @param inputFile Input file (txt) to be analysed.
+     *
+     * @return CharHistogram containing the frequency of each character.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    public static CharHistogram analyseFile(final File inputFile) throws IOException {
+        return analyseFile(inputFile, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Static method for frequency-analysis of a txt file, without reading its content into a string.
+     * The file is memory-mapped chunk by chunk and the characters are counted directly from the mapped bytes,
+     * so the used heap does not depend on the file size. Latin-1 files are counted byte by byte,
+     * UTF-8 files are decoded incrementally with a fast path for ASCII bytes.
+     * Malformed input is counted as replacement character (U+FFFD).
+     *
+     * @param inputFile Input file (txt) to be analysed.
+     * @param charset Charset of the file.
+     *
+     * @return CharHistogram containing the frequency of each character.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    public static CharHistogram analyseFile(final File inputFile, final Charset charset) throws IOException {
+        if (!fileContainsText(inputFile)) {
+            throw new IllegalArgumentException("No valid file was selected!");
+        }
+        Metrics.Timer timer = ANALYSE_FILE_METRICS.start();
+        CharHistogram histogram = new CharHistogram();
+        ChunkCounter counter = new ChunkCounter(histogram, charset);
+        long size;
+
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            size = channel.size();
+            long position = 0;
+            while (position < size) {
+                ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_CHUNK_SIZE, size - position));
+                boolean endOfInput = position + chunk.limit() >= size;
+                counter.count(chunk, endOfInput);
+                // bytes of an incomplete character at the end of the chunk are mapped again with the next chunk
+                position += chunk.position();
+                if (endOfInput) {
+                    break;
+                }
+            }
+        }
+        counter.finish();
+        timer.stop(size);
+        return histogram;
+    }
+
+    /**
+     * Static method for frequency-analysis of the encoded content of a file, which has already been read.
+     * See analyseFile(File, Charset).
+     *
+     * @param bytes The encoded text, all remaining bytes are counted.
+     * @param charset Charset of the text.
+     *
+     * @return CharHistogram containing the frequency of each character.
+     */
+    public static CharHistogram analyseBytes(final ByteBuffer bytes, final Charset charset) {
+        Metrics.Timer timer = ANALYSE_BYTES_METRICS.start();
+        int size = bytes.remaining();
+        CharHistogram histogram = new CharHistogram();
+        ChunkCounter counter = new ChunkCounter(histogram, charset);
+        counter.count(bytes, true);
+        counter.finish();
+        timer.stop(size);
+        return histogram;
+    }
+
+    /**
+     * Static method for n-gram analysis of a txt file, without reading its content into a string.
+     * The file is decoded chunk by chunk and the n-grams are counted across the chunk borders.
+     *
+     * @param inputFile Input file (txt) to be analysed.
+     * @param charset Charset of the file.
+     * @param n The length of the n-grams.
+     * @param lettersOnly True to count only latin letters, see NGramHistogram.
+     *
+     * @return NGramHistogram containing the frequency of each n-gram.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    public static NGramHistogram analyseFileNGrams(final File inputFile, final Charset charset,
+                                                   final int n, final boolean lettersOnly) throws IOException {
+        if (!fileContainsText(inputFile)) {
+            throw new IllegalArgumentException("No valid file was selected!");
+        }
+        Metrics.Timer timer = NGRAMS_FILE_METRICS.start();
+        NGramHistogram histogram = new NGramHistogram(n, lettersOnly);
+        char[] buffer = new char[1 << 16];
+        long count = 0;
+        try (Reader in = new InputStreamReader(Files.newInputStream(inputFile.toPath()), charset)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    histogram.add(buffer[i]);
+                }
+                count += read;
+            }
+        }
+        timer.stop(count);
+        return histogram;
     }
 
     /**
@@ -54,6 +200,171 @@ public class TextAnalyserIO {
         }
     }
 
+    /**
+     * Static method for encrypting an UTF-8 encoded txt file directly into another file.
+     * The text is streamed through the normalizer and its cipher chunk by chunk,
+     * so it is never held in memory as a whole.
+     *
+     * @param inputFile Input file (txt) with the plane text.
+     * @param outputFile File to save the cipher text.
+     * @param normalizer The normalizer applying the character handling options and the cipher.
+     *
+     * @return The number of encrypted characters.
+     *
+     * @throws IOException If reading or writing fails.
+     */
+    public static long encryptFile(final File inputFile, final File outputFile, final TextNormalizer normalizer) throws IOException {
+        return encryptFile(inputFile, StandardCharsets.UTF_8, outputFile, normalizer);
+    }
+
+    /**
+     * Static method for encrypting a txt file of any charset directly into an UTF-8 encoded file.
+     * See encryptFile(File, File, TextNormalizer).
+     *
+     * @param inputFile Input file (txt) with the plane text.
+     * @param charset The charset of the input file.
+     * @param outputFile File to save the cipher text.
+     * @param normalizer The normalizer applying the character handling options and the cipher.
+     *
+     * @return The number of encrypted characters.
+     *
+     * @throws IOException If reading or writing fails.
+     */
+    public static long encryptFile(final File inputFile, final Charset charset, final File outputFile,
+                                   final TextNormalizer normalizer) throws IOException {
+        if (!fileContainsText(inputFile)) {
+            throw new IllegalArgumentException("No valid file was selected!");
+        }
+        Metrics.Timer timer = ENCRYPT_FILE_METRICS.start();
+        long count;
+        try (Reader in = new InputStreamReader(Files.newInputStream(inputFile.toPath()), charset);
+             Writer out = Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8)) {
+            count = normalizer.normalize(in, out);
+        }
+        timer.stop(count);
+        return count;
+    }
+
+    /**
+     * Static method for writing a histogram as CSV, one line per character with the columns
+     * character, code point and frequency, in ascending order of the characters.
+     *
+     * @param histogram The result of a frequency-analysis.
+     * @param out The Writer to write to, it will not be closed.
+     *
+     * @throws IOException If writing fails.
+     */
+    public static void writeHistogramCsv(final CharHistogram histogram, final Writer out) throws IOException {
+        out.write("character,code_point,frequency\n");
+        StringBuilder csv = new StringBuilder();
+        histogram.forEach((char c, long frequency) -> {
+            if (c == '"') {
+                csv.append("\"\"\"\"");
+            } else if (c == ',' || c == '\n' || c == '\r') {
+                csv.append('"').append(c).append('"');
+            } else {
+                csv.append(c);
+            }
+            csv.append(',').append((int) c).append(',').append(frequency).append('\n');
+        });
+        out.write(csv.toString());
+        out.flush();
+    }
+
+    /**
+     * Static method for writing a histogram as JSON object with the total number of characters
+     * and the frequency of each character, in ascending order of the characters.
+     *
+     * @param histogram The result of a frequency-analysis.
+     * @param out The Writer to write to, it will not be closed.
+     *
+     * @throws IOException If writing fails.
+     */
+    public static void writeHistogramJson(final CharHistogram histogram, final Writer out) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"total\":").append(histogram.getTotal()).append(",\"frequencies\":{");
+        histogram.forEach((char c, long frequency) -> {
+            if (json.charAt(json.length() - 1) != '{') {
+                json.append(',');
+            }
+            json.append('"');
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20 || Character.isSurrogate(c)) {
+                json.append(String.format("\\u%04x", (int) c));    // also unpaired surrogates stay valid
+            } else {
+                json.append(c);
+            }
+            json.append("\":").append(frequency);
+        });
+        json.append("}}\n");
+        out.write(json.toString());
+        out.flush();
+    }
+
+    /**
+     * Static method for writing the most frequent n-grams as CSV, one line per n-gram
+     * with the columns n-gram and frequency, in descending order of the frequencies.
+     *
+     * @param histogram The result of an n-gram analysis.
+     * @param top The maximum number of n-grams.
+     * @param out The Writer to write to, it will not be closed.
+     *
+     * @throws IOException If writing fails.
+     */
+    public static void writeNGramsCsv(final NGramHistogram histogram, final int top, final Writer out) throws IOException {
+        StringBuilder csv = new StringBuilder("ngram,frequency\n");
+        for (NGramHistogram.NGramCount nGram : histogram.top(top)) {
+            String text = nGram.getNGram();
+            if (text.indexOf('"') >= 0 || text.indexOf(',') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                csv.append('"').append(text.replace("\"", "\"\"")).append('"');
+            } else {
+                csv.append(text);
+            }
+            csv.append(',').append(nGram.getCount()).append('\n');
+        }
+        out.write(csv.toString());
+        out.flush();
+    }
+
+    /**
+     * Static method for writing the most frequent n-grams as JSON object with n, the total and distinct number
+     * of n-grams and an array of the top n-grams, in descending order of the frequencies.
+     *
+     * @param histogram The result of an n-gram analysis.
+     * @param top The maximum number of n-grams.
+     * @param out The Writer to write to, it will not be closed.
+     *
+     * @throws IOException If writing fails.
+     */
+    public static void writeNGramsJson(final NGramHistogram histogram, final int top, final Writer out) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"n\":").append(histogram.getN())
+                .append(",\"total\":").append(histogram.getTotal())
+                .append(",\"distinct\":").append(histogram.getDistinct())
+                .append(",\"top\":[");
+        for (NGramHistogram.NGramCount nGram : histogram.top(top)) {
+            if (json.charAt(json.length() - 1) != '[') {
+                json.append(',');
+            }
+            json.append("{\"ngram\":\"");
+            for (int i = 0; i < nGram.getNGram().length(); i++) {
+                char c = nGram.getNGram().charAt(i);
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                } else if (c < 0x20 || Character.isSurrogate(c)) {
+                    json.append(String.format("\\u%04x", (int) c));
+                } else {
+                    json.append(c);
+                }
+            }
+            json.append("\",\"frequency\":").append(nGram.getCount()).append('}');
+        }
+        json.append("]}\n");
+        out.write(json.toString());
+        out.flush();
+    }
+
     /**
      * Method checks, if a selected file is valid for reading text from it.
      *
@@ -68,4 +379,183 @@ public class TextAnalyserIO {
         String fileType = Files.probeContentType(file.toPath());
         return (fileType != null && fileType.matches("(text).*"));
     }
+
+    /**
+     * Inner class counts the characters of consecutive chunks of encoded bytes.
+     * Latin-1 is counted byte by byte, UTF-8 is decoded by the Utf8Counter
+     * and other charsets are decoded into a small reusable buffer.
+     */
+    private static class ChunkCounter {
+        private final CharHistogram histogram;
+        private final Charset charset;
+        private final Utf8Counter utf8Counter;
+        private CharsetDecoder decoder;     // only created for other charsets
+        private CharBuffer decoded;
+
+        ChunkCounter(final CharHistogram histogram, final Charset charset) {
+            this.histogram = histogram;
+            this.charset = charset;
+            this.utf8Counter = new Utf8Counter(histogram);
+        }
+
+        /**
+         * Method counts the bytes of a chunk. Bytes of an incomplete character at the end of the chunk
+         * may be left unread (see the position of the chunk), unless it is the end of the input.
+         */
+        void count(final ByteBuffer chunk, final boolean endOfInput) {
+            if (charset.equals(StandardCharsets.ISO_8859_1)) {
+                histogram.addLatin1(chunk);
+            } else if (charset.equals(StandardCharsets.UTF_8)) {
+                utf8Counter.count(chunk);
+            } else {
+                // other charsets, also US-ASCII (each byte beyond ASCII is a replacement char), are decoded
+                if (decoder == null) {
+                    decoder = charset.newDecoder()
+                            .onMalformedInput(CodingErrorAction.REPLACE)
+                            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                    decoded = CharBuffer.allocate(8192);
+                }
+                CoderResult result;
+                do {
+                    result = decoder.decode(chunk, decoded, endOfInput);
+                    decoded.flip();
+                    histogram.addAll(decoded);
+                    decoded.clear();
+                } while (result.isOverflow());
+                if (endOfInput) {
+                    decoder.flush(decoded);
+                    decoded.flip();
+                    histogram.addAll(decoded);
+                    decoded.clear();
+                }
+            }
+        }
+
+        void finish() {
+            utf8Counter.finish();
+        }
+    }
+
+    /**
+     * Inner class decodes UTF-8 bytes incrementally and counts the decoded characters.
+     * The state of an incomplete multi-byte sequence is carried from one buffer to the next.
+     * Each maximal malformed subpart of a sequence is counted as one replacement character.
+     */
+    private static class Utf8Counter {
+        private final CharHistogram histogram;
+        private int[] asciiCounts;  // sub-histograms of the ASCII words, added to the histogram by finish()
+        private long asciiBytes;    // bytes in the sub-histograms
+        private int codePoint;      // bits of the current multi-byte sequence
+        private int pending;        // continuation bytes still expected for the current sequence
+        private int lower = 0x80;   // valid range of the next continuation byte
+        private int upper = 0xBF;
+
+        Utf8Counter(final CharHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        /**
+         * Method counts all remaining bytes of the buffer.
+         */
+        void count(final ByteBuffer bytes) {
+            while (bytes.hasRemaining()) {
+                if (pending == 0 && WordKernels.ENABLED && bytes.remaining() >= WordKernels.WORD_BYTES
+                        && bytes.get(bytes.position()) >= 0) {
+                    countAsciiWords(bytes);
+                    if (!bytes.hasRemaining()) {
+                        break;
+                    }
+                }
+                byte b = bytes.get();
+                if (pending == 0) {
+                    if (b >= 0) {                               // ASCII
+                        histogram.add((char) b);
+                    } else {
+                        startSequence(b & 0xFF);
+                    }
+                } else if ((b & 0xFF) >= lower && (b & 0xFF) <= upper) {  // continuation byte
+                    codePoint = codePoint << 6 | (b & 0x3F);
+                    lower = 0x80;
+                    upper = 0xBF;
+                    if (--pending == 0) {
+                        countCodePoint(codePoint);
+                    }
+                } else {
+                    // sequence was interrupted: count it as malformed and read this byte again
+                    endSequence();
+                    bytes.position(bytes.position() - 1);
+                }
+            }
+        }
+
+        /**
+         * Method counts a run of ASCII bytes word by word, see WordKernels.countBytes().
+         */
+        private void countAsciiWords(final ByteBuffer bytes) {
+            if (asciiCounts == null) {
+                asciiCounts = new int[WordKernels.SUB_HISTOGRAM_SIZE];
+            }
+            int position = bytes.position();
+            int end = WordKernels.countBytes(bytes, position, bytes.limit(), asciiCounts, true);
+            bytes.position(end);
+            asciiBytes += end - position;
+            if (asciiBytes >= CharHistogram.MAX_SUB_HISTOGRAM_BYTES) {
+                histogram.addCounts(asciiCounts);
+                asciiBytes = 0;
+            }
+        }
+
+        /**
+         * Method counts an incomplete sequence at the end of the input as malformed
+         * and adds the counts of the ASCII words to the histogram.
+         */
+        void finish() {
+            endSequence();
+            if (asciiCounts != null) {
+                histogram.addCounts(asciiCounts);
+                asciiBytes = 0;
+            }
+        }
+
+        /**
+         * Method counts an incomplete sequence as malformed.
+         */
+        private void endSequence() {
+            if (pending > 0) {
+                pending = 0;
+                lower = 0x80;
+                upper = 0xBF;
+                histogram.add(REPLACEMENT_CHAR);
+            }
+        }
+
+        private void startSequence(final int lead) {
+            if (lead >= 0xC2 && lead <= 0xDF) {         // 2 byte sequence
+                codePoint = lead & 0x1F;
+                pending = 1;
+            } else if (lead >= 0xE0 && lead <= 0xEF) {  // 3 byte sequence, without overlongs and surrogates
+                codePoint = lead & 0x0F;
+                pending = 2;
+                lower = lead == 0xE0 ? 0xA0 : 0x80;
+                upper = lead == 0xED ? 0x9F : 0xBF;
+            } else if (lead >= 0xF0 && lead <= 0xF4) {  // 4 byte sequence, without overlongs and beyond U+10FFFF
+                codePoint = lead & 0x07;
+                pending = 3;
+                lower = lead == 0xF0 ? 0x90 : 0x80;
+                upper = lead == 0xF4 ? 0x8F : 0xBF;
+            } else {
+                histogram.add(REPLACEMENT_CHAR);
+            }
+        }
+
+        private void countCodePoint(final int codePoint) {
+            if (Character.isBmpCodePoint(codePoint)) {
+                histogram.add((char) codePoint);
+            } else {
+                // count supplementary characters as surrogate pair, like a String does
+                histogram.add(Character.highSurrogate(codePoint));
+                histogram.add(Character.lowSurrogate(codePoint));
+            }
+        }
+    }
 }
@@ -0,0 +1,575 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class provides the local HTTP service mode of the Text Analyser Application, on the HttpServer of the JDK.
+ * The text is sent as request body and the result is returned as response body, both are streamed
+ * in chunks, so large texts are never held in memory as a whole (except for breaking a polyalphabetic
+ * or substitution cipher).
+ *
+ * Endpoints (POST, the options as query parameters):
+ *      /analyse    frequency-analysis, format=json|csv, charset
+ *      /ngrams     n-gram analysis, n, top, letters=true|false, format, charset
+ *      /encrypt    shift, keyword or alphabet, removeWhitespace, removePunctuation, onlyAlphanumeric, upperCase, charset
+ *      /decrypt    shift, keyword or alphabet, charset
+ *      /crack      cipher=shift|polyalphabetic|substitution, charset: the ranked keys and the detected language as JSON
+ *      /metrics    (GET) the snapshot of Metrics as JSON
+ *
+ * At most "workers" requests are processed at once and at most "maxQueued" more wait for a worker,
+ * further requests are rejected with 429 (Too Many Requests). Larger bodies than the request limit
+ * are rejected with 413. /encrypt and /decrypt start the response before the body is read, so they need
+ * a Content-Length (411 otherwise): the limit is checked before, a body beyond it can't truncate a response. Each endpoint records its latencies in the stage "http.<endpoint>" of Metrics.
+ * This class doesn't use any JavaFX classes.
+ */
+public class TextAnalyserServer {
+
+    public static final int DEFAULT_PORT = 8080;
+
+    private static final int BUFFER_SIZE = 1 << 16;     // chars read from the request body at once
+    private static final int MAX_KEY_LENGTH = 40;       // longest keyword examined, when breaking a cipher
+    private static final int DEFAULT_TOP_NGRAMS = 100;
+
+    // set while the HttpServer dispatcher runs a handler itself, because all request threads are busy
+    private static final ThreadLocal<Boolean> OVERLOADED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor requestThreads;
+    private final int workerCount;
+    private final Semaphore workers;        // requests being processed
+    private final Semaphore admissions;     // requests being processed or waiting for a worker
+    private final long maxRequestBytes;
+    private final LongAdder rejected = new LongAdder();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+
+    /**
+     * Constructor. Binds the server, it doesn't accept requests before start().
+     *
+     * @param address The address to listen on, e.g. the loopback address. Port 0 selects a free port.
+     * @param workerCount The number of requests processed at once.
+     * @param maxQueued The number of requests waiting for a worker, before requests are rejected.
+     * @param maxRequestBytes The largest accepted request body.
+     *
+     * @throws IOException If the address can not be bound.
+     */
+    public TextAnalyserServer(final InetSocketAddress address, final int workerCount, final int maxQueued,
+                              final long maxRequestBytes) throws IOException {
+        this.workerCount = workerCount;
+        this.workers = new Semaphore(workerCount, true);
+        this.admissions = new Semaphore(workerCount + maxQueued);
+        this.maxRequestBytes = maxRequestBytes;
+
+        // one thread per admitted request, a request beyond is rejected on the dispatcher thread
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.requestThreads = new ThreadPoolExecutor(0, workerCount + maxQueued, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                (Runnable runnable) -> {
+                    Thread thread = new Thread(runnable, "TextAnalyser-Http-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (Runnable runnable, ThreadPoolExecutor executor) -> {
+                    OVERLOADED.set(Boolean.TRUE);
+                    try {
+                        runnable.run();
+                    } finally {
+                        OVERLOADED.set(Boolean.FALSE);
+                    }
+                });
+
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(requestThreads);
+        server.createContext("/analyse", new EndpointHandler("analyse", "POST", false, this::analyse));
+        server.createContext("/ngrams", new EndpointHandler("ngrams", "POST", false, this::nGrams));
+        server.createContext("/encrypt", new EndpointHandler("encrypt", "POST", true, this::encrypt));
+        server.createContext("/decrypt", new EndpointHandler("decrypt", "POST", true, this::decrypt));
+        server.createContext("/crack", new EndpointHandler("crack", "POST", false, this::crack));
+        server.createContext("/metrics", new EndpointHandler("metrics", "GET", false, this::metrics));
+    }
+
+    /**
+     * Method starts accepting requests and publishes the request gauges in Metrics.
+     */
+    public void start() {
+        Metrics.registerGauge("http.activeRequests", () -> workerCount - workers.availablePermits());
+        Metrics.registerGauge("http.queuedRequests", workers::getQueueLength);
+        Metrics.registerGauge("http.rejectedRequests", rejected::sum);
+        server.start();
+    }
+
+    /**
+     * Method stops the server. Requests being processed may finish within the delay.
+     *
+     * @param delaySeconds The seconds to wait for the requests being processed.
+     */
+    public void stop(final int delaySeconds) {
+        server.stop(delaySeconds);
+        requestThreads.shutdownNow();
+        Metrics.unregisterGauge("http.activeRequests");
+        Metrics.unregisterGauge("http.queuedRequests");
+        Metrics.unregisterGauge("http.rejectedRequests");
+        stopped.countDown();
+    }
+
+    /**
+     * Method waits, until the server has been stopped.
+     *
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * @return The address the server listens on, with the selected port.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * @return The number of requests rejected with 429 so far.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Endpoint /analyse: frequency-analysis of the request body.
+     */
+    private void analyse(final HttpExchange exchange, final Map<String, String> parameters, final InputStream body)
+            throws IOException {
+        String format = format(parameters);
+        CharHistogram histogram = new CharHistogram();
+        try (Reader in = new InputStreamReader(body, charset(parameters))) {
+            char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                histogram.addAll(buffer, 0, read);
+            }
+        }
+        try (Writer out = respond(exchange, 200, contentType(format))) {
+            if (format.equals("json")) {
+                TextAnalyserIO.writeHistogramJson(histogram, out);
+            } else {
+                TextAnalyserIO.writeHistogramCsv(histogram, out);
+            }
+        }
+    }
+
+    /**
+     * Endpoint /ngrams: n-gram analysis of the request body, the most frequent n-grams are returned.
+     */
+    private void nGrams(final HttpExchange exchange, final Map<String, String> parameters, final InputStream body)
+            throws IOException {
+        String format = format(parameters);
+        int n = intParameter(parameters, "n", 2);
+        int top = intParameter(parameters, "top", DEFAULT_TOP_NGRAMS);
+        boolean lettersOnly = !"false".equals(parameters.get("letters"));
+        if (top < 1) {
+            throw new IllegalArgumentException("top has to be at least 1");
+        }
+        NGramHistogram histogram = new NGramHistogram(n, lettersOnly);
+        try (Reader in = new InputStreamReader(body, charset(parameters))) {
+            char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    histogram.add(buffer[i]);
+                }
+            }
+        }
+        try (Writer out = respond(exchange, 200, contentType(format))) {
+            if (format.equals("json")) {
+                TextAnalyserIO.writeNGramsJson(histogram, top, out);
+            } else {
+                TextAnalyserIO.writeNGramsCsv(histogram, top, out);
+            }
+        }
+    }
+
+    /**
+     * Endpoint /encrypt: the request body is normalized and encrypted into the response body.
+     */
+    private void encrypt(final HttpExchange exchange, final Map<String, String> parameters, final InputStream body)
+            throws IOException {
+        TextNormalizer normalizer = new TextNormalizer(
+                booleanParameter(parameters, "removeWhitespace"), booleanParameter(parameters, "removePunctuation"),
+                booleanParameter(parameters, "onlyAlphanumeric"), booleanParameter(parameters, "upperCase"),
+                cipher(parameters));
+        cipher(exchange, parameters, body, normalizer);
+    }
+
+    /**
+     * Endpoint /decrypt: the request body is decrypted into the response body.
+     */
+    private void decrypt(final HttpExchange exchange, final Map<String, String> parameters, final InputStream body)
+            throws IOException {
+        TextNormalizer normalizer = new TextNormalizer(false, false, false, false, cipher(parameters).inverse());
+        cipher(exchange, parameters, body, normalizer);
+    }
+
+    /**
+     * Method streams the request body through a normalizer into the response body.
+     * The response is started before the body is read, so an error while reading truncates the response.
+     * The body has a Content-Length within the request limit, see EndpointHandler.
+     */
+    private void cipher(final HttpExchange exchange, final Map<String, String> parameters, final InputStream body,
+                        final TextNormalizer normalizer) throws IOException {
+        Charset charset = charset(parameters);
+        try (Reader in = new InputStreamReader(body, charset);
+             Writer out = respond(exchange, 200, "text/plain; charset=utf-8")) {
+            normalizer.normalize(in, out);
+        }
+    }
+
+    /**
+     * Endpoint /crack: breaks the cipher of the request body and returns the ranked keys.
+     * A shift cipher is broken by the frequency-analysis of the streamed body, a polyalphabetic
+     * or substitution cipher needs the whole text.
+     */
+    private void crack(final HttpExchange exchange, final Map<String, String> parameters, final InputStream body)
+            throws IOException {
+        String cipher = parameters.getOrDefault("cipher", "polyalphabetic");
+        StringBuilder json = new StringBuilder("{\"cipher\":\"").append(cipher).append("\",\"candidates\":[");
+        LanguageProfile language;
+        if (cipher.equals("shift")) {
+            CharHistogram histogram = new CharHistogram();
+            StringBuilder sample = new StringBuilder();     // scored by the dictionary of the language
+            try (Reader in = new InputStreamReader(body, charset(parameters))) {
+                char[] buffer = new char[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    histogram.addAll(buffer, 0, read);
+                    sample.append(buffer, 0, Math.min(read, WordDictionary.SAMPLE_SIZE - sample.length()));
+                }
+            }
+            language = LanguageProfile.detect(histogram, true).get(0).getProfile();
+            List<Cryptanalysis.ShiftCandidate> candidates =
+                    Cryptanalysis.crackShiftCipher(histogram, language.getLetterFrequencies());
+            if (language.getDictionary() != null) {
+                candidates = language.getDictionary().preferBest(sample, candidates,
+                        (Cryptanalysis.ShiftCandidate candidate) -> String.valueOf((char) ('A' + candidate.getShift())));
+            }
+            for (int i = 0; i < candidates.size(); i++) {
+                Cryptanalysis.ShiftCandidate candidate = candidates.get(i);
+                json.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT,
+                        "{\"key\":\"%c\",\"shift\":%d,\"chiSquared\":%.3f}",
+                        (char) ('A' + candidate.getShift()), candidate.getShift(), candidate.getChiSquared()));
+            }
+        } else if (cipher.equals("polyalphabetic")) {
+            String text = readText(body, charset(parameters));
+            language = LanguageProfile.detectPolyalphabetic(text, MAX_KEY_LENGTH);
+            List<Cryptanalysis.KeywordCandidate> candidates = Cryptanalysis.crackPolyalphabeticCipher(
+                    text, language.getLetterFrequencies(), MAX_KEY_LENGTH);
+            if (language.getDictionary() != null) {
+                candidates = language.getDictionary().preferBest(text, candidates, Cryptanalysis.KeywordCandidate::getKeyword);
+            }
+            for (int i = 0; i < candidates.size(); i++) {
+                Cryptanalysis.KeywordCandidate candidate = candidates.get(i);
+                json.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT,
+                        "{\"key\":\"%s\",\"indexOfCoincidence\":%.5f,\"kasiskiCount\":%d}",
+                        candidate.getKeyword(), candidate.getIndexOfCoincidence(), candidate.getKasiskiCount()));
+            }
+        } else if (cipher.equals("substitution")) {
+            String text = readText(body, charset(parameters));
+            language = LanguageProfile.detectSubstitution(Cryptography.parallelFrequencyHistogram(text));
+            List<SubstitutionSolver.AlphabetCandidate> candidates =
+                    SubstitutionSolver.crack(text, language, SubstitutionSolver.DEFAULT_RESTARTS);
+            for (int i = 0; i < candidates.size(); i++) {
+                SubstitutionSolver.AlphabetCandidate candidate = candidates.get(i);
+                json.append(i == 0 ? "" : ",").append(String.format(Locale.ROOT,
+                        "{\"key\":\"%s\",\"score\":%.4f}", candidate.getAlphabet(), candidate.getScore()));
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown cipher: " + cipher);
+        }
+        // the names of languages are plain, see LanguageProfile
+        json.append("],\"language\":\"").append(language.getName()).append("\"}\n");
+        try (Writer out = respond(exchange, 200, "application/json; charset=utf-8")) {
+            out.write(json.toString());
+        }
+    }
+
+    /**
+     * Endpoint /metrics: the snapshot of all stages and gauges.
+     */
+    private void metrics(final HttpExchange exchange, final Map<String, String> parameters, final InputStream body)
+            throws IOException {
+        try (Writer out = respond(exchange, 200, "application/json; charset=utf-8")) {
+            Metrics.writeJson(out);
+        }
+    }
+
+    /**
+     * Method starts a response with a streamed (chunked) body.
+     *
+     * @return Writer for the UTF-8 encoded response body, closing it completes the response.
+     */
+    private static Writer respond(final HttpExchange exchange, final int status, final String contentType) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, 0);
+        return new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method sends a short plain text response, e.g. an error message.
+     */
+    private static void respondText(final HttpExchange exchange, final int status, final String message) throws IOException {
+        byte[] bytes = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static String readText(final InputStream body, final Charset charset) throws IOException {
+        StringWriter text = new StringWriter();
+        try (Reader in = new InputStreamReader(body, charset)) {
+            char[] buffer = new char[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                text.write(buffer, 0, read);
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Method creates the StreamCipher of the parameter shift, keyword or alphabet.
+     */
+    private static StreamCipher cipher(final Map<String, String> parameters) {
+        String shift = parameters.get("shift");
+        String keyword = parameters.get("keyword");
+        String alphabet = parameters.get("alphabet");
+        if ((shift != null ? 1 : 0) + (keyword != null ? 1 : 0) + (alphabet != null ? 1 : 0) != 1) {
+            throw new IllegalArgumentException("Select the cipher with either shift, keyword or alphabet");
+        }
+        if (shift != null) {
+            return StreamCipher.shift(intParameter(parameters, "shift", 0));
+        }
+        if (alphabet != null) {
+            return StreamCipher.substitution(alphabet.toUpperCase().replaceAll("[^A-Z]", ""));
+        }
+        // allow only latin letters in keyword, like the UI
+        String letters = keyword.toUpperCase().replaceAll("[^A-Z]", "");
+        if (letters.isEmpty()) {
+            throw new IllegalArgumentException("Non valid keyword");
+        }
+        return StreamCipher.polyalphabetic(letters);
+    }
+
+    private static String format(final Map<String, String> parameters) {
+        String format = parameters.getOrDefault("format", "json");
+        if (!format.equals("csv") && !format.equals("json")) {
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+        return format;
+    }
+
+    private static String contentType(final String format) {
+        return format.equals("json") ? "application/json; charset=utf-8" : "text/csv; charset=utf-8";
+    }
+
+    private static Charset charset(final Map<String, String> parameters) {
+        String name = parameters.get("charset");
+        try {
+            return name == null ? StandardCharsets.UTF_8 : Charset.forName(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown charset: " + name);
+        }
+    }
+
+    private static int intParameter(final Map<String, String> parameters, final String name, final int defaultValue) {
+        String value = parameters.get(name);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Non valid number of " + name + ": " + value);
+        }
+    }
+
+    private static boolean booleanParameter(final Map<String, String> parameters, final String name) {
+        return "true".equals(parameters.get(name));
+    }
+
+    private static Map<String, String> parameters(final String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "true" : parameter.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Interface for the processing of a request by an endpoint.
+     */
+    private interface Endpoint {
+        void handle(HttpExchange exchange, Map<String, String> parameters, InputStream body) throws IOException;
+    }
+
+    /**
+     * Inner class for the common handling of all endpoints: method check, admission, request size limit,
+     * metrics and the mapping of exceptions to status codes.
+     */
+    private class EndpointHandler implements HttpHandler {
+        private final String method;
+        private final boolean streaming;        // the response is written while the body is read
+        private final Endpoint endpoint;
+        private final Metrics.Stage metrics;
+
+        EndpointHandler(final String name, final String method, final boolean streaming, final Endpoint endpoint) {
+            this.method = method;
+            this.streaming = streaming;
+            this.endpoint = endpoint;
+            this.metrics = Metrics.stage("http." + name, "bytes");
+        }
+
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            try {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    respondText(exchange, 405, "Method not allowed, use " + method);
+                    return;
+                }
+                String length = exchange.getRequestHeaders().getFirst("Content-Length");
+                if (length == null && streaming) {
+                    // a chunked body beyond the limit would only be noticed after the response has started
+                    respondText(exchange, 411, "Content-Length required");
+                    return;
+                }
+                if (length != null && Long.parseLong(length) > maxRequestBytes) {
+                    respondText(exchange, 413, "Request body larger than " + maxRequestBytes + " bytes");
+                    return;
+                }
+                if (OVERLOADED.get() || !admissions.tryAcquire()) {
+                    rejected.increment();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    respondText(exchange, 429, "Too many requests");
+                    return;
+                }
+                try {
+                    workers.acquire();
+                    try {
+                        process(exchange);
+                    } finally {
+                        workers.release();
+                    }
+                } finally {
+                    admissions.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();     // the server is stopped
+            } catch (NumberFormatException e) {
+                respondText(exchange, 400, "Non valid Content-Length");
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void process(final HttpExchange exchange) throws IOException {
+            Metrics.Timer timer = metrics.start();
+            LimitedInputStream body = new LimitedInputStream(exchange.getRequestBody(), maxRequestBytes);
+            try {
+                endpoint.handle(exchange, parameters(exchange.getRequestURI().getRawQuery()), body);
+                timer.stop(body.count);
+            } catch (RequestTooLargeException e) {
+                respondError(exchange, 413, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                respondError(exchange, 400, e.getMessage());
+            } catch (RuntimeException e) {
+                respondError(exchange, 500, e.toString());
+            }
+            // other IOExceptions are failures of the connection, it is closed without response
+        }
+
+        /**
+         * Method sends an error, unless the response has already been started (it is truncated then).
+         */
+        private void respondError(final HttpExchange exchange, final int status, final String message) throws IOException {
+            if (exchange.getResponseCode() == -1) {
+                respondText(exchange, status, message);
+            }
+        }
+    }
+
+    /**
+     * Inner class for the request body, which fails when more than the request limit is read.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        LimitedInputStream(final InputStream in, final long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(final int read) throws RequestTooLargeException {
+            count += read;
+            if (count > limit) {
+                throw new RequestTooLargeException("Request body larger than " + limit + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Exception for a request body larger than the request limit.
+     */
+    private static class RequestTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RequestTooLargeException(final String message) {
+            super(message);
+        }
+    }
+}
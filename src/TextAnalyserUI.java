@@ -2,6 +2,7 @@ import javafx.application.Application;
 import javafx.collections.FXCollections;
 import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
@@ -20,35 +21,53 @@ public class TextAnalyserUI extends Application {
     private Stage       primaryStage;
     private Stage       helpStage;
     private Stage       settingsStage;
+    private Stage       compareStage;
 
     private MenuItem    itemOpen;
+    private MenuItem    itemAnalyseFile;
+    private MenuItem    itemEncryptFile;
     private MenuItem    itemSave;
     private MenuItem    itemClear;
     private MenuItem    itemResize;
     private MenuItem    itemCompare;
+    private MenuItem    itemMetrics;
     private MenuItem    itemAbout;
 
     private TextArea    originalTextArea;
-    private TextArea    cipherTextArea;
-    private TextArea    planeTextArea;
     private TextArea    logTextArea;
+    private DocumentViewer originalViewer;
+    private DocumentViewer cipherViewer;
+    private DocumentViewer planeViewer;
     private Tab         cipherTab;
     private Tab         planeTab;
     private TableView   lettersTable;
+    private ProgressBar progressBar;
 
     private Button      buttonAnalyse;
     private Button      buttonHelp;
     private Button      buttonEncrypt;
     private Button      buttonSettings;
     private Button      buttonDecrypt;
+    private Button      buttonCancel;
+    private CheckBox    liveAnalysisCheckBox;
 
     private ToggleGroup         whitespaceToggleGroup;
     private ToggleGroup         punctuationToggleGroup;
     private ToggleGroup         caseToggleGroup;
     private CheckBox            alphaNumericCheckBox;
+    private Spinner<Integer>    cacheSizeSpinner;
+    private CheckBox            cacheSpillCheckBox;
     private ChoiceBox<String>   cipherSelectionBox;
     private ComboBox<String>    keyComboBox;
     private TextField           keyTextField;
+    private ChoiceBox<String>   decryptSelectionBox;
+    private ChoiceBox<String>   nGramSelectionBox;
+    private ListView<String>    candidatesList;
+    private ChoiceBox<String>   compareLeftBox;
+    private ChoiceBox<String>   compareRightBox;
+    private Button              buttonCompare;
+    private Label               compareLabel;
+    private CompareViewer       compareViewer;
 
 
     public Stage getPrimaryStage() {
@@ -63,16 +82,12 @@ public class TextAnalyserUI extends Application {
         return settingsStage;
     }
 
-    public TextArea getOriginalTextArea() {
-        return originalTextArea;
+    public Stage getCompareStage() {
+        return compareStage;
     }
 
-    public TextArea getCipherTextArea() {
-        return cipherTextArea;
-    }
-
-    public TextArea getPlaneTextArea() {
-        return planeTextArea;
+    public TextArea getOriginalTextArea() {
+        return originalTextArea;
     }
 
     public TextArea getLogTextArea() {
@@ -91,6 +106,10 @@ public class TextAnalyserUI extends Application {
         return lettersTable;
     }
 
+    public ProgressBar getProgressBar() {
+        return progressBar;
+    }
+
     public MenuItem getItemSave() {
         return itemSave;
     }
@@ -99,6 +118,14 @@ public class TextAnalyserUI extends Application {
         return itemOpen;
     }
 
+    public MenuItem getItemAnalyseFile() {
+        return itemAnalyseFile;
+    }
+
+    public MenuItem getItemEncryptFile() {
+        return itemEncryptFile;
+    }
+
     public MenuItem getItemClear() {
         return itemClear;
     }
@@ -111,6 +138,10 @@ public class TextAnalyserUI extends Application {
         return itemCompare;
     }
 
+    public MenuItem getItemMetrics() {
+        return itemMetrics;
+    }
+
     public MenuItem getItemAbout() {
         return itemAbout;
     }
@@ -135,6 +166,38 @@ public class TextAnalyserUI extends Application {
         return buttonDecrypt;
     }
 
+    public Button getButtonCancel() {
+        return buttonCancel;
+    }
+
+    public CheckBox getLiveAnalysisCheckBox() {
+        return liveAnalysisCheckBox;
+    }
+
+    public DocumentViewer getOriginalViewer() {
+        return originalViewer;
+    }
+
+    public DocumentViewer getCipherViewer() {
+        return cipherViewer;
+    }
+
+    public DocumentViewer getPlaneViewer() {
+        return planeViewer;
+    }
+
+    public Spinner<Integer> getCacheSizeSpinner() {
+        return cacheSizeSpinner;
+    }
+
+    public CheckBox getCacheSpillCheckBox() {
+        return cacheSpillCheckBox;
+    }
+
+    public ChoiceBox<String> getNGramSelectionBox() {
+        return nGramSelectionBox;
+    }
+
     public ToggleGroup getWhitespaceToggleGroup() {
         return whitespaceToggleGroup;
     }
@@ -163,6 +226,34 @@ public class TextAnalyserUI extends Application {
         return keyTextField;
     }
 
+    public ChoiceBox<String> getDecryptSelectionBox() {
+        return decryptSelectionBox;
+    }
+
+    public ListView<String> getCandidatesList() {
+        return candidatesList;
+    }
+
+    public ChoiceBox<String> getCompareLeftBox() {
+        return compareLeftBox;
+    }
+
+    public ChoiceBox<String> getCompareRightBox() {
+        return compareRightBox;
+    }
+
+    public Button getButtonCompare() {
+        return buttonCompare;
+    }
+
+    public Label getCompareLabel() {
+        return compareLabel;
+    }
+
+    public CompareViewer getCompareViewer() {
+        return compareViewer;
+    }
+
     /**
      * Method creates menu for application.
      *
@@ -179,12 +270,15 @@ public class TextAnalyserUI extends Application {
 
         // sub-menus
         itemOpen = new MenuItem("Open");
+        itemAnalyseFile = new MenuItem("Analyse File");
+        itemEncryptFile = new MenuItem("Encrypt File");
         itemSave = new MenuItem("Save");
         itemClear = new MenuItem("Clear");
-        menuFile.getItems().addAll(itemOpen, itemSave, itemClear);
+        menuFile.getItems().addAll(itemOpen, itemAnalyseFile, itemEncryptFile, itemSave, itemClear);
         itemResize = new MenuItem("Resize");
         itemCompare = new MenuItem("Compare");
-        menuView.getItems().addAll(itemResize, itemCompare);
+        itemMetrics = new MenuItem("Metrics");
+        menuView.getItems().addAll(itemResize, itemCompare, itemMetrics);
         itemAbout = new MenuItem("About");
         menuHelp.getItems().addAll(itemAbout);
 
@@ -218,21 +312,29 @@ public class TextAnalyserUI extends Application {
         originalTextArea.setPromptText("Enter text, open file or drag&drop...");
         originalTextArea.setPrefHeight(400);
         originalTextArea.setWrapText(true);
-        mainTab.setContent(originalTextArea);
+        this.originalViewer = new DocumentViewer();
+        mainTab.setContent(createDocumentPane(originalTextArea, originalViewer));
 
-        // create TextArea for cipher tab
-        this.cipherTextArea = new TextArea();
-        cipherTextArea.setWrapText(true);
-        cipherTab.setContent(cipherTextArea);
-
-        // create TextArea for plane tab
-        this.planeTextArea = new TextArea();
-        planeTextArea.setWrapText(true);
-        planeTab.setContent(planeTextArea);
+        // the cipher and plane tab only show documents, the derived texts are never copied into a TextArea
+        this.cipherViewer = new DocumentViewer();
+        cipherTab.setContent(cipherViewer);
+        this.planeViewer = new DocumentViewer();
+        planeTab.setContent(planeViewer);
 
         return tabPane;
     }
 
+    /**
+     * Method stacks the TextArea of the original tab and the viewer for large documents, only one of them is visible.
+     *
+     * @return StackPane node
+     */
+    private StackPane createDocumentPane(TextArea textArea, DocumentViewer viewer) {
+        viewer.setVisible(false);
+        textArea.visibleProperty().bind(viewer.visibleProperty().not());
+        return new StackPane(textArea, viewer);
+    }
+
     /**
      * Method creates a HBox for the encryption Label and Buttons.
      *
@@ -282,7 +384,7 @@ public class TextAnalyserUI extends Application {
 
         // create Choice Box for "cipher selection"
         this.cipherSelectionBox = new ChoiceBox<>(FXCollections.observableArrayList(
-                "Shift Cipher", "Polyalphabetic Cipher")
+                "Shift Cipher", "Polyalphabetic Cipher", "Substitution Cipher")
         );
         cipherSelectionBox.setTooltip(new Tooltip("Select Cipher Method"));
         cipherVBox.getChildren().add(cipherSelectionBox);
@@ -293,7 +395,7 @@ public class TextAnalyserUI extends Application {
         keyHBox.setDisable(true);
         cipherVBox.getChildren().add(keyHBox);
 
-        // polyalphabetic cipher key settings (active, only after proper cipher selection)
+        // polyalphabetic and substitution cipher key settings (active, only after proper cipher selection)
         this.keyTextField = new TextField();
         keyTextField.setPromptText("Enter keyword");
         keyTextField.setPrefColumnCount(10);
@@ -314,7 +416,22 @@ public class TextAnalyserUI extends Application {
         // create FlowPane as container for the UI control elements
         FlowPane decryptPane = new FlowPane();
 
-        //TODO: add ui elements
+        VBox decryptVBox = new VBox(5);
+        decryptVBox.setPadding(new Insets(5));
+        decryptPane.getChildren().add(decryptVBox);
+
+        // create Choice Box for "cipher selection"
+        this.decryptSelectionBox = new ChoiceBox<>(FXCollections.observableArrayList(
+                "Shift Cipher", "Polyalphabetic Cipher", "Substitution Cipher")
+        );
+        decryptSelectionBox.setTooltip(new Tooltip("Select Cipher Method to break"));
+        decryptVBox.getChildren().add(decryptSelectionBox);
+
+        // list of the found keys, ranked from the most to the least probable
+        this.candidatesList = new ListView<>();
+        candidatesList.setPrefSize(200, 110);
+        candidatesList.setTooltip(new Tooltip("Select a key to decrypt with it"));
+        decryptVBox.getChildren().addAll(new Label("Candidates:"), candidatesList);
 
         return decryptPane;
     }
@@ -373,7 +490,12 @@ public class TextAnalyserUI extends Application {
                 this.getHostServices().showDocument("https://en.wikipedia.org/wiki/Vigenère_cipher")
         );
 
-        VBox linkVBox = new VBox(new Label("See"), hyperlinkCaesar, hyperlinkVigenere);
+        final Hyperlink hyperlinkSubstitution = new Hyperlink("Wikipedia: Substitution Cipher");
+        hyperlinkSubstitution.setOnAction(t ->
+                this.getHostServices().showDocument("https://en.wikipedia.org/wiki/Substitution_cipher")
+        );
+
+        VBox linkVBox = new VBox(new Label("See"), hyperlinkCaesar, hyperlinkVigenere, hyperlinkSubstitution);
         linkVBox.setSpacing(10);
         linkVBox.setPadding(new Insets(10));
         linkVBox.setStyle("-fx-background-color:LIGHTGREY;");
@@ -451,6 +573,24 @@ public class TextAnalyserUI extends Application {
         alphaNumericCheckBox.setTooltip(new Tooltip("removes all non alpha-numeric characters before encryption"));
         characterHandlingRoot.getChildren().add(new TreeItem<>(alphaNumericCheckBox));
 
+        // create a tree view for the result cache settings
+        TreeItem<Object> cacheRoot = new TreeItem<>("Result Cache");
+        cacheRoot.setExpanded(true);
+        TreeView<Object> cacheTree = new TreeView<>(cacheRoot);
+        cacheTree.setPrefHeight(110);
+        gridPane.add(cacheTree, 0,1);
+
+        this.cacheSizeSpinner = new Spinner<>(0, 4096, 64, 16);
+        cacheSizeSpinner.setEditable(true);
+        cacheSizeSpinner.setPrefWidth(90);
+        HBox cacheSizeHBox = new HBox(5, new Label("memory (MB):"), cacheSizeSpinner);
+        cacheSizeHBox.setAlignment(Pos.CENTER_LEFT);
+        cacheRoot.getChildren().add(new TreeItem<>(cacheSizeHBox));
+
+        this.cacheSpillCheckBox = new CheckBox("spill to disk");
+        cacheSpillCheckBox.setTooltip(new Tooltip("keeps results evicted from memory in temporary files"));
+        cacheRoot.getChildren().add(new TreeItem<>(cacheSpillCheckBox));
+
         // show in a new window
         this.settingsStage = new Stage();
         settingsStage.setTitle("Settings");
@@ -458,6 +598,36 @@ public class TextAnalyserUI extends Application {
         settingsStage.setResizable(false);
     }
 
+    /**
+     * Method initializes a stage with the side-by-side comparison of two of the texts.
+     * The stage will be displayed when the user selects the menu item "Compare".
+     */
+    private void initCompareStage() {
+        // the texts in the order of the tabs
+        this.compareLeftBox = new ChoiceBox<>(FXCollections.observableArrayList("Original", "Cipher Text", "Plane Text"));
+        compareLeftBox.getSelectionModel().select(0);
+        this.compareRightBox = new ChoiceBox<>(FXCollections.observableArrayList("Original", "Cipher Text", "Plane Text"));
+        compareRightBox.getSelectionModel().select(1);
+        this.buttonCompare = new Button("Compare");
+        this.compareLabel = new Label();
+
+        HBox selectionHBox = new HBox(5, compareLeftBox, new Label("with"), compareRightBox, buttonCompare, compareLabel);
+        selectionHBox.setAlignment(Pos.CENTER_LEFT);
+        selectionHBox.setPadding(new Insets(5));
+
+        // only the visible rows are rendered
+        this.compareViewer = new CompareViewer();
+
+        BorderPane root = new BorderPane();
+        root.setTop(selectionHBox);
+        root.setCenter(compareViewer);
+
+        // show in a new window
+        this.compareStage = new Stage();
+        compareStage.setTitle("Compare");
+        compareStage.setScene(new Scene(root, 900, 600));
+    }
+
 
     /**
      * Main method for starting and initializing the UI.
@@ -490,6 +660,14 @@ public class TextAnalyserUI extends Application {
         final Label frequencyLabel = new Label("Frequency Analysis");
         leftVBox.getChildren().add(frequencyLabel);
 
+        // add choice box for the length of the counted n-grams, the n-th option counts n-grams
+        nGramSelectionBox = new ChoiceBox<>(FXCollections.observableArrayList(
+                "Characters", "Bigrams", "Trigrams", "Quadgrams", "5-grams", "6-grams", "7-grams", "8-grams"));
+        nGramSelectionBox.getSelectionModel().selectFirst();
+        nGramSelectionBox.setMaxWidth(Double.MAX_VALUE);
+        nGramSelectionBox.setTooltip(new Tooltip("n-grams count sequences of n latin letters, ignoring all other characters"));
+        leftVBox.getChildren().add(nGramSelectionBox);
+
         // add table
         lettersTable = new TableView();
         leftVBox.getChildren().add(lettersTable);
@@ -499,6 +677,21 @@ public class TextAnalyserUI extends Application {
         buttonAnalyse.setMaxWidth(Double.MAX_VALUE);
         leftVBox.getChildren().add(buttonAnalyse);
 
+        // add check box for the incremental analysis while typing
+        liveAnalysisCheckBox = new CheckBox("Live analysis");
+        liveAnalysisCheckBox.setTooltip(new Tooltip("updates the frequency analysis with every edit of the text"));
+        leftVBox.getChildren().add(liveAnalysisCheckBox);
+
+        // add progress bar and cancel button for background operations
+        progressBar = new ProgressBar(0);
+        progressBar.setMaxWidth(Double.MAX_VALUE);
+        buttonCancel = new Button("Cancel");
+        buttonCancel.setTooltip(new Tooltip("Cancel running operation"));
+        HBox progressHBox = new HBox(5, progressBar, buttonCancel);
+        progressHBox.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(progressBar, Priority.ALWAYS);
+        leftVBox.getChildren().add(progressHBox);
+
         // add logging TextArea
         logTextArea = new TextArea();
         logTextArea.setEditable(false);
@@ -532,6 +725,7 @@ public class TextAnalyserUI extends Application {
         // initialize other stages (will be shown, when the user interacts with the corresponding UI element)
         initHelpStage();
         initSettingsStage();
+        initCompareStage();
 
         // set main scene
         Scene mainScene = new Scene(root, 800, 650);
@@ -0,0 +1,707 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Class compares two texts line by line for the Compare view of the Text Analyser Application.
+ *
+ * The comparison runs in two stages, both incrementally, e.g. in the background, see compare(int).
+ * The first stage streams over the lines position by position: a cipher text keeps the lines and their lengths
+ * of the original text, so if all lines pair up like that and no changed line occurs elsewhere in the other text,
+ * the texts are aligned and the comparison is done.
+ * Otherwise the second stage is a diff of the lines by the linear-space algorithm of Myers
+ * (the middle snake of each part is searched in both directions, the parts before and after it are divided further).
+ * Lines are compared by 64 bit hashes, so only their hashes are held in the heap, not the texts.
+ * Lines, which don't occur in the other text, are changed in any case and are left out of the diff
+ * (like GNU diff does), so texts without much in common are compared fast.
+ * The search for a middle snake is bounded by MAX_COST, beyond it the part is divided at the furthest reaching path,
+ * so texts without much in common still are compared in reasonable time, but not with a minimal diff.
+ *
+ * The result is a sequence of rows, which pair the lines of both texts. Rows are resolved on access,
+ * so a viewer only decodes the lines of the visible rows (see CompareViewer).
+ */
+public class TextComparison {
+
+    private static final int MAX_COST = 256;        // edit steps searched for a middle snake, before a part is divided
+    private static final int SEGMENT_FIELDS = 5;    // first row, first line and line count in each text
+    private static final Metrics.Stage COMPARE_METRICS = Metrics.stage("compare", "lines");
+
+    private final Lines left;
+    private final Lines right;
+    private final long[] leftHashes;
+    private final long[] rightHashes;
+
+    // first stage
+    private int comparedLines;
+    private boolean aligned;                    // so far the lines have pairwise the same length
+    private int changedLines;                   // rows with different lines, or rows of changed segments
+    private long changedChars;                  // different chars of aligned lines
+
+    // second stage
+    private int[] leftIndex;                    // line of each hash left for the diff
+    private int[] rightIndex;
+    private ArrayDeque<int[]> parts;            // parts to be divided, the first one is next
+    private long settledLines;                  // lines of both texts, which are known to be equal or changed
+    private int[] changes = new int[64];        // start and end of the changed lines in each text, per change
+    private int changeCount;
+    private final int[] forward = new int[2 * MAX_COST + 3];     // furthest x on each diagonal of the search
+    private final int[] backward = new int[2 * MAX_COST + 3];
+
+    // result
+    private boolean done;
+    private int[] segments;                     // SEGMENT_FIELDS per segment, equal and changed ones alternate
+    private int segmentCount;
+    private int rowCount;
+
+
+    /**
+     * Interface for the lines of a text, which are read on demand.
+     * Consecutive lines are read one after another, so implementations may read ahead.
+     */
+    public interface Lines {
+        /**
+         * @return The number of lines.
+         */
+        int size();
+
+        /**
+         * @return The line without its line separator.
+         */
+        String get(int index);
+    }
+
+    /**
+     * Constructor. The texts are not compared yet.
+     *
+     * @param left The lines of the left text.
+     * @param right The lines of the right text, which is compared to the left one.
+     */
+    public TextComparison(final Lines left, final Lines right) {
+        this.left = left;
+        this.right = right;
+        this.leftHashes = new long[left.size()];
+        this.rightHashes = new long[right.size()];
+        this.aligned = left.size() == right.size();
+    }
+
+    /**
+     * Static method splits a text into lines like PagedDocument, lines longer than MAX_LINE_BYTES chars are split.
+     * Only the start of each line is kept, the lines are cut out of the text on access.
+     *
+     * @param text The text.
+     *
+     * @return The lines of the text.
+     */
+    public static Lines lines(final String text) {
+        int[] starts = new int[16];
+        int count = 0;
+        int position = 0;
+        while (position < text.length()) {
+            if (count + 1 >= starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            starts[count++] = position;
+            int limit = Math.min(text.length(), position + PagedDocument.MAX_LINE_BYTES);
+            int newline = text.indexOf('\n', position);
+            if (newline >= 0 && newline < limit) {
+                position = newline + 1;
+            } else if (limit < text.length() && Character.isLowSurrogate(text.charAt(limit))) {
+                position = limit - 1;   // a long line is not split within a surrogate pair
+            } else {
+                position = limit;
+            }
+        }
+        starts[count] = position;
+        final int[] lineStarts = starts;
+        final int lineCount = count;
+        return new Lines() {
+            @Override
+            public int size() {
+                return lineCount;
+            }
+
+            @Override
+            public String get(final int index) {
+                int start = lineStarts[index];
+                int end = lineStarts[index + 1];
+                if (end > start && text.charAt(end - 1) == '\n') {
+                    end--;
+                    if (end > start && text.charAt(end - 1) == '\r') {
+                        end--;
+                    }
+                }
+                return text.substring(start, end);
+            }
+        };
+    }
+
+    /**
+     * Static method provides the indexed lines of a paged document. The lines are decoded in blocks,
+     * so consecutive lines are read with a single scan of the file. The lines must not be read concurrently.
+     *
+     * @param document The document, its lines should be indexed completely.
+     *
+     * @return The lines of the document.
+     */
+    public static Lines lines(final PagedDocument document) {
+        final int lineCount = document.getLineCount();
+        return new Lines() {
+            private final String[] block = new String[64];
+            private int blockStart = -1;
+
+            @Override
+            public int size() {
+                return lineCount;
+            }
+
+            @Override
+            public String get(final int index) {
+                if (blockStart < 0 || index < blockStart || index >= blockStart + block.length) {
+                    blockStart = index & -block.length;
+                    document.getLines(blockStart, block);
+                }
+                return block[index - blockStart];
+            }
+        };
+    }
+
+    /**
+     * Method continues the comparison with about the given number of lines.
+     * It must not be called concurrently, the result is available after it returned true.
+     *
+     * @param maxLines The number of lines to be compared.
+     *
+     * @return True if the comparison is done.
+     */
+    public boolean compare(final int maxLines) {
+        if (done) {
+            return true;
+        }
+        Metrics.Timer timer = COMPARE_METRICS.start();
+        long processed;
+        if (parts == null) {
+            processed = compareAligned(maxLines);
+        } else {
+            processed = diff(maxLines);
+        }
+        timer.stop(processed);
+        return done;
+    }
+
+    /**
+     * Method compares the next lines position by position and hashes them for the diff.
+     *
+     * @return The number of lines compared.
+     */
+    private long compareAligned(final int maxLines) {
+        int from = comparedLines;
+        int end = Math.min(Math.max(left.size(), right.size()), from + maxLines);
+        for (int i = from; i < end; i++) {
+            String leftLine = i < left.size() ? left.get(i) : null;
+            String rightLine = i < right.size() ? right.get(i) : null;
+            if (leftLine != null) {
+                leftHashes[i] = hash(leftLine);
+            }
+            if (rightLine != null) {
+                rightHashes[i] = hash(rightLine);
+            }
+            if (leftLine == null || rightLine == null || !leftLine.equals(rightLine)) {
+                changedLines++;
+                if (aligned && leftLine.length() == rightLine.length()) {
+                    for (int c = 0; c < leftLine.length(); c++) {
+                        if (leftLine.charAt(c) != rightLine.charAt(c)) {
+                            changedChars++;
+                        }
+                    }
+                } else {
+                    aligned = false;
+                }
+            }
+        }
+        comparedLines = end;
+        if (end == Math.max(left.size(), right.size())) {
+            if (aligned && changedLines > 0 && !isMinimalAlignment()) {
+                aligned = false;
+            }
+            if (aligned) {
+                // a single segment pairs all lines by their position
+                finish(new int[] {0, 0, left.size(), 0, right.size()}, 1);
+            } else {
+                discardUnmatched();
+                parts = new ArrayDeque<>();
+                parts.push(new int[] {0, leftIndex.length, 0, rightIndex.length});
+            }
+        }
+        return end - from;
+    }
+
+    /**
+     * Method checks, whether pairing the lines by their position is a minimal diff. This holds, if no changed line
+     * of the left text occurs in the right text, e.g. the encrypted lines of a cipher text, as all lines
+     * in common then are paired already. Otherwise lines of the same length may just be shifted.
+     */
+    private boolean isMinimalAlignment() {
+        LongCountMap rightCounts = new LongCountMap();
+        for (long hash : rightHashes) {
+            rightCounts.add(hash, 1);
+        }
+        for (int i = 0; i < leftHashes.length; i++) {
+            if (leftHashes[i] != rightHashes[i] && rightCounts.get(leftHashes[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method leaves the lines, which don't occur in the other text, out of the hashes to be diffed.
+     */
+    private void discardUnmatched() {
+        LongCountMap leftCounts = new LongCountMap();
+        for (long hash : leftHashes) {
+            leftCounts.add(hash, 1);
+        }
+        LongCountMap rightCounts = new LongCountMap();
+        for (long hash : rightHashes) {
+            rightCounts.add(hash, 1);
+        }
+        leftIndex = keepMatched(leftHashes, rightCounts);
+        rightIndex = keepMatched(rightHashes, leftCounts);
+        settledLines = (leftHashes.length - leftIndex.length) + (rightHashes.length - rightIndex.length);
+    }
+
+    /**
+     * Static method moves the hashes occurring in the other text to the front, keeping their order.
+     *
+     * @return The line of each hash kept.
+     */
+    private static int[] keepMatched(final long[] hashes, final LongCountMap other) {
+        int[] index = new int[hashes.length];
+        int count = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (other.get(hashes[i]) > 0) {
+                hashes[count] = hashes[i];
+                index[count++] = i;
+            }
+        }
+        return Arrays.copyOf(index, count);
+    }
+
+    /**
+     * Method divides the next parts of the texts, until about the given number of lines is settled.
+     *
+     * @return The number of lines settled.
+     */
+    private long diff(final int maxLines) {
+        long from = settledLines;
+        long searches = 0;
+        while (!parts.isEmpty() && settledLines - from + searches * MAX_COST < maxLines) {
+            int[] part = parts.pop();
+            int leftStart = part[0];
+            int leftEnd = part[1];
+            int rightStart = part[2];
+            int rightEnd = part[3];
+
+            // equal lines at the start and the end of the part are settled
+            while (leftStart < leftEnd && rightStart < rightEnd && leftHashes[leftStart] == rightHashes[rightStart]) {
+                leftStart++;
+                rightStart++;
+            }
+            while (leftStart < leftEnd && rightStart < rightEnd && leftHashes[leftEnd - 1] == rightHashes[rightEnd - 1]) {
+                leftEnd--;
+                rightEnd--;
+            }
+            settledLines += (part[1] - part[0] - leftEnd + leftStart) + (part[3] - part[2] - rightEnd + rightStart);
+            if (leftStart == leftEnd || rightStart == rightEnd) {
+                addChange(leftStart, leftEnd, rightStart, rightEnd);
+                settledLines += (leftEnd - leftStart) + (rightEnd - rightStart);
+                continue;
+            }
+
+            long split = split(leftStart, leftEnd, rightStart, rightEnd);
+            searches++;
+            if (split < 0) {
+                addChange(leftStart, leftEnd, rightStart, rightEnd);
+                settledLines += (leftEnd - leftStart) + (rightEnd - rightStart);
+            } else {
+                // the part before the split is divided first, so the changes are found in order
+                int x = (int) (split >>> 32);
+                int y = (int) split;
+                parts.push(new int[] {x, leftEnd, y, rightEnd});
+                parts.push(new int[] {leftStart, x, rightStart, y});
+            }
+        }
+        if (parts.isEmpty()) {
+            buildSegments();
+        }
+        return settledLines - from;
+    }
+
+    /**
+     * Method searches the middle snake of a part in both directions. The part must neither start nor end
+     * with equal lines, and must not be empty in any text.
+     *
+     * @return The point (x << 32 | y) on a shortest edit path, where the part is divided,
+     *         or -1 if the part is to be changed as a whole.
+     */
+    private long split(final int leftStart, final int leftEnd, final int rightStart, final int rightEnd) {
+        final int n = leftEnd - leftStart;
+        final int m = rightEnd - rightStart;
+        final int maxD = Math.min((n + m + 1) / 2, MAX_COST);
+        final int offset = maxD + 1;
+        final int delta = n - m;
+        final boolean odd = (delta & 1) != 0;
+        Arrays.fill(forward, 0, 2 * offset + 1, -1);
+        Arrays.fill(backward, 0, 2 * offset + 1, -1);
+        forward[offset + 1] = 0;
+        backward[offset + 1] = 0;
+        // diagonals beyond the edges of the part are skipped
+        int forwardStart = 0;
+        int forwardEnd = 0;
+        int backwardStart = 0;
+        int backwardEnd = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+                int index = offset + k;
+                int x = k == -d || (k != d && forward[index - 1] < forward[index + 1])
+                        ? forward[index + 1] : forward[index - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && leftHashes[leftStart + x] == rightHashes[rightStart + y]) {
+                    x++;
+                    y++;
+                }
+                forward[index] = x;
+                if (x > n) {
+                    forwardEnd += 2;
+                } else if (y > m) {
+                    forwardStart += 2;
+                } else if (odd && Math.abs(delta - k) < d) {
+                    // overlap with the backward path of d - 1 steps on the corresponding diagonal
+                    int backwardX = backward[offset + delta - k];
+                    if (isInside(backwardX, delta - k, n, m) && x >= n - backwardX) {
+                        return point(leftStart + x, rightStart + y);
+                    }
+                }
+            }
+            for (int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+                int index = offset + k;
+                int x = k == -d || (k != d && backward[index - 1] < backward[index + 1])
+                        ? backward[index + 1] : backward[index - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && leftHashes[leftEnd - x - 1] == rightHashes[rightEnd - y - 1]) {
+                    x++;
+                    y++;
+                }
+                backward[index] = x;
+                if (x > n) {
+                    backwardEnd += 2;
+                } else if (y > m) {
+                    backwardStart += 2;
+                } else if (!odd && Math.abs(delta - k) <= d) {
+                    // overlap with the forward path of d steps on the corresponding diagonal
+                    int forwardX = forward[offset + delta - k];
+                    if (isInside(forwardX, delta - k, n, m) && forwardX >= n - x) {
+                        return point(leftStart + forwardX, rightStart + forwardX - (delta - k));
+                    }
+                }
+            }
+        }
+
+        if (maxD == (n + m + 1) / 2) {
+            return -1;      // no common lines
+        }
+        // too expensive: divide at the forward path, which reaches furthest into the part
+        int bestX = 0;
+        int bestY = 0;
+        for (int k = -maxD + 1; k < maxD; k++) {
+            int x = forward[offset + k];
+            int y = x - k;
+            if (x >= 0 && x <= n && y >= 0 && y <= m && x + y > bestX + bestY) {
+                bestX = x;
+                bestY = y;
+            }
+        }
+        if (bestX + bestY == 0 || (bestX == n && bestY == m)) {
+            return -1;
+        }
+        return point(leftStart + bestX, rightStart + bestY);
+    }
+
+    /**
+     * Static method checks, whether a path has reached a diagonal and ends within the part.
+     * Paths beyond the edges of the part are kept in the search, but can't overlap.
+     */
+    private static boolean isInside(final int x, final int k, final int n, final int m) {
+        return x >= 0 && x <= n && x - k >= 0 && x - k <= m;
+    }
+
+    private static long point(final int x, final int y) {
+        return (long) x << 32 | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Method appends changed lines, a change directly following the previous one is merged into it.
+     */
+    private void addChange(final int leftStart, final int leftEnd, final int rightStart, final int rightEnd) {
+        if (leftStart == leftEnd && rightStart == rightEnd) {
+            return;
+        }
+        int last = 4 * (changeCount - 1);
+        if (changeCount > 0 && changes[last + 1] == leftStart && changes[last + 3] == rightStart) {
+            changes[last + 1] = leftEnd;
+            changes[last + 3] = rightEnd;
+            return;
+        }
+        if (4 * changeCount == changes.length) {
+            changes = Arrays.copyOf(changes, changes.length * 2);
+        }
+        int index = 4 * changeCount++;
+        changes[index] = leftStart;
+        changes[index + 1] = leftEnd;
+        changes[index + 2] = rightStart;
+        changes[index + 3] = rightEnd;
+    }
+
+    /**
+     * Method maps the changes of the diffed hashes back to the lines, the lines left out are changed too.
+     */
+    private void mapChanges() {
+        int[] diffed = changes;
+        int diffedCount = changeCount;
+        changes = new int[64];
+        changeCount = 0;
+        int leftLine = 0;       // line after the last pair of equal lines
+        int rightLine = 0;
+        int leftHash = 0;
+        int rightHash = 0;
+        for (int c = 0; c <= diffedCount; c++) {
+            int leftEnd = c < diffedCount ? diffed[4 * c] : leftIndex.length;
+            // the equal hashes before the change
+            for (; leftHash < leftEnd; leftHash++, rightHash++) {
+                addChange(leftLine, leftIndex[leftHash], rightLine, rightIndex[rightHash]);
+                leftLine = leftIndex[leftHash] + 1;
+                rightLine = rightIndex[rightHash] + 1;
+            }
+            if (c < diffedCount) {
+                leftHash = diffed[4 * c + 1];
+                rightHash = diffed[4 * c + 3];
+            }
+        }
+        addChange(leftLine, left.size(), rightLine, right.size());
+        leftIndex = null;
+        rightIndex = null;
+    }
+
+    /**
+     * Method turns the changes into segments of rows, the equal lines in between are segments too.
+     */
+    private void buildSegments() {
+        mapChanges();
+        int[] result = new int[SEGMENT_FIELDS * (2 * changeCount + 1)];
+        int count = 0;
+        int leftLine = 0;
+        int rightLine = 0;
+        int row = 0;
+        changedLines = 0;
+        for (int c = 0; c <= changeCount; c++) {
+            int leftStart = c < changeCount ? changes[4 * c] : left.size();
+            int rightStart = c < changeCount ? changes[4 * c + 2] : right.size();
+            if (leftStart > leftLine) {
+                setSegment(result, count++, row, leftLine, leftStart - leftLine, rightLine, rightStart - rightLine);
+                row += leftStart - leftLine;
+            }
+            if (c == changeCount) {
+                break;
+            }
+            int leftCount = changes[4 * c + 1] - leftStart;
+            int rightCount = changes[4 * c + 3] - rightStart;
+            setSegment(result, count++, row, leftStart, leftCount, rightStart, rightCount);
+            row += Math.max(leftCount, rightCount);
+            changedLines += Math.max(leftCount, rightCount);
+            leftLine = leftStart + leftCount;
+            rightLine = rightStart + rightCount;
+        }
+        parts = null;
+        finish(result, count);
+    }
+
+    private static void setSegment(final int[] segments, final int segment, final int row,
+                                   final int leftStart, final int leftCount, final int rightStart, final int rightCount) {
+        int index = SEGMENT_FIELDS * segment;
+        segments[index] = row;
+        segments[index + 1] = leftStart;
+        segments[index + 2] = leftCount;
+        segments[index + 3] = rightStart;
+        segments[index + 4] = rightCount;
+    }
+
+    private void finish(final int[] segments, final int count) {
+        this.segments = segments;
+        this.segmentCount = count;
+        int last = SEGMENT_FIELDS * (count - 1);
+        this.rowCount = count == 0 ? 0 : segments[last] + Math.max(segments[last + 2], segments[last + 4]);
+        this.done = true;
+    }
+
+    /**
+     * @return The progress of the comparison, between 0 and 1.
+     */
+    public double getProgress() {
+        long lines = (long) left.size() + right.size();
+        if (done || lines == 0) {
+            return 1;
+        }
+        double compared = (double) comparedLines / Math.max(left.size(), right.size());
+        return parts == null ? compared / 2 : 0.5 + 0.5 * settledLines / lines;
+    }
+
+    /**
+     * @return True if the lines are paired by their position, e.g. a text and its cipher text.
+     */
+    public boolean isAligned() {
+        return done && aligned;
+    }
+
+    /**
+     * @return The number of rows of the result.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return The number of rows, which pair different lines.
+     */
+    public int getChangedRowCount() {
+        return changedLines;
+    }
+
+    /**
+     * Method finds the line of the left text shown in a row.
+     *
+     * @return The index of the line, or -1 if the row has no line of the left text.
+     */
+    public int getLeftLine(final int row) {
+        int index = SEGMENT_FIELDS * segment(row);
+        int offset = row - segments[index];
+        return offset < segments[index + 2] ? segments[index + 1] + offset : -1;
+    }
+
+    /**
+     * Method finds the line of the right text shown in a row.
+     *
+     * @return The index of the line, or -1 if the row has no line of the right text.
+     */
+    public int getRightLine(final int row) {
+        int index = SEGMENT_FIELDS * segment(row);
+        int offset = row - segments[index];
+        return offset < segments[index + 4] ? segments[index + 3] + offset : -1;
+    }
+
+    /**
+     * @return The line of the left text shown in a row, or null.
+     */
+    public String getLeft(final int row) {
+        int line = getLeftLine(row);
+        return line < 0 ? null : left.get(line);
+    }
+
+    /**
+     * @return The line of the right text shown in a row, or null.
+     */
+    public String getRight(final int row) {
+        int line = getRightLine(row);
+        return line < 0 ? null : right.get(line);
+    }
+
+    /**
+     * Method finds the segment of a row by binary search over the first rows of the segments.
+     */
+    private int segment(final int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+        }
+        int low = 0;
+        int high = segmentCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (segments[SEGMENT_FIELDS * middle] <= row) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Static method finds the changed chars of a line compared to the other line of its row.
+     * Lines of the same length are compared position by position, like a text and its cipher text,
+     * otherwise the chars between their common prefix and suffix are changed.
+     *
+     * @param line The line.
+     * @param other The other line, or null.
+     *
+     * @return Start and end of each range of changed chars, one after another.
+     */
+    public static int[] changedRanges(final String line, final String other) {
+        if (other == null) {
+            return line.isEmpty() ? new int[0] : new int[] {0, line.length()};
+        }
+        if (line.length() != other.length()) {
+            int prefix = 0;
+            int limit = Math.min(line.length(), other.length());
+            while (prefix < limit && line.charAt(prefix) == other.charAt(prefix)) {
+                prefix++;
+            }
+            int suffix = 0;
+            while (suffix < limit - prefix
+                    && line.charAt(line.length() - suffix - 1) == other.charAt(other.length() - suffix - 1)) {
+                suffix++;
+            }
+            return prefix == line.length() - suffix ? new int[0] : new int[] {prefix, line.length() - suffix};
+        }
+        int[] ranges = new int[8];
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == other.charAt(i)) {
+                continue;
+            }
+            if (count > 0 && ranges[count - 1] == i) {
+                ranges[count - 1] = i + 1;
+                continue;
+            }
+            if (count == ranges.length) {
+                ranges = Arrays.copyOf(ranges, count * 2);
+            }
+            ranges[count++] = i;
+            ranges[count++] = i + 1;
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * Static method hashes a line with the 64 bit FNV-1a hash, so equal hashes are taken for equal lines.
+     */
+    private static long hash(final String line) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < line.length(); i++) {
+            hash = (hash ^ line.charAt(i)) * 0x100000001B3L;
+        }
+        return hash ^ line.length();
+    }
+
+    @Override
+    public String toString() {
+        if (!done) {
+            return "Comparing...";
+        }
+        if (changedLines == 0) {
+            return "No differences, " + rowCount + " lines";
+        }
+        if (aligned) {
+            return changedLines + " of " + rowCount + " lines changed, " + changedChars + " characters (aligned)";
+        }
+        return changeCount + " changes, " + changedLines + " of " + rowCount + " rows changed";
+    }
+}
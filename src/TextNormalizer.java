@@ -0,0 +1,231 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Class provides the preprocessing of a text before encryption for the Text Analyser Application.
+ * Removing whitespace, punctuation and non-alphanumeric characters and the conversion to upper case
+ * are applied in a single pass, using a precomputed classification table and one reusable buffer.
+ * Optionally a StreamCipher is applied in the same pass, so normalization and encryption are one loop.
+ *
+ * The character classes are the same as the regular expressions [\s], [\p{Punct}] and [\p{Alnum}],
+ * which only match ASCII characters. The conversion to upper case is locale-independent.
+ */
+public class TextNormalizer {
+
+    private static final int BUFFER_SIZE = 1 << 16;     // chars per chunk, when processing a Reader
+
+    static final Metrics.Stage METRICS = Metrics.stage("normalize", "chars");
+
+    // character classes of the classification table
+    private static final byte WHITESPACE = 1;
+    private static final byte PUNCTUATION = 2;
+    private static final byte NOT_ALPHANUMERIC = 4;
+
+    private static final byte[] CLASSES = new byte[128];            // class of each ASCII character
+    private static final char[] UPPER_CASE = new char[Character.MAX_VALUE + 1];   // upper case of each BMP character
+    private static final char EXPANDED = Character.MAX_VALUE;      // marks characters with a multi char upper case
+    private static char[] expandedChars = new char[0];              // sorted characters with a multi char upper case
+    private static char[][] expansions = new char[0][];             // their upper case
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            if (" \t\n\u000B\f\r".indexOf(c) >= 0) {
+                CLASSES[c] |= WHITESPACE;
+            }
+            if ("!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".indexOf(c) >= 0) {
+                CLASSES[c] |= PUNCTUATION;
+            }
+            if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9')) {
+                CLASSES[c] |= NOT_ALPHANUMERIC;
+            }
+        }
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (Character.isSurrogate((char) c)) {
+                UPPER_CASE[c] = (char) c;
+                continue;
+            }
+            String upperCase = String.valueOf((char) c).toUpperCase(Locale.ROOT);
+            if (upperCase.length() == 1 && upperCase.charAt(0) != EXPANDED) {
+                UPPER_CASE[c] = upperCase.charAt(0);
+            } else {
+                UPPER_CASE[c] = EXPANDED;
+                int index = expandedChars.length;
+                expandedChars = Arrays.copyOf(expandedChars, index + 1);
+                expandedChars[index] = (char) c;
+                expansions = Arrays.copyOf(expansions, index + 1);
+                expansions[index] = upperCase.toCharArray();
+            }
+        }
+    }
+
+    private final int removeMask;           // classes of the characters to be removed
+    private final boolean toUpperCase;
+    private final StreamCipher cipher;      // applied to every remaining character, may be null
+
+    private char[] buffer = new char[0];    // reusable output buffer
+    private char pendingHighSurrogate;      // high surrogate waiting for its low surrogate (for the upper case)
+
+
+    /**
+     * Constructor.
+     *
+     * @param removeWhitespace Remove all whitespace characters.
+     * @param removePunctuation Remove all punctuation characters.
+     * @param onlyAlphaNumeric Remove all non-alphanumeric characters.
+     * @param toUpperCase Convert to upper case.
+     * @param cipher The cipher applied after normalization, or null for normalization only.
+     */
+    public TextNormalizer(final boolean removeWhitespace, final boolean removePunctuation,
+                          final boolean onlyAlphaNumeric, final boolean toUpperCase, final StreamCipher cipher) {
+        this.removeMask = (removeWhitespace ? WHITESPACE : 0)
+                | (removePunctuation ? PUNCTUATION : 0)
+                | (onlyAlphaNumeric ? NOT_ALPHANUMERIC : 0);
+        this.toUpperCase = toUpperCase;
+        this.cipher = cipher;
+    }
+
+    /**
+     * Method normalizes (and encrypts) a range of a text into the buffer of this normalizer.
+     * A high surrogate at the end of the range is kept back until the next call or finish().
+     *
+     * @param text The text to be normalized.
+     * @param from Index of the first character (inclusive).
+     * @param to Index of the last character (exclusive).
+     *
+     * @return The number of resulting characters at the start of getBuffer().
+     */
+    public int normalize(final CharSequence text, final int from, final int to) {
+        // at most three chars per char by the upper case conversion, plus a pending surrogate
+        ensureCapacity(3 * (to - from) + 1);
+        final char[] out = buffer;
+        int length = 0;
+
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (pendingHighSurrogate != 0 && !Character.isLowSurrogate(c)) {
+                out[length++] = pendingHighSurrogate;
+                pendingHighSurrogate = 0;
+            }
+            int characterClass = c < 128 ? CLASSES[c] : NOT_ALPHANUMERIC;
+            if ((characterClass & removeMask) != 0) {
+                continue;
+            }
+            if (toUpperCase) {
+                char upperCase = UPPER_CASE[c];
+                if (upperCase == EXPANDED || Character.isSurrogate(c)) {
+                    length = appendUpperCase(c, out, length);
+                    continue;
+                }
+                c = upperCase;
+            }
+            out[length++] = cipher == null ? c : cipher.encrypt(c);
+        }
+        return length;
+    }
+
+    /**
+     * Method completes the normalization of a text and writes a kept back high surrogate into the buffer.
+     *
+     * @return The number of resulting characters at the start of getBuffer().
+     */
+    public int finish() {
+        ensureCapacity(1);
+        if (pendingHighSurrogate != 0) {
+            buffer[0] = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * @return The buffer containing the result of the last normalize() or finish() call.
+     */
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Method normalizes (and encrypts) a whole text.
+     *
+     * @param text The text to be normalized.
+     *
+     * @return The resulting text.
+     */
+    public String normalize(final CharSequence text) {
+        Metrics.Timer timer = METRICS.start();
+        StringBuilder result = new StringBuilder(text.length());
+        for (int from = 0; from < text.length(); from += BUFFER_SIZE) {
+            int length = normalize(text, from, Math.min(text.length(), from + BUFFER_SIZE));
+            result.append(buffer, 0, length);
+        }
+        int length = finish();
+        result.append(buffer, 0, length);
+        String normalized = result.toString();
+        timer.stop(text.length());
+        return normalized;
+    }
+
+    /**
+     * Method reads a text from a Reader, normalizes (and encrypts) it chunk by chunk and writes it to a Writer.
+     * Neither stream will be closed.
+     *
+     * @param in The text to be normalized.
+     * @param out The resulting text.
+     * @return The number of characters read.
+     * @throws IOException If reading or writing fails.
+     */
+    public long normalize(final Reader in, final Writer out) throws IOException {
+        Metrics.Timer timer = METRICS.start();
+        char[] input = new char[BUFFER_SIZE];
+        CharBuffer inputView = CharBuffer.wrap(input);
+        long count = 0;
+        int read;
+        while ((read = in.read(input)) != -1) {
+            int length = normalize(inputView, 0, read);
+            out.write(buffer, 0, length);
+            count += read;
+        }
+        int length = finish();
+        out.write(buffer, 0, length);
+        out.flush();
+        timer.stop(count);
+        return count;
+    }
+
+    /**
+     * Method appends the upper case of a character, which is not mapped to a single char.
+     */
+    private int appendUpperCase(final char c, final char[] out, int length) {
+        if (Character.isHighSurrogate(c)) {
+            if (pendingHighSurrogate != 0) {
+                out[length++] = pendingHighSurrogate;
+            }
+            pendingHighSurrogate = c;
+            return length;
+        }
+        if (Character.isLowSurrogate(c)) {
+            if (pendingHighSurrogate == 0) {
+                out[length++] = c;      // unpaired surrogate
+                return length;
+            }
+            int codePoint = Character.toUpperCase(Character.toCodePoint(pendingHighSurrogate, c));
+            pendingHighSurrogate = 0;
+            return length + Character.toChars(codePoint, out, length);
+        }
+        for (char upperCase : expansions[Arrays.binarySearch(expandedChars, c)]) {
+            out[length++] = cipher == null ? upperCase : cipher.encrypt(upperCase);
+        }
+        return length;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (buffer.length < capacity) {
+            buffer = new char[Math.max(capacity, BUFFER_SIZE)];
+        }
+    }
+}
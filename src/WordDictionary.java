@@ -0,0 +1,502 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Class provides a dictionary of the words of a language for the Text Analyser Application,
+ * which judges how much a decryption looks like real language: its score is the number of letters
+ * of the text, which belong to dictionary words. The chi-squared statistic of the letter frequencies
+ * can't tell the keys of a short cipher text apart, the words of the decryption can.
+ *
+ * The words are held in a trie of parallel arrays (first child, next sibling, letter and a bit set
+ * of the word ends), in front of it a Bloom filter of the whole words rejects most non-words
+ * by the hash, which is calculated while the text is scanned. So a text is scored in one pass,
+ * nothing is allocated per word, and the scoring stops as soon as the text can't beat a given score.
+ * Runs of letters longer than any word (e.g. a text without whitespace) are segmented greedily
+ * into the longest words of at least MIN_SEGMENT_LENGTH letters.
+ *
+ * Only words of latin letters are stored, the case is ignored. A word containing other letters
+ * (e.g. "café") is never matched.
+ */
+public final class WordDictionary {
+
+    public static final String EXTENSION = ".words";
+    public static final int SAMPLE_SIZE = 1 << 14;          // chars of a cipher text scored for each key
+    public static final int MAX_WORD_LENGTH = 64;           // longer words of a word list are ignored
+
+    private static final int MIN_SEGMENT_LENGTH = 3;        // shorter words match almost any text
+    private static final int BLOOM_BITS_PER_WORD = 10;      // about 1% false positives with 4 hashes
+    private static final int BLOOM_HASHES = 4;
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    private static final Metrics.Stage SCORE_METRICS = Metrics.stage("dictionaryScore", "chars");
+
+    // the dictionaries of the languages, see LanguageProfile.getDictionary()
+    private static final Map<String, WordDictionary> DICTIONARIES = new ConcurrentHashMap<>();
+
+    private final int[] rootChildren = new int[26];     // the children of the root are looked up directly
+    private int[] firstChild;
+    private int[] nextSibling;
+    private byte[] letters;
+    private long[] wordEnds;                            // bit set of the nodes ending a word
+    private int nodeCount;
+    private int wordCount;
+    private int maxWordLength;
+    private long[] bloom;
+    private int bloomMask;
+
+
+    /**
+     * Constructor. Builds the trie and the Bloom filter.
+     */
+    private WordDictionary(final Iterable<? extends CharSequence> words) {
+        int capacity = 1 << 10;
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        letters = new byte[capacity];
+        wordEnds = new long[capacity >>> 6];
+        Arrays.fill(rootChildren, NONE);
+        firstChild[ROOT] = NONE;
+        nodeCount = 1;
+
+        long[] hashes = new long[capacity];
+        byte[] word = new byte[MAX_WORD_LENGTH];
+        for (CharSequence text : words) {
+            int length = toLetters(text, word);
+            if (length > 0 && insert(word, length)) {
+                if (wordCount == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, hashes.length * 2);
+                }
+                hashes[wordCount++] = hash(word, length);
+                maxWordLength = Math.max(maxWordLength, length);
+            }
+        }
+        firstChild = Arrays.copyOf(firstChild, nodeCount);
+        nextSibling = Arrays.copyOf(nextSibling, nodeCount);
+        letters = Arrays.copyOf(letters, nodeCount);
+        wordEnds = Arrays.copyOf(wordEnds, (nodeCount + 63) >>> 6);
+
+        long bits = Long.highestOneBit(Math.max(64L, (long) wordCount * BLOOM_BITS_PER_WORD - 1) * 2);
+        bloom = new long[(int) (bits >>> 6)];
+        bloomMask = (int) (bits - 1);
+        for (int i = 0; i < wordCount; i++) {
+            addToBloom(hashes[i]);
+        }
+    }
+
+    /**
+     * Static method creates a dictionary.
+     *
+     * @param words The words, words with other characters than latin letters are ignored.
+     *
+     * @return The dictionary.
+     */
+    public static WordDictionary of(final Iterable<? extends CharSequence> words) {
+        return new WordDictionary(words);
+    }
+
+    /**
+     * Static method reads a word list, one word per line in UTF-8. Anything after a word separated
+     * by a slash or whitespace is ignored, so e.g. the .dic files of Hunspell can be used.
+     *
+     * @param file The word list.
+     *
+     * @return The dictionary.
+     *
+     * @throws IOException If the file can not be read.
+     */
+    public static WordDictionary load(final Path file) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int end = 0;
+                while (end < line.length() && line.charAt(end) != '/' && !Character.isWhitespace(line.charAt(end))) {
+                    end++;
+                }
+                if (end > 0) {
+                    words.add(line.substring(0, end));
+                }
+            }
+        }
+        return new WordDictionary(words);
+    }
+
+    /**
+     * Static method loads the word lists of a directory, each file "language.words"
+     * is registered as dictionary of its language.
+     *
+     * @param directory The directory of the word lists.
+     *
+     * @return The number of loaded dictionaries.
+     *
+     * @throws IOException If the directory or a word list can not be read.
+     */
+    public static int loadDictionaries(final Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            register(name.substring(0, name.length() - EXTENSION.length()), load(file));
+        }
+        return files.size();
+    }
+
+    /**
+     * Static method registers the dictionary of a language, it replaces a registered dictionary.
+     */
+    public static void register(final String language, final WordDictionary dictionary) {
+        DICTIONARIES.put(language.toLowerCase(Locale.ROOT), dictionary);
+    }
+
+    /**
+     * @return The registered dictionary of a language, or null.
+     */
+    public static WordDictionary get(final String language) {
+        return DICTIONARIES.get(language.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param word The word, the case is ignored.
+     *
+     * @return True if the word is in the dictionary.
+     */
+    public boolean contains(final CharSequence word) {
+        byte[] wordLetters = new byte[MAX_WORD_LENGTH];
+        int length = toLetters(word, wordLetters);
+        return length > 0 && bloomContains(hash(wordLetters, length)) && isWord(wordLetters, 0, length);
+    }
+
+    /**
+     * Method scores a text by the letters of its dictionary words.
+     *
+     * @param text The text.
+     *
+     * @return The number of letters belonging to dictionary words.
+     */
+    public long score(final CharSequence text) {
+        return score(text, text.length(), null, -1);
+    }
+
+    /**
+     * Method scores the decryption of a text, the text is decrypted while it is scanned.
+     * The scoring stops, as soon as the rest of the text can't raise the score above the threshold.
+     *
+     * @param text The text, e.g. a cipher text.
+     * @param decryption The cipher decrypting the text, or null. It is used from its current position.
+     * @param threshold The score to beat, or -1 to score the whole text.
+     *
+     * @return The number of letters belonging to dictionary words, or -1 if the score can't exceed the threshold.
+     */
+    public long score(final CharSequence text, final StreamCipher decryption, final long threshold) {
+        return score(text, text.length(), decryption, threshold);
+    }
+
+    /**
+     * Method calculates the share of the latin letters of a text, which belong to dictionary words.
+     *
+     * @param text The text.
+     *
+     * @return The coverage between 0 and 1, 0 for a text without letters.
+     */
+    public double coverage(final CharSequence text) {
+        long letterCount = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z') {
+                letterCount++;
+            }
+        }
+        return letterCount == 0 ? 0 : (double) score(text) / letterCount;
+    }
+
+    /**
+     * Method finds the keyword, whose decryption of a cipher text contains the most letters of dictionary words.
+     * The beginning of the cipher text (SAMPLE_SIZE chars) is decrypted and scored for each keyword,
+     * a keyword is dropped, as soon as it can't beat the best keyword so far.
+     *
+     * @param cipherText The cipher text.
+     * @param keywords The keywords of the polyalphabetic cipher (a single letter for a shift cipher),
+     *                 e.g. ranked by Cryptanalysis. Of equal scores the first keyword wins.
+     *
+     * @return The index of the best keyword, or -1 if no decryption contains a dictionary word.
+     */
+    public int bestKeyword(final CharSequence cipherText, final List<String> keywords) {
+        Metrics.Timer timer = SCORE_METRICS.start();
+        int length = Math.min(cipherText.length(), SAMPLE_SIZE);
+        int best = -1;
+        long bestScore = 0;
+        for (int i = 0; i < keywords.size(); i++) {
+            long score = score(cipherText, length, StreamCipher.polyalphabetic(keywords.get(i)).inverse(), bestScore);
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        timer.stop((long) length * keywords.size());
+        return best;
+    }
+
+    /**
+     * Method moves the candidate, whose decryption contains the most letters of dictionary words, to the front.
+     * The other candidates keep their order, see bestKeyword().
+     *
+     * @param cipherText The cipher text.
+     * @param candidates The ranked candidates, e.g. of Cryptanalysis.
+     * @param keyword Function returning the keyword of a candidate.
+     *
+     * @return The reordered candidates, or the given list if its first candidate is the best.
+     */
+    public <T> List<T> preferBest(final CharSequence cipherText, final List<T> candidates,
+                                  final Function<T, String> keyword) {
+        List<String> keywords = new ArrayList<>(candidates.size());
+        for (T candidate : candidates) {
+            keywords.add(keyword.apply(candidate));
+        }
+        int best = bestKeyword(cipherText, keywords);
+        if (best <= 0) {
+            return candidates;
+        }
+        List<T> reordered = new ArrayList<>(candidates);
+        reordered.add(0, reordered.remove(best));
+        return reordered;
+    }
+
+    /**
+     * @return The number of distinct words.
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @return The length of the longest word.
+     */
+    public int getMaxWordLength() {
+        return maxWordLength;
+    }
+
+    /**
+     * @return The bytes allocated by the trie and the Bloom filter.
+     */
+    public long getAllocatedBytes() {
+        return (long) nodeCount * (2 * Integer.BYTES + 1) + (long) (wordEnds.length + bloom.length) * Long.BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return wordCount + " words (" + (getAllocatedBytes() >> 10) + " KB)";
+    }
+
+    /**
+     * Method scans the text once: the latin letters of a word are collected and hashed,
+     * at the end of the word the Bloom filter and then the trie are looked up.
+     */
+    private long score(final CharSequence text, final int length, final StreamCipher decryption, final long threshold) {
+        byte[] word = new byte[MAX_WORD_LENGTH];
+        int wordLength = 0;
+        long hash = FNV_OFFSET;
+        boolean foreign = false;        // the word contains a letter beyond the latin letters
+        long matched = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (decryption != null) {
+                c = decryption.encrypt(c);
+            }
+            int letter = c >= 'a' && c <= 'z' ? c - 'a' : c >= 'A' && c <= 'Z' ? c - 'A' : -1;
+            if (letter >= 0) {
+                if (wordLength == word.length) {
+                    word = Arrays.copyOf(word, word.length * 2);
+                }
+                word[wordLength++] = (byte) letter;
+                hash = (hash ^ (letter + 1)) * FNV_PRIME;
+            } else if (c > 0x7F && Character.isLetter(c)) {
+                foreign = true;
+            } else if (wordLength > 0) {
+                if (!foreign) {
+                    matched += wordLength <= maxWordLength
+                            ? (bloomContains(mix(hash)) && isWord(word, 0, wordLength) ? wordLength : 0)
+                            : segment(word, wordLength);
+                }
+                wordLength = 0;
+                hash = FNV_OFFSET;
+                foreign = false;
+                // each remaining char could be a letter of a word at best
+                if (threshold >= 0 && matched + length - i <= threshold) {
+                    return -1;
+                }
+            }
+        }
+        return threshold >= 0 && matched <= threshold ? -1 : matched;
+    }
+
+    /**
+     * Method segments a run of letters greedily into the longest words and counts their letters.
+     */
+    private long segment(final byte[] run, final int length) {
+        long matched = 0;
+        int i = 0;
+        while (i < length) {
+            int longest = 0;
+            int node = ROOT;
+            for (int j = i; j < length; j++) {
+                node = child(node, run[j]);
+                if (node == NONE) {
+                    break;
+                }
+                if (isWordEnd(node) && j - i + 1 >= MIN_SEGMENT_LENGTH) {
+                    longest = j - i + 1;
+                }
+            }
+            matched += longest;
+            i += Math.max(1, longest);
+        }
+        return matched;
+    }
+
+    private boolean isWord(final byte[] word, final int from, final int to) {
+        int node = ROOT;
+        for (int i = from; i < to && node != NONE; i++) {
+            node = child(node, word[i]);
+        }
+        return node != NONE && isWordEnd(node);
+    }
+
+    private int child(final int node, final int letter) {
+        if (node == ROOT) {
+            return rootChildren[letter];
+        }
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            if (letters[child] == letter) {
+                return child;
+            }
+        }
+        return NONE;
+    }
+
+    private boolean isWordEnd(final int node) {
+        return (wordEnds[node >>> 6] & 1L << node) != 0;
+    }
+
+    /**
+     * Method adds a word to the trie.
+     *
+     * @return True if the word is new.
+     */
+    private boolean insert(final byte[] word, final int length) {
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            int child = child(node, word[i]);
+            if (child == NONE) {
+                child = addNode(word[i]);
+                if (node == ROOT) {
+                    rootChildren[word[i]] = child;
+                } else {
+                    nextSibling[child] = firstChild[node];
+                    firstChild[node] = child;
+                }
+            }
+            node = child;
+        }
+        if (isWordEnd(node)) {
+            return false;
+        }
+        wordEnds[node >>> 6] |= 1L << node;
+        return true;
+    }
+
+    private int addNode(final byte letter) {
+        if (nodeCount == firstChild.length) {
+            int capacity = firstChild.length * 2;
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            letters = Arrays.copyOf(letters, capacity);
+            wordEnds = Arrays.copyOf(wordEnds, capacity >>> 6);
+        }
+        int node = nodeCount++;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        letters[node] = letter;
+        return node;
+    }
+
+    private void addToBloom(final long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            bloom[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean bloomContains(final long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = (h1 + i * h2) & bloomMask;
+            if ((bloom[bit >>> 6] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Static method converts a word to its latin letters (0 - 25).
+     *
+     * @return The length of the word, or 0 if it contains other characters or is too long.
+     */
+    private static int toLetters(final CharSequence word, final byte[] wordLetters) {
+        if (word.length() > wordLetters.length) {
+            return 0;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            int letter = c >= 'a' && c <= 'z' ? c - 'a' : c >= 'A' && c <= 'Z' ? c - 'A' : -1;
+            if (letter < 0) {
+                return 0;
+            }
+            wordLetters[i] = (byte) letter;
+        }
+        return word.length();
+    }
+
+    /**
+     * Static method hashes the letters like the scan of a text does.
+     */
+    private static long hash(final byte[] word, final int length) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (word[i] + 1)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Static method spreads the bits of a FNV-1a hash over both halves used by the Bloom filter.
+     */
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,146 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Class provides the word-parallel kernels of the Text Analyser Application for ASCII and Latin-1 bytes.
+ * Eight bytes are loaded as one long and processed in its lanes with masked compare, add and wrap operations
+ * (SIMD within a register), so they run on every JVM and CPU.
+ * Words containing bytes beyond ASCII are left to the scalar table kernels of the callers.
+ *
+ * The system property "textanalyser.scalarKernels=true" disables the word kernels, e.g. to compare the results.
+ */
+final class WordKernels {
+
+    static final boolean ENABLED = !Boolean.getBoolean("textanalyser.scalarKernels");
+
+    static final int WORD_BYTES = Long.BYTES;
+    static final int SUB_HISTOGRAMS = 4;                // interleaved histograms of the byte counting kernel
+    static final int SUB_HISTOGRAM_SIZE = SUB_HISTOGRAMS * 256;
+
+    private static final long ONES = 0x0101010101010101L;         // 0x01 in each lane
+    private static final long HIGH_BITS = 0x8080808080808080L;    // the bits beyond ASCII
+    private static final long CASE_BITS = 0x20 * ONES;            // folds ASCII letters to lower case
+
+    private static final VarHandle ARRAY_WORDS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private WordKernels() {
+    }
+
+    /**
+     * Static method loads eight bytes of an array, the first byte is the lowest lane.
+     */
+    static long word(final byte[] bytes, final int index) {
+        return (long) ARRAY_WORDS.get(bytes, index);
+    }
+
+    static void setWord(final byte[] bytes, final int index, final long word) {
+        ARRAY_WORDS.set(bytes, index, word);
+    }
+
+    /**
+     * Static method loads eight bytes of a buffer at an absolute index, independent of the order of the buffer.
+     */
+    static long word(final ByteBuffer bytes, final int index) {
+        return (long) BUFFER_WORDS.get(bytes, index);
+    }
+
+    static void setWord(final ByteBuffer bytes, final int index, final long word) {
+        BUFFER_WORDS.set(bytes, index, word);
+    }
+
+    /**
+     * @return True if all eight bytes of the word are ASCII.
+     */
+    static boolean isAscii(final long word) {
+        return (word & HIGH_BITS) == 0;
+    }
+
+    /**
+     * Static method compares each lane of an ASCII word with a constant.
+     *
+     * @param word The lanes to compare, each below 0x80.
+     * @param value The constant, between 1 and 0x80.
+     *
+     * @return 0x01 in each lane at least the constant, otherwise 0.
+     */
+    static long atLeast(final long word, final int value) {
+        // the sum of a lane stays below 0x100, so no carry reaches the next lane
+        return ((word + (0x80 - value) * ONES) & HIGH_BITS) >>> 7;
+    }
+
+    /**
+     * @return 0x01 in each lane of an ASCII word, which is a latin letter (A - Z or a - z), otherwise 0.
+     */
+    static long letters(final long word) {
+        long folded = word | CASE_BITS;
+        return atLeast(folded, 'a') & ~atLeast(folded, 'z' + 1);
+    }
+
+    /**
+     * Static method shifts the latin letters of an ASCII word within their alphabet, keeping the case.
+     *
+     * @param word The ASCII bytes.
+     * @param letters The letter lanes of the word, see letters().
+     * @param shifts The shift of each lane (0 - 25).
+     *
+     * @return The shifted word, other lanes are unchanged.
+     */
+    static long shiftLetters(final long word, final long letters, final long shifts) {
+        long letterBytes = letters * 0xFF;
+        long offsets = ((word | CASE_BITS) & letterBytes) - letters * 'a';     // 0 - 25, no borrow
+        long applied = shifts & letterBytes;
+        long wrapped = atLeast(offsets + applied, 26);                          // offset + shift beyond z
+        return word + applied - wrapped * 26;
+    }
+
+    /**
+     * Static method packs the shifts of eight consecutive letters of a keyword into the lanes of a word.
+     *
+     * @param shifts The shift of each keyword letter.
+     * @param keyIndex The position in the keyword of the first lane.
+     *
+     * @return The word of the shifts.
+     */
+    static long shiftWord(final int[] shifts, final int keyIndex) {
+        long word = 0;
+        for (int lane = 0; lane < WORD_BYTES; lane++) {
+            word |= (long) shifts[(keyIndex + lane) % shifts.length] << (8 * lane);
+        }
+        return word;
+    }
+
+    /**
+     * Static method counts the bytes of a buffer word by word into interleaved sub-histograms,
+     * consecutive bytes are counted in different sub-histograms. So a run of the same byte doesn't wait
+     * for the store of its previous count.
+     *
+     * @param bytes The bytes to be counted, the position of the buffer is ignored.
+     * @param from Index of the first byte (inclusive).
+     * @param to Index of the last byte (exclusive), only whole words before it are counted.
+     * @param counts The SUB_HISTOGRAMS sub-histograms of 256 entries, one after another.
+     * @param asciiOnly True to stop at the first word, which contains a byte beyond ASCII.
+     *
+     * @return The index of the first byte not counted.
+     */
+    static int countBytes(final ByteBuffer bytes, final int from, final int to, final int[] counts, final boolean asciiOnly) {
+        int i = from;
+        for (; i <= to - WORD_BYTES; i += WORD_BYTES) {
+            long word = word(bytes, i);
+            if (asciiOnly && !isAscii(word)) {
+                break;
+            }
+            counts[(int) word & 0xFF]++;
+            counts[0x100 | (int) (word >>> 8) & 0xFF]++;
+            counts[0x200 | (int) (word >>> 16) & 0xFF]++;
+            counts[0x300 | (int) (word >>> 24) & 0xFF]++;
+            counts[(int) (word >>> 32) & 0xFF]++;
+            counts[0x100 | (int) (word >>> 40) & 0xFF]++;
+            counts[0x200 | (int) (word >>> 48) & 0xFF]++;
+            counts[0x300 | (int) (word >>> 56)]++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,45 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class tests the Latin-1 and UTF-8 forms of CompactText.
+ */
+class CompactTextTest {
+
+    private static CompactText build(final String... chunks) {
+        CompactText.Builder builder = new CompactText.Builder(16);
+        for (String chunk : chunks) {
+            builder.append(chunk.toCharArray(), 0, chunk.length());
+        }
+        return builder.build();
+    }
+
+    @Test
+    void latin1() {
+        CompactText text = build("Grüße, ", "Text");
+        assertTrue(text.isLatin1());
+        assertEquals(11, text.length());
+        assertEquals(11, text.getByteSize());
+        assertEquals("Grüße, Text", text.toString());
+    }
+
+    @Test
+    void utf8() {
+        // the Latin-1 bytes so far are converted, a surrogate pair may be split between chunks
+        CompactText text = build("Grüße ", "€ \uD83D", "\uDE00");
+        assertFalse(text.isLatin1());
+        assertEquals(10, text.length());
+        assertEquals("Grüße € 😀", text.toString());
+    }
+
+    @Test
+    void unpairedSurrogate() {
+        assertThrows(IllegalArgumentException.class, () -> build("€ \uDE00"));
+        assertThrows(IllegalArgumentException.class, () -> build("€ \uD83D", "x"));
+        assertThrows(IllegalArgumentException.class, () -> build("€ \uD83D"));
+    }
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class tests the request limit of TextAnalyserServer on the loopback address.
+ */
+class TextAnalyserServerTest {
+
+    private static final int MAX_REQUEST_BYTES = 1000;
+
+    private TextAnalyserServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new TextAnalyserServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2, 2, MAX_REQUEST_BYTES);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * Method posts a body of letters, chunked or with a Content-Length.
+     *
+     * @return The status and the response body, separated by a blank.
+     */
+    private String post(final String path, final int size, final boolean chunked) throws IOException {
+        URL url = new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        if (chunked) {
+            connection.setChunkedStreamingMode(256);
+        } else {
+            connection.setFixedLengthStreamingMode(size);
+        }
+        byte[] body = new byte[size];
+        Arrays.fill(body, (byte) 'a');
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        } catch (IOException e) {
+            // the server may answer and close the connection before the whole body is sent
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return status + " " + new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    void encrypt() throws IOException {
+        assertEquals("200 " + "d".repeat(500), post("/encrypt?shift=3", 500, false));
+    }
+
+    @Test
+    void encryptTooLarge() throws IOException {
+        assertEquals(413, status(post("/encrypt?shift=3", 5000, false)));
+    }
+
+    @Test
+    void encryptChunked() throws IOException {
+        // the limit of a chunked body could only be checked after the response has started
+        assertEquals(411, status(post("/encrypt?shift=3", 5000, true)));
+        assertEquals(411, status(post("/decrypt?shift=3", 500, true)));
+    }
+
+    @Test
+    void analyseChunkedTooLarge() throws IOException {
+        // the body is read before the response is started
+        assertEquals(413, status(post("/analyse", 5000, true)));
+        assertEquals(200, status(post("/analyse", 500, true)));
+    }
+
+    private static int status(final String response) {
+        return Integer.parseInt(response.substring(0, response.indexOf(' ')));
+    }
+}
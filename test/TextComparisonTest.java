@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class tests the rows of TextComparison against the longest common subsequence of the lines.
+ */
+class TextComparisonTest {
+
+    /**
+     * Static method compares two texts of the given lines completely.
+     */
+    private static TextComparison compare(final String[] left, final String[] right) {
+        TextComparison comparison = new TextComparison(TextComparison.lines(String.join("\n", left)),
+                TextComparison.lines(String.join("\n", right)));
+        while (!comparison.compare(1000)) {
+        }
+        return comparison;
+    }
+
+    /**
+     * Static method finds the length of the longest common subsequence by dynamic programming.
+     */
+    private static int longestCommonSubsequence(final String[] left, final String[] right) {
+        int[][] lengths = new int[left.length + 1][right.length + 1];
+        for (int i = 1; i <= left.length; i++) {
+            for (int j = 1; j <= right.length; j++) {
+                lengths[i][j] = left[i - 1].equals(right[j - 1])
+                        ? lengths[i - 1][j - 1] + 1 : Math.max(lengths[i - 1][j], lengths[i][j - 1]);
+            }
+        }
+        return lengths[left.length][right.length];
+    }
+
+    /**
+     * Static method checks, that the rows show all lines of both texts in order and pair as many equal lines
+     * as the longest common subsequence.
+     */
+    private static void assertMinimal(final String[] left, final String[] right, final String message) {
+        TextComparison comparison = compare(left, right);
+        int leftLine = 0;
+        int rightLine = 0;
+        for (int row = 0; row < comparison.getRowCount(); row++) {
+            if (comparison.getLeftLine(row) >= 0) {
+                assertEquals(leftLine++, comparison.getLeftLine(row), message);
+            }
+            if (comparison.getRightLine(row) >= 0) {
+                assertEquals(rightLine++, comparison.getRightLine(row), message);
+            }
+        }
+        assertEquals(left.length, leftLine, message);
+        assertEquals(right.length, rightLine, message);
+        int matched = comparison.getRowCount() - comparison.getChangedRowCount();
+        assertEquals(longestCommonSubsequence(left, right), matched, message);
+    }
+
+    @Test
+    void shiftedLinesOfTheSameLength() {
+        String[] left = "e b b e d e c d d c b c e b e d d e b".split(" ");
+        String[] right = "e b e d c e d d c b c e b e d d f e b".split(" ");
+        assertMinimal(left, right, "");
+        assertFalse(compare(left, right).isAligned());
+    }
+
+    @Test
+    void cipherTextIsAligned() {
+        String[] left = {"The quick brown fox", "", "jumps over", "", "the lazy dog"};
+        String[] right = new String[left.length];
+        for (int i = 0; i < left.length; i++) {
+            char[] chars = left[i].toCharArray();
+            StreamCipher.shift(3).encrypt(chars, 0, chars.length);
+            right[i] = new String(chars);
+        }
+        TextComparison comparison = compare(left, right);
+        assertTrue(comparison.isAligned());
+        assertEquals(left.length, comparison.getRowCount());
+        assertEquals(3, comparison.getChangedRowCount());
+    }
+
+    @Test
+    void randomLines() {
+        Random random = new Random(1);
+        String[][] alphabets = {{"b", "c", "d", "e", "f"}, {"b", "cc", "ddd", "ee", "f"}, {"a", "b"}};
+        for (int i = 0; i < 20000; i++) {
+            String[] alphabet = alphabets[i % alphabets.length];
+            String[] left = randomLines(random, alphabet, random.nextInt(41));
+            String[] right = randomLines(random, alphabet, random.nextInt(41));
+            assertMinimal(left, right, String.join(" ", left) + " | " + String.join(" ", right));
+        }
+    }
+
+    @Test
+    void randomEdits() {
+        // texts of up to 1500 lines with few changes, the middle snake is searched within MAX_COST
+        Random random = new Random(2);
+        String[] alphabet = {"b", "cc", "ddd", "e"};
+        for (int i = 0; i < 100; i++) {
+            String[] left = randomLines(random, alphabet, random.nextInt(1500));
+            StringBuilder edited = new StringBuilder();
+            for (String line : left) {
+                int edit = random.nextInt(100);
+                if (edit == 0) {
+                    continue;       // deleted
+                }
+                if (edit == 1) {
+                    edited.append(alphabet[random.nextInt(alphabet.length)]).append(' ');      // inserted
+                }
+                edited.append(line).append(' ');
+            }
+            String[] right = edited.length() == 0 ? new String[0] : edited.toString().split(" ");
+            assertMinimal(left, right, "edits " + i);
+        }
+    }
+
+    private static String[] randomLines(final Random random, final String[] alphabet, final int count) {
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return lines;
+    }
+}
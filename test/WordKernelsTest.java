@@ -0,0 +1,201 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class tests the kernels of StreamCipher, CharHistogram and TextAnalyserIO against their character by character
+ * definition. The build runs the tests with the word kernels and again with "textanalyser.scalarKernels=true",
+ * so both paths are compared to the same results (see WordKernels).
+ */
+class WordKernelsTest {
+
+    private static final int[] LENGTHS = {0, 1, 7, 8, 9, 63, 4095, 4096, 4103, 20001};
+    private static final int[] OFFSETS = {0, 1, 3, 5, 7};
+
+    private static StreamCipher[] ciphers() {
+        return new StreamCipher[] {
+                StreamCipher.shift(3),
+                StreamCipher.polyalphabetic("LEMON"),       // keyword lengths, which do not divide 8
+                StreamCipher.polyalphabetic("KEY"),
+                StreamCipher.polyalphabetic("CRYPTOGRAPHY"),
+                StreamCipher.polyalphabetic("ABCDEFGH"),
+                StreamCipher.substitution("QWERTYUIOPASDFGHJKLZXCVBNM")
+        };
+    }
+
+    /**
+     * Static method creates Latin-1 text of words, runs of letters and bytes beyond ASCII.
+     */
+    private static byte[] latin1Text(final Random random, final int length) {
+        byte[] bytes = new byte[length];
+        int i = 0;
+        while (i < length) {
+            int run = 1 + random.nextInt(24);
+            int kind = random.nextInt(4);
+            for (int j = 0; j < run && i < length; j++, i++) {
+                if (kind == 0) {
+                    bytes[i] = (byte) (0x80 + random.nextInt(0x80));
+                } else if (kind == 1) {
+                    bytes[i] = (byte) random.nextInt(0x80);
+                } else {
+                    bytes[i] = (byte) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(26));
+                }
+            }
+            if (i < length && random.nextBoolean()) {
+                bytes[i++] = ' ';
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Static method encrypts Latin-1 bytes character by character.
+     */
+    private static byte[] encryptChars(final StreamCipher cipher, final byte[] bytes, final int from, final int to) {
+        byte[] expected = bytes.clone();
+        for (int i = from; i < to; i++) {
+            expected[i] = (byte) cipher.encrypt((char) (bytes[i] & 0xFF));
+        }
+        return expected;
+    }
+
+    @Test
+    void encryptArray() {
+        Random random = new Random(1);
+        for (int length : LENGTHS) {
+            for (int offset : OFFSETS) {
+                byte[] text = latin1Text(random, offset + length + 3);
+                for (int c = 0; c < ciphers().length; c++) {
+                    byte[] expected = encryptChars(ciphers()[c], text, offset, offset + length);
+                    byte[] actual = text.clone();
+                    ciphers()[c].encrypt(actual, offset, offset + length);
+                    assertArrayEquals(expected, actual, "cipher " + c + ", length " + length + ", offset " + offset);
+                }
+            }
+        }
+    }
+
+    @Test
+    void encryptArrayInChunks() {
+        // the position in the keyword is carried from one chunk to the next
+        Random random = new Random(2);
+        byte[] text = latin1Text(random, 50000);
+        for (int c = 0; c < ciphers().length; c++) {
+            byte[] expected = encryptChars(ciphers()[c], text, 0, text.length);
+            byte[] actual = text.clone();
+            StreamCipher cipher = ciphers()[c];
+            int from = 0;
+            while (from < actual.length) {
+                int to = Math.min(actual.length, from + 1 + random.nextInt(5000));
+                cipher.encrypt(actual, from, to);
+                from = to;
+            }
+            assertArrayEquals(expected, actual, "cipher " + c);
+        }
+    }
+
+    @Test
+    void encryptBuffer() {
+        Random random = new Random(3);
+        for (int length : LENGTHS) {
+            for (int offset : OFFSETS) {
+                byte[] text = latin1Text(random, offset + length);
+                for (int c = 0; c < ciphers().length; c++) {
+                    byte[] expected = encryptChars(ciphers()[c], text, offset, text.length);
+
+                    byte[] heap = text.clone();
+                    ByteBuffer slice = ByteBuffer.wrap(heap, offset, length).slice();     // array offset
+                    ciphers()[c].encrypt(slice);
+                    assertEquals(length, slice.position());
+                    assertArrayEquals(expected, heap, "heap, cipher " + c + ", length " + length + ", offset " + offset);
+
+                    ByteBuffer direct = ByteBuffer.allocateDirect(text.length);
+                    direct.put(text).position(offset);
+                    ciphers()[c].encrypt(direct);
+                    byte[] actual = new byte[text.length];
+                    direct.flip();
+                    direct.get(actual);
+                    assertArrayEquals(expected, actual, "direct, cipher " + c + ", length " + length + ", offset " + offset);
+                }
+            }
+        }
+    }
+
+    @Test
+    void addLatin1() {
+        Random random = new Random(4);
+        for (int length : LENGTHS) {
+            for (int offset : OFFSETS) {
+                byte[] text = latin1Text(random, offset + length + 5);
+                CharHistogram expected = new CharHistogram();
+                for (int i = offset; i < offset + length; i++) {
+                    expected.add((char) (text[i] & 0xFF));
+                }
+
+                CharHistogram heap = new CharHistogram();
+                ByteBuffer buffer = ByteBuffer.wrap(text, offset, length);
+                heap.addLatin1(buffer);
+                assertEquals(offset + length, buffer.position());
+                assertHistogramEquals(expected, heap, "heap, length " + length + ", offset " + offset);
+
+                CharHistogram direct = new CharHistogram();
+                ByteBuffer directBuffer = ByteBuffer.allocateDirect(text.length);
+                directBuffer.put(text).position(offset).limit(offset + length);
+                direct.addLatin1(directBuffer);
+                assertHistogramEquals(expected, direct, "direct, length " + length + ", offset " + offset);
+            }
+        }
+    }
+
+    @Test
+    void analyseUtf8() {
+        Random random = new Random(5);
+        String[] characters = {"e", "E", " ", "\n", "é", "ß", "€", "😀"};
+        for (int length : LENGTHS) {
+            for (int offset : OFFSETS) {
+                StringBuilder text = new StringBuilder();
+                while (text.length() < length) {
+                    if (random.nextInt(8) == 0) {
+                        text.append(characters[random.nextInt(characters.length)]);
+                    } else {
+                        text.append((char) ('a' + random.nextInt(26)));
+                    }
+                }
+                byte[] encoded = text.toString().getBytes(StandardCharsets.UTF_8);
+                // malformed and truncated sequences
+                for (int i = 0; i < encoded.length / 500; i++) {
+                    encoded[random.nextInt(encoded.length)] = (byte) (0x80 + random.nextInt(0x80));
+                }
+                byte[] bytes = new byte[offset + encoded.length];
+                System.arraycopy(encoded, 0, bytes, offset, encoded.length);
+
+                CharHistogram expected = new CharHistogram();
+                expected.addAll(new String(encoded, StandardCharsets.UTF_8));
+
+                CharHistogram actual = TextAnalyserIO.analyseBytes(
+                        ByteBuffer.wrap(bytes, offset, encoded.length), StandardCharsets.UTF_8);
+                assertHistogramEquals(expected, actual, "length " + length + ", offset " + offset);
+            }
+        }
+    }
+
+    @Test
+    void analyseAscii() {
+        // bytes beyond ASCII are replacement chars, like in a String decoded from US-ASCII
+        byte[] bytes = latin1Text(new Random(6), 20001);
+        CharHistogram expected = new CharHistogram();
+        expected.addAll(new String(bytes, StandardCharsets.US_ASCII));
+        CharHistogram actual = TextAnalyserIO.analyseBytes(ByteBuffer.wrap(bytes), StandardCharsets.US_ASCII);
+        assertHistogramEquals(expected, actual, "US-ASCII");
+    }
+
+    private static void assertHistogramEquals(final CharHistogram expected, final CharHistogram actual, final String message) {
+        assertEquals(expected.getTotal(), actual.getTotal(), message);
+        assertEquals(expected.asMap(), actual.asMap(), message);
+    }
+}